@@ -18,11 +18,7 @@ package com.fluffycandies.yogaguide;
 
 import android.content.ContentResolver;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.graphics.ImageFormat;
 import android.graphics.Matrix;
-import android.graphics.Rect;
-import android.graphics.YuvImage;
 import android.media.Image;
 import android.media.Image.Plane;
 import android.net.Uri;
@@ -34,39 +30,105 @@ import androidx.annotation.RequiresApi;
 import androidx.camera.core.ExperimentalGetImage;
 import androidx.camera.core.ImageProxy;
 import androidx.exifinterface.media.ExifInterface;
-import java.io.ByteArrayOutputStream;
+import com.fluffycandies.yogaguide.imaging.ByteArrayPool;
+import com.fluffycandies.yogaguide.imaging.Nv21Converter;
+import com.fluffycandies.yogaguide.imaging.YuvPlaneUnpacker;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 
 /** Utils functions for bitmap conversions. */
 public class BitmapUtils {
   private static final String TAG = "BitmapUtils";
 
-  /** Converts NV21 format byte buffer to bitmap. */
+  // NV21 buffers for CameraX frames. A frame's buffer is only needed until its bitmap is built, so
+  // two cover the analysis thread plus a frame still being released.
+  private static final ByteArrayPool nv21BufferPool = new ByteArrayPool(/* maxIdleBuffers= */ 2);
+
+  // Frame bitmaps given back with releaseFrameBitmap once no longer drawn, all of the size last
+  // converted to. A bitmap is only reused after it was released, so however many frames are in
+  // flight, none is overwritten while queued or on screen.
+  private static final ArrayDeque<Bitmap> idleFrameBitmaps = new ArrayDeque<>();
+  // Enough for the frames in flight of a pipelined processor plus the one on screen.
+  private static final int MAX_IDLE_FRAME_BITMAPS = 4;
+  private static int frameBitmapWidth;
+  private static int frameBitmapHeight;
+  private static int[] argbPixels = new int[0];
+
+  // Plane layout of the current CameraX stream, see areUVPlanesNV21.
+  @Nullable private static PlaneLayout cachedPlaneLayout;
+  private static boolean cachedAreUVPlanesNV21;
+  private static final YuvPlaneUnpacker planeUnpacker = new YuvPlaneUnpacker();
+
+  /**
+   * Converts NV21 format byte buffer to bitmap.
+   *
+   * <p>The returned bitmap comes from a pool. Pass it to {@link #releaseFrameBitmap} once it is no
+   * longer drawn so a later frame can reuse it.
+   */
   @Nullable
   public static Bitmap getBitmap(ByteBuffer data, FrameMetadata metadata) {
     data.rewind();
-    byte[] imageInBuffer = new byte[data.limit()];
-    data.get(imageInBuffer, 0, imageInBuffer.length);
+    if (data.hasArray() && data.arrayOffset() == 0 && data.array().length == data.limit()) {
+      // Already a plain byte[], e.g. a Camera1 preview buffer or a pooled NV21 buffer.
+      return nv21ToBitmap(data.array(), metadata);
+    }
+    byte[] nv21 = nv21BufferPool.acquire(data.limit());
     try {
-      YuvImage image =
-          new YuvImage(
-              imageInBuffer, ImageFormat.NV21, metadata.getWidth(), metadata.getHeight(), null);
-      ByteArrayOutputStream stream = new ByteArrayOutputStream();
-      image.compressToJpeg(new Rect(0, 0, metadata.getWidth(), metadata.getHeight()), 80, stream);
-
-      Bitmap bmp = BitmapFactory.decodeByteArray(stream.toByteArray(), 0, stream.size());
-
-      stream.close();
-      return rotateBitmap(bmp, metadata.getRotation(), false, false);
-    } catch (Exception e) {
-      Log.e("VisionProcessorBase", "Error: " + e.getMessage());
+      data.get(nv21, 0, nv21.length);
+      return nv21ToBitmap(nv21, metadata);
+    } finally {
+      nv21BufferPool.release(nv21);
+    }
+  }
+
+  /**
+   * Converts and rotates the frame in one pass with {@link Nv21Converter} into a pooled frame
+   * bitmap.
+   */
+  private static synchronized Bitmap nv21ToBitmap(byte[] nv21, FrameMetadata metadata) {
+    int width = metadata.getWidth();
+    int height = metadata.getHeight();
+    int rotation = metadata.getRotation();
+    int outWidth = Nv21Converter.rotatedWidth(width, height, rotation);
+    int outHeight = Nv21Converter.rotatedHeight(width, height, rotation);
+    if (argbPixels.length < width * height) {
+      argbPixels = new int[width * height];
+    }
+    Nv21Converter.toArgb(nv21, width, height, rotation, /* mirror= */ false, argbPixels);
+
+    if (outWidth != frameBitmapWidth || outHeight != frameBitmapHeight) {
+      // E.g. a resolution or rotation change, the idle bitmaps won't fit any more.
+      idleFrameBitmaps.clear();
+      frameBitmapWidth = outWidth;
+      frameBitmapHeight = outHeight;
+    }
+    Bitmap bitmap = idleFrameBitmaps.pollFirst();
+    if (bitmap == null) {
+      bitmap = Bitmap.createBitmap(outWidth, outHeight, Bitmap.Config.ARGB_8888);
+    }
+    bitmap.setPixels(argbPixels, 0, outWidth, 0, 0, outWidth, outHeight);
+    return bitmap;
+  }
+
+  /**
+   * Gives a bitmap returned by {@link #getBitmap} back to the pool. It must not be drawn or
+   * otherwise used afterwards. Bitmaps that are never released are just garbage collected.
+   */
+  public static synchronized void releaseFrameBitmap(Bitmap bitmap) {
+    if (bitmap.getWidth() == frameBitmapWidth
+        && bitmap.getHeight() == frameBitmapHeight
+        && idleFrameBitmaps.size() < MAX_IDLE_FRAME_BITMAPS
+        && !idleFrameBitmaps.contains(bitmap)) {
+      idleFrameBitmaps.addFirst(bitmap);
     }
-    return null;
   }
 
-  /** Converts a YUV_420_888 image from CameraX API to a bitmap. */
+  /**
+   * Converts a YUV_420_888 image from CameraX API to a bitmap. Release it like the bitmaps of
+   * {@link #getBitmap(ByteBuffer, FrameMetadata)}.
+   */
   @RequiresApi(VERSION_CODES.LOLLIPOP)
   @Nullable
   @ExperimentalGetImage
@@ -78,9 +140,17 @@ public class BitmapUtils {
             .setRotation(image.getImageInfo().getRotationDegrees())
             .build();
 
-    ByteBuffer nv21Buffer =
-        yuv420ThreePlanesToNV21(image.getImage().getPlanes(), image.getWidth(), image.getHeight());
-    return getBitmap(nv21Buffer, frameMetadata);
+    int imageSize = image.getWidth() * image.getHeight();
+    byte[] nv21 = nv21BufferPool.acquire(imageSize + 2 * (imageSize / 4));
+    try {
+      yuv420ThreePlanesToNV21(
+          image.getImage().getPlanes(), image.getWidth(), image.getHeight(), nv21);
+      return getBitmap(ByteBuffer.wrap(nv21), frameMetadata);
+    } finally {
+      // The bitmap doesn't reference the NV21 bytes, so the buffer can go back to the pool before
+      // the ImageProxy is closed.
+      nv21BufferPool.release(nv21);
+    }
   }
 
   /** Rotates a bitmap if it is converted from a bytebuffer. */
@@ -175,7 +245,7 @@ public class BitmapUtils {
   }
 
   /**
-   * Converts YUV_420_888 to NV21 bytebuffer.
+   * Converts YUV_420_888 to NV21, writing into the given byte array.
    *
    * <p>The NV21 format consists of a single byte array containing the Y, U and V values. For an
    * image of size S, the first S positions of the array contain all the Y values. The remaining
@@ -190,37 +260,47 @@ public class BitmapUtils {
    * NV21 format. This happens if the planes share the same buffer, the V buffer is one position
    * before the U buffer and the planes have a pixelStride of 2. If this is case, we can just copy
    * them to the NV21 array.
+   *
+   * @param out receives the NV21 bytes, {@code width * height * 3 / 2} of them.
    */
-  private static ByteBuffer yuv420ThreePlanesToNV21(
-      Plane[] yuv420888planes, int width, int height) {
+  private static synchronized void yuv420ThreePlanesToNV21(
+      Plane[] yuv420888planes, int width, int height, byte[] out) {
     int imageSize = width * height;
-    byte[] out = new byte[imageSize + 2 * (imageSize / 4)];
 
-    if (areUVPlanesNV21(yuv420888planes, width, height)) {
-      // Copy the Y values.
-      yuv420888planes[0].getBuffer().get(out, 0, imageSize);
+    // Copy the Y values.
+    unpackPlane(yuv420888planes[0], width, height, out, 0, 1);
 
+    if (areUVPlanesNV21(yuv420888planes, width, height)) {
       ByteBuffer uBuffer = yuv420888planes[1].getBuffer();
       ByteBuffer vBuffer = yuv420888planes[2].getBuffer();
+      uBuffer.rewind();
+      vBuffer.rewind();
       // Get the first V value from the V buffer, since the U buffer does not contain it.
       vBuffer.get(out, imageSize, 1);
       // Copy the first U value and the remaining VU values from the U buffer.
       uBuffer.get(out, imageSize + 1, 2 * imageSize / 4 - 1);
     } else {
-      // Fallback to copying the UV values one by one, which is slower but also works.
-      // Unpack Y.
-      unpackPlane(yuv420888planes[0], width, height, out, 0, 1);
+      // Fallback to copying the U and V planes row by row, de-interleaving them.
       // Unpack U.
-      unpackPlane(yuv420888planes[1], width, height, out, imageSize + 1, 2);
+      unpackPlane(yuv420888planes[1], width / 2, height / 2, out, imageSize + 1, 2);
       // Unpack V.
-      unpackPlane(yuv420888planes[2], width, height, out, imageSize, 2);
+      unpackPlane(yuv420888planes[2], width / 2, height / 2, out, imageSize, 2);
     }
-
-    return ByteBuffer.wrap(out);
   }
 
-  /** Checks if the UV plane buffers of a YUV_420_888 image are in the NV21 format. */
+  /**
+   * Checks if the UV plane buffers of a YUV_420_888 image are in the NV21 format.
+   *
+   * <p>The layout doesn't change within a camera stream, so the answer is remembered for frames of
+   * the same geometry. It is only remembered once seen on a frame whose chroma isn't uniform, as
+   * the content comparison can't tell separate planes apart from NV21 on a flat frame.
+   */
   private static boolean areUVPlanesNV21(Plane[] planes, int width, int height) {
+    // Compared field by field, so a frame of the cached layout allocates nothing.
+    if (cachedPlaneLayout != null && cachedPlaneLayout.matches(planes, width, height)) {
+      return cachedAreUVPlanesNV21;
+    }
+
     int imageSize = width * height;
 
     ByteBuffer uBuffer = planes[1].getBuffer();
@@ -243,9 +323,23 @@ public class BitmapUtils {
     vBuffer.position(vBufferPosition);
     uBuffer.limit(uBufferLimit);
 
+    if (!areNV21 || !isUniform(uBuffer)) {
+      cachedPlaneLayout = new PlaneLayout(planes, width, height);
+      cachedAreUVPlanesNV21 = areNV21;
+    }
     return areNV21;
   }
 
+  private static boolean isUniform(ByteBuffer buffer) {
+    int start = buffer.position();
+    for (int i = start + 1; i < buffer.limit(); i++) {
+      if (buffer.get(i) != buffer.get(start)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * Unpack an image plane into a byte array.
    *
@@ -253,30 +347,51 @@ public class BitmapUtils {
    * spaced by 'pixelStride'. Note that there is no row padding on the output.
    */
   private static void unpackPlane(
-      Plane plane, int width, int height, byte[] out, int offset, int pixelStride) {
+      Plane plane, int planeWidth, int planeHeight, byte[] out, int offset, int pixelStride) {
     ByteBuffer buffer = plane.getBuffer();
     buffer.rewind();
+    planeUnpacker.unpack(
+        buffer,
+        plane.getRowStride(),
+        plane.getPixelStride(),
+        planeWidth,
+        planeHeight,
+        out,
+        offset,
+        pixelStride);
+  }
 
-    // Compute the size of the current plane.
-    // We assume that it has the aspect ratio as the original image.
-    int numRow = (buffer.limit() + plane.getRowStride() - 1) / plane.getRowStride();
-    if (numRow == 0) {
-      return;
+  /** Geometry of the planes of a YUV_420_888 frame, which is fixed for a camera stream. */
+  private static final class PlaneLayout {
+    private final int width;
+    private final int height;
+    private final int[] rowStrides = new int[3];
+    private final int[] pixelStrides = new int[3];
+    private final int[] capacities = new int[3];
+
+    PlaneLayout(Plane[] planes, int width, int height) {
+      this.width = width;
+      this.height = height;
+      for (int i = 0; i < 3; i++) {
+        rowStrides[i] = planes[i].getRowStride();
+        pixelStrides[i] = planes[i].getPixelStride();
+        capacities[i] = planes[i].getBuffer().capacity();
+      }
     }
-    int scaleFactor = height / numRow;
-    int numCol = width / scaleFactor;
-
-    // Extract the data in the output buffer.
-    int outputPos = offset;
-    int rowStart = 0;
-    for (int row = 0; row < numRow; row++) {
-      int inputPos = rowStart;
-      for (int col = 0; col < numCol; col++) {
-        out[outputPos] = buffer.get(inputPos);
-        outputPos += pixelStride;
-        inputPos += plane.getPixelStride();
+
+    /** Whether {@code planes} of a {@code width} by {@code height} frame have this layout. */
+    boolean matches(Plane[] planes, int width, int height) {
+      if (width != this.width || height != this.height) {
+        return false;
+      }
+      for (int i = 0; i < 3; i++) {
+        if (planes[i].getRowStride() != rowStrides[i]
+            || planes[i].getPixelStride() != pixelStrides[i]
+            || planes[i].getBuffer().capacity() != capacities[i]) {
+          return false;
+        }
       }
-      rowStart += plane.getRowStride();
+      return true;
     }
   }
 }
@@ -27,6 +27,7 @@ import android.widget.TextView
 import androidx.core.app.ActivityCompat
 import androidx.core.content.ContextCompat
 import com.fluffycandies.yogaguide.java.PoseSelectionActivity
+import com.fluffycandies.yogaguide.java.posedetector.PoseCatalog
 import java.util.ArrayList
 
 class EntryChoiceActivity : AppCompatActivity(), ActivityCompat.OnRequestPermissionsResultCallback {
@@ -35,6 +36,8 @@ class EntryChoiceActivity : AppCompatActivity(), ActivityCompat.OnRequestPermiss
         super.onCreate(savedInstanceState)
 
         setContentView(R.layout.activity_entry)
+        // Parsed in the background so the pose list opens without reading the assets.
+        PoseCatalog.preload(this)
 
         findViewById<TextView>(R.id.select_single_pose).setOnClickListener {
             val intent = Intent(this@EntryChoiceActivity, PoseSelectionActivity::class.java)
@@ -0,0 +1,88 @@
+package com.fluffycandies.yogaguide;
+
+import android.content.Context;
+import android.util.Log;
+import com.fluffycandies.yogaguide.perf.LatencyHistogram;
+import com.fluffycandies.yogaguide.perf.LatencyReport;
+import com.fluffycandies.yogaguide.perf.SessionRecorder;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Writes performance reports of live preview sessions to app-private storage, under {@code
+ * files/perf}. Files are written on a background thread.
+ */
+public final class PerfReports {
+
+  private static final String TAG = "PerfReports";
+  private static final String REPORT_DIR = "perf";
+
+  private static final ExecutorService writer = Executors.newSingleThreadExecutor();
+
+  /** Returns the directory reports are written to. */
+  public static File getReportDir(Context context) {
+    return new File(context.getFilesDir(), REPORT_DIR);
+  }
+
+  /**
+   * Writes the per-stage latency percentiles of a session as {@code latency-<time>.csv} and
+   * {@code latency-<time>.json}.
+   */
+  public static void exportLatencies(
+      Context context, Map<String, LatencyHistogram.Snapshot> snapshots) {
+    File dir = getReportDir(context);
+    String baseName = "latency-" + sessionTimestamp();
+    writer.execute(
+        () -> {
+          if (!dir.isDirectory() && !dir.mkdirs()) {
+            Log.e(TAG, "Can not create " + dir);
+            return;
+          }
+          try (Writer csv = new FileWriter(new File(dir, baseName + ".csv"));
+              Writer json = new FileWriter(new File(dir, baseName + ".json"))) {
+            LatencyReport.writeCsv(csv, snapshots);
+            LatencyReport.writeJson(json, snapshots);
+            Log.i(TAG, "Latency report written to " + new File(dir, baseName + ".csv"));
+          } catch (IOException e) {
+            Log.e(TAG, "Failed to write latency report.", e);
+          }
+        });
+  }
+
+  /**
+   * Writes the samples of a session as {@code session-<time>.csv}, the input of {@code
+   * SessionAnalyzer}. The recorder must not be recorded into anymore.
+   */
+  public static void exportSession(Context context, SessionRecorder recorder) {
+    File file = new File(getReportDir(context), "session-" + sessionTimestamp() + ".csv");
+    writer.execute(
+        () -> {
+          File dir = file.getParentFile();
+          if (!dir.isDirectory() && !dir.mkdirs()) {
+            Log.e(TAG, "Can not create " + dir);
+            return;
+          }
+          try (Writer csv = new BufferedWriter(new FileWriter(file))) {
+            recorder.writeCsv(csv);
+            Log.i(TAG, "Session of " + recorder.size() + " samples written to " + file);
+          } catch (IOException e) {
+            Log.e(TAG, "Failed to write session samples.", e);
+          }
+        });
+  }
+
+  private static String sessionTimestamp() {
+    return new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date());
+  }
+
+  private PerfReports() {}
+}
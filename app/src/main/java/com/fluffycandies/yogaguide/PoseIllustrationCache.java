@@ -0,0 +1,298 @@
+package com.fluffycandies.yogaguide;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.res.AssetManager;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.RectF;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+import android.view.View;
+import android.widget.ImageView;
+import androidx.annotation.MainThread;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.core.view.ViewCompat;
+import com.caverock.androidsvg.SVG;
+import com.caverock.androidsvg.SVGParseException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Renders the SVG pose illustrations into bitmaps off the main thread and caches them.
+ *
+ * <p>Parsing an SVG and drawing it as a {@code Picture} took the main thread tens of milliseconds
+ * and forced the view into a software layer. Here each illustration is rasterized once per view
+ * size on a worker thread and kept in a memory LRU bounded by bitmap bytes, backed by PNGs in the
+ * app's cache directory so it isn't rendered again after a restart. The bitmaps draw with hardware
+ * acceleration.
+ */
+public final class PoseIllustrationCache {
+  private static final String TAG = "PoseIllustrationCache";
+  private static final String DISK_CACHE_DIR = "pose_illustrations";
+  private static final long MAX_DISK_CACHE_BYTES = 20L * 1024 * 1024;
+  // The memory tier takes at most this fraction of the heap.
+  private static final int MEMORY_CACHE_HEAP_DIVISOR = 16;
+
+  @Nullable private static PoseIllustrationCache instance;
+
+  private final AssetManager assets;
+  private final File diskCacheRoot;
+  private final File diskCacheDir;
+  private final LruCache<String, Bitmap> memoryCache;
+  // Parses, renders and does all disk I/O, one illustration at a time.
+  private final ExecutorService executor = Executors.newSingleThreadExecutor();
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+  // Last key requested for each view, so a late result doesn't replace a newer one. Main thread.
+  private final Map<ImageView, String> requestedKeys = new WeakHashMap<>();
+
+  public static synchronized PoseIllustrationCache getInstance(Context context) {
+    if (instance == null) {
+      instance = new PoseIllustrationCache(context.getApplicationContext());
+    }
+    return instance;
+  }
+
+  private PoseIllustrationCache(Context context) {
+    assets = context.getAssets();
+    diskCacheRoot = new File(context.getCacheDir(), DISK_CACHE_DIR);
+    // Renders of the assets of an older install of the app are stale.
+    diskCacheDir = new File(diskCacheRoot, String.valueOf(getLastUpdateTime(context)));
+    memoryCache =
+        new LruCache<String, Bitmap>(
+            (int) (Runtime.getRuntime().maxMemory() / MEMORY_CACHE_HEAP_DIVISOR)) {
+          @Override
+          protected int sizeOf(String key, Bitmap bitmap) {
+            return bitmap.getByteCount();
+          }
+        };
+    executor.execute(this::prepareDiskCache);
+  }
+
+  /**
+   * Shows the SVG at {@code assetPath} in {@code view}, rendered to fit the view's size. The view
+   * is cleared until the bitmap is ready, unless it is in memory already.
+   */
+  @MainThread
+  public void load(String assetPath, ImageView view) {
+    if (!ViewCompat.isLaidOut(view)) {
+      // Render for the size the view gets.
+      view.addOnLayoutChangeListener(
+          new View.OnLayoutChangeListener() {
+            @Override
+            public void onLayoutChange(
+                View v,
+                int left,
+                int top,
+                int right,
+                int bottom,
+                int oldLeft,
+                int oldTop,
+                int oldRight,
+                int oldBottom) {
+              v.removeOnLayoutChangeListener(this);
+              load(assetPath, view);
+            }
+          });
+      return;
+    }
+    int width = view.getWidth() - view.getPaddingLeft() - view.getPaddingRight();
+    int height = view.getHeight() - view.getPaddingTop() - view.getPaddingBottom();
+    if (width <= 0 || height <= 0) {
+      return;
+    }
+    String key = assetPath + "@" + width + "x" + height;
+    requestedKeys.put(view, key);
+    Bitmap cached = memoryCache.get(key);
+    if (cached != null) {
+      view.setImageBitmap(cached);
+      return;
+    }
+    view.setImageDrawable(null);
+    executor.execute(
+        () -> {
+          Bitmap bitmap = readFromDisk(key);
+          if (bitmap == null) {
+            bitmap = render(assetPath, width, height);
+            if (bitmap != null) {
+              writeToDisk(key, bitmap);
+            }
+          }
+          if (bitmap != null) {
+            memoryCache.put(key, bitmap);
+          }
+          Bitmap result = bitmap;
+          mainHandler.post(
+              () -> {
+                if (!key.equals(requestedKeys.get(view))) {
+                  return;
+                }
+                requestedKeys.remove(view);
+                if (result != null) {
+                  view.setImageBitmap(result);
+                }
+              });
+        });
+  }
+
+  /**
+   * Returns the SVG rendered to fit into {@code maxWidth} by {@code maxHeight} keeping its aspect
+   * ratio, or null if it can't be read.
+   */
+  @WorkerThread
+  @Nullable
+  private Bitmap render(String assetPath, int maxWidth, int maxHeight) {
+    long startMs = System.currentTimeMillis();
+    SVG svg;
+    try (InputStream in = assets.open(assetPath)) {
+      svg = SVG.getFromInputStream(in);
+    } catch (IOException | SVGParseException e) {
+      Log.e(TAG, "Failed to load " + assetPath, e);
+      return null;
+    }
+    RectF viewBox = svg.getDocumentViewBox();
+    if (viewBox == null) {
+      // Without a view box the document isn't scaled, give it one of its own size.
+      float documentWidth = svg.getDocumentWidth();
+      float documentHeight = svg.getDocumentHeight();
+      if (documentWidth <= 0 || documentHeight <= 0) {
+        documentWidth = maxWidth;
+        documentHeight = maxHeight;
+      }
+      svg.setDocumentViewBox(0, 0, documentWidth, documentHeight);
+      viewBox = svg.getDocumentViewBox();
+    }
+    // Fits like the fitCenter scale type, so no bytes are spent on the margins.
+    float scale = Math.min(maxWidth / viewBox.width(), maxHeight / viewBox.height());
+    int width = Math.max(1, Math.round(viewBox.width() * scale));
+    int height = Math.max(1, Math.round(viewBox.height() * scale));
+    svg.setDocumentWidth(width);
+    svg.setDocumentHeight(height);
+    Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    svg.renderToCanvas(new Canvas(bitmap));
+    Log.d(
+        TAG,
+        "Rendered " + assetPath + " at " + width + "x" + height + " in "
+            + (System.currentTimeMillis() - startMs) + " ms");
+    return bitmap;
+  }
+
+  @WorkerThread
+  @Nullable
+  private Bitmap readFromDisk(String key) {
+    File file = getDiskFile(key);
+    if (!file.isFile()) {
+      return null;
+    }
+    Bitmap bitmap = BitmapFactory.decodeFile(file.getPath());
+    if (bitmap == null) {
+      Log.w(TAG, "Dropping unreadable " + file);
+      file.delete();
+      return null;
+    }
+    // Keeps recently used files when trimming.
+    file.setLastModified(System.currentTimeMillis());
+    return bitmap;
+  }
+
+  @WorkerThread
+  private void writeToDisk(String key, Bitmap bitmap) {
+    File file = getDiskFile(key);
+    File tempFile = new File(file.getPath() + ".tmp");
+    try (OutputStream out = new FileOutputStream(tempFile)) {
+      bitmap.compress(Bitmap.CompressFormat.PNG, /* quality= */ 100, out);
+    } catch (IOException e) {
+      Log.e(TAG, "Failed to write " + file, e);
+      tempFile.delete();
+      return;
+    }
+    // Readers never see a partially written file.
+    if (!tempFile.renameTo(file)) {
+      tempFile.delete();
+      return;
+    }
+    trimDiskCache();
+  }
+
+  /** Deletes the least recently used files until the disk tier is within its size. */
+  @WorkerThread
+  private void trimDiskCache() {
+    File[] files = diskCacheDir.listFiles();
+    if (files == null) {
+      return;
+    }
+    long totalBytes = 0;
+    for (File file : files) {
+      totalBytes += file.length();
+    }
+    if (totalBytes <= MAX_DISK_CACHE_BYTES) {
+      return;
+    }
+    Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+    for (File file : files) {
+      if (totalBytes <= MAX_DISK_CACHE_BYTES) {
+        break;
+      }
+      long length = file.length();
+      if (file.delete()) {
+        totalBytes -= length;
+      }
+    }
+  }
+
+  /** Creates the disk tier and deletes the ones of older installs. */
+  @WorkerThread
+  private void prepareDiskCache() {
+    File[] versionDirs = diskCacheRoot.listFiles();
+    if (versionDirs != null) {
+      for (File versionDir : versionDirs) {
+        if (!versionDir.equals(diskCacheDir)) {
+          deleteRecursively(versionDir);
+        }
+      }
+    }
+    if (!diskCacheDir.isDirectory() && !diskCacheDir.mkdirs()) {
+      Log.e(TAG, "Failed to create " + diskCacheDir);
+    }
+  }
+
+  private File getDiskFile(String key) {
+    // Readable and unique: asset path and size, plus the hash in case two paths map alike.
+    return new File(
+        diskCacheDir,
+        key.replaceAll("[^A-Za-z0-9]", "_") + "_" + Integer.toHexString(key.hashCode()) + ".png");
+  }
+
+  private static long getLastUpdateTime(Context context) {
+    try {
+      return context
+          .getPackageManager()
+          .getPackageInfo(context.getPackageName(), /* flags= */ 0)
+          .lastUpdateTime;
+    } catch (PackageManager.NameNotFoundException e) {
+      return 0;
+    }
+  }
+
+  private static void deleteRecursively(File file) {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        deleteRecursively(child);
+      }
+    }
+    file.delete();
+  }
+}
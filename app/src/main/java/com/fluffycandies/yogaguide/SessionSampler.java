@@ -0,0 +1,112 @@
+package com.fluffycandies.yogaguide;
+
+import android.app.ActivityManager;
+import android.app.ActivityManager.MemoryInfo;
+import android.content.Context;
+import android.os.Build;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import com.fluffycandies.yogaguide.perf.LatencyHistogram;
+import com.fluffycandies.yogaguide.perf.PipelineLatencies;
+import com.fluffycandies.yogaguide.perf.QualityGovernor;
+import com.fluffycandies.yogaguide.perf.SessionColumns;
+import com.fluffycandies.yogaguide.perf.SessionRecorder;
+
+/**
+ * Samples fps, per-stage latency, memory and thermal state of a live preview session into a
+ * {@link SessionRecorder}, to be analyzed with {@code SessionAnalyzer} after the session.
+ *
+ * <p>{@link #sample} is meant to be called at a fixed cadence from a single thread.
+ */
+public final class SessionSampler {
+
+  // An hour of samples at one per second.
+  private static final int CAPACITY = 3600;
+  private static final float BYTES_PER_MB = 1024f * 1024f;
+
+  private final ActivityManager activityManager;
+  private final PowerManager powerManager;
+  private final TemperatureMonitor temperatureMonitor;
+  private final PipelineLatencies latencies;
+  private final SessionRecorder recorder = new SessionRecorder(SessionColumns.all(), CAPACITY);
+  private final long startMs = SystemClock.elapsedRealtime();
+
+  // Reused for every sample.
+  private final float[] row = new float[recorder.getColumnCount()];
+  private final MemoryInfo memoryInfo = new MemoryInfo();
+  private final LatencyHistogram.Snapshot[] previousSnapshots =
+      new LatencyHistogram.Snapshot[PipelineLatencies.Stage.values().length];
+  private long previousDroppedFrames;
+
+  // Parts of the latest sample, for the QualityGovernor.
+  private double lastFrameP95Ms = Double.NaN;
+  private int lastThermalStatus = QualityGovernor.THERMAL_STATUS_UNKNOWN;
+  private double lastTemperatureC = Double.NaN;
+
+  public SessionSampler(
+      Context context, TemperatureMonitor temperatureMonitor, PipelineLatencies latencies) {
+    activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+    powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+    this.temperatureMonitor = temperatureMonitor;
+    this.latencies = latencies;
+  }
+
+  public SessionRecorder getRecorder() {
+    return recorder;
+  }
+
+  /** Returns the frame p95 latency of the latest sample, NaN if no frame was drawn in it. */
+  public double getLastFrameP95Ms() {
+    return lastFrameP95Ms;
+  }
+
+  /**
+   * Returns the {@code PowerManager} thermal status of the latest sample, or {@link
+   * QualityGovernor#THERMAL_STATUS_UNKNOWN} before Android Q.
+   */
+  public int getLastThermalStatus() {
+    return lastThermalStatus;
+  }
+
+  /** Returns the device temperature of the latest sample, NaN if unknown. */
+  public double getLastTemperatureCelsius() {
+    return lastTemperatureC;
+  }
+
+  /** Records one sample, latencies being those of the frames since the previous sample. */
+  public void sample(int framesPerSecond, long droppedFrames) {
+    int column = 0;
+    row[column++] = framesPerSecond;
+    row[column++] = droppedFrames - previousDroppedFrames;
+    previousDroppedFrames = droppedFrames;
+
+    PipelineLatencies.Stage[] stages = PipelineLatencies.Stage.values();
+    for (int i = 0; i < stages.length; i++) {
+      LatencyHistogram.Snapshot snapshot = latencies.getHistogram(stages[i]).snapshot();
+      LatencyHistogram.Snapshot interval =
+          previousSnapshots[i] == null ? snapshot : snapshot.since(previousSnapshots[i]);
+      previousSnapshots[i] = snapshot;
+      row[column++] =
+          interval.getCount() == 0 ? Float.NaN : (float) interval.getPercentileMillis(95);
+      if (stages[i] == PipelineLatencies.Stage.FRAME) {
+        lastFrameP95Ms = row[column - 1];
+      }
+    }
+
+    Runtime runtime = Runtime.getRuntime();
+    row[column++] = (runtime.totalMemory() - runtime.freeMemory()) / BYTES_PER_MB;
+    activityManager.getMemoryInfo(memoryInfo);
+    row[column++] = memoryInfo.availMem / BYTES_PER_MB;
+    row[column++] = memoryInfo.lowMemory ? 1 : 0;
+    lastThermalStatus =
+        Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+            ? powerManager.getCurrentThermalStatus()
+            : QualityGovernor.THERMAL_STATUS_UNKNOWN;
+    row[column++] =
+        lastThermalStatus == QualityGovernor.THERMAL_STATUS_UNKNOWN ? Float.NaN : lastThermalStatus;
+    lastTemperatureC = temperatureMonitor.getMaxTemperatureCelsius();
+    row[column] = (float) lastTemperatureC;
+
+    recorder.record(SystemClock.elapsedRealtime() - startMs, row);
+  }
+}
@@ -6,10 +6,10 @@ import android.hardware.SensorEvent;
 import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
 import android.util.Log;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Monitors device temperature.
@@ -18,7 +18,8 @@ public final class TemperatureMonitor implements SensorEventListener {
 
   private static final String TAG = "TemperatureMonitor";
 
-  public Map<String, Float> sensorReadingsCelsius = new HashMap<>();
+  // Written on the main thread by the sensor callbacks, read from the sampling timer.
+  public Map<String, Float> sensorReadingsCelsius = new ConcurrentHashMap<>();
 
   private final SensorManager sensorManager;
 
@@ -54,6 +55,18 @@ public final class TemperatureMonitor implements SensorEventListener {
     }
   }
 
+  /** Returns the highest valid reading of all sensors, or NaN if there is none. */
+  public float getMaxTemperatureCelsius() {
+    float maxTempC = Float.NaN;
+    for (float tempC : sensorReadingsCelsius.values()) {
+      // Skips likely invalid sensor readings
+      if (tempC >= 0 && (Float.isNaN(maxTempC) || tempC > maxTempC)) {
+        maxTempC = tempC;
+      }
+    }
+    return maxTempC;
+  }
+
   @Override
   public void onAccuracyChanged(Sensor sensor, int accuracy) {}
 
@@ -37,7 +37,6 @@ import androidx.camera.core.ImageAnalysis;
 import androidx.camera.core.Preview;
 import androidx.camera.lifecycle.ProcessCameraProvider;
 import androidx.camera.view.PreviewView;
-import androidx.core.content.ContextCompat;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.lifecycle.ViewModelProvider.AndroidViewModelFactory;
 import com.google.android.gms.common.annotation.KeepName;
@@ -46,18 +45,19 @@ import com.fluffycandies.yogaguide.CameraXViewModel;
 import com.fluffycandies.yogaguide.GraphicOverlay;
 import com.fluffycandies.yogaguide.R;
 import com.fluffycandies.yogaguide.VisionImageProcessor;
+import com.fluffycandies.yogaguide.java.posedetector.JointAngleTargets;
+import com.fluffycandies.yogaguide.java.posedetector.PoseCatalog;
 import com.fluffycandies.yogaguide.java.posedetector.PoseDetectorProcessor;
+import com.fluffycandies.yogaguide.java.posedetector.PosePipelineWarmup;
 import com.fluffycandies.yogaguide.preference.PreferenceUtils;
 import com.fluffycandies.yogaguide.preference.SettingsActivity;
 import com.google.mlkit.vision.pose.PoseDetectorOptionsBase;
 import com.fluffycandies.yogaguide.java.posedetector.classification.PoseClassifierProcessor;
+import com.fluffycandies.yogaguide.perf.QualityGovernor;
+import com.fluffycandies.yogaguide.perf.QualityGovernor.QualityLevel;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.io.IOException;
-import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /** Live preview demo app for ML Kit APIs using CameraX. */
 @KeepName
@@ -66,6 +66,11 @@ public final class CameraXLivePreviewActivity extends AppCompatActivity
     private static final String TAG = "CameraXLivePreview";
     private static final String POSE_DETECTION = "Pose Detection";
     private static final String STATE_SELECTED_POSE = "selected_pose";
+    // Frame p95 latency above which the quality governor steps down, about 15 fps.
+    private static final double FRAME_LATENCY_BUDGET_MS = 66;
+    // Analysis resolution at reduced quality if no target resolution is configured. CameraX
+    // defaults to 640x480.
+    private static final Size REDUCED_DEFAULT_RESOLUTION = new Size(480, 360);
     private PreviewView previewView;
     private GraphicOverlay graphicOverlay;
     @Nullable private ProcessCameraProvider cameraProvider;
@@ -73,8 +78,17 @@ public final class CameraXLivePreviewActivity extends AppCompatActivity
     @Nullable private Preview previewUseCase;
     @Nullable private ImageAnalysis analysisUseCase;
     @Nullable private VisionImageProcessor imageProcessor;
-    private boolean needUpdateGraphicOverlayImageSourceInfo;
+    private volatile boolean needUpdateGraphicOverlayImageSourceInfo;
+    // Runs the analyzer off the main thread, which is left to drawing.
+    private ExecutorService analysisExecutor;
+    // Lowers the quality when the device heats up or frames are slow. Kept across rebinding, the
+    // current processor feeds it.
+    private QualityGovernor qualityGovernor;
+    // The level the use cases were last bound at.
+    private QualityLevel boundQualityLevel = QualityLevel.FULL;
 
+    // Null until loaded, the camera is bound once both it and the camera provider are there.
+    @Nullable private PoseCatalog poseCatalog;
     private String selectedPose = "";
     private int lensFacing = CameraSelector.LENS_FACING_BACK;
     private CameraSelector cameraSelector;
@@ -83,8 +97,13 @@ public final class CameraXLivePreviewActivity extends AppCompatActivity
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         Log.d(TAG, "onCreate");
+        // No-op if the pose picker already started it, e.g. when restored from saved state.
+        PosePipelineWarmup.warmUp(this);
 
         cameraSelector = new CameraSelector.Builder().requireLensFacing(lensFacing).build();
+        analysisExecutor = Executors.newSingleThreadExecutor();
+        qualityGovernor = new QualityGovernor(FRAME_LATENCY_BUDGET_MS);
+        qualityGovernor.setListener(level -> runOnUiThread(() -> onQualityLevelChanged(level)));
 
         setContentView(R.layout.activity_vision_camerax_live_preview);
         previewView = findViewById(R.id.preview_view);
@@ -123,6 +142,14 @@ public final class CameraXLivePreviewActivity extends AppCompatActivity
                             bindAllCameraUseCases();
                         });
 
+        PoseCatalog.getCatalog(this)
+                .observe(
+                        this,
+                        catalog -> {
+                            poseCatalog = catalog;
+                            bindAllCameraUseCases();
+                        });
+
         ImageView settingsButton = findViewById(R.id.settings_button);
         settingsButton.setOnClickListener(
                 v -> {
@@ -194,19 +221,55 @@ public final class CameraXLivePreviewActivity extends AppCompatActivity
         if (imageProcessor != null) {
             imageProcessor.stop();
         }
+        analysisExecutor.shutdown();
+    }
+
+    private void onQualityLevelChanged(QualityLevel level) {
+        Log.d(TAG, "Quality level: " + level);
+        if (isDestroyed()) {
+            return;
+        }
+        // Nothing bound yet, the next binding picks up the governor's level.
+        if (cameraProvider == null || !(imageProcessor instanceof PoseDetectorProcessor)) {
+            return;
+        }
+        // The running processor is kept, with its classifier, timers and smoothing. Sparse
+        // classification it picks up itself, the detector it swaps in place, and only resolution
+        // and preview changes need the use cases bound again.
+        boolean detectorChanged = level.usesFastDetector() != boundQualityLevel.usesFastDetector();
+        boolean useCasesChanged =
+                level.reducesResolution() != boundQualityLevel.reducesResolution()
+                        || level.skipsPreviewBitmap() != boundQualityLevel.skipsPreviewBitmap();
+        boundQualityLevel = level;
+        if (detectorChanged) {
+            ((PoseDetectorProcessor) imageProcessor)
+                    .setDetectorOptions(
+                            PreferenceUtils.getPoseDetectorOptionsForLivePreview(
+                                    this, /* forceFastMode= */ level.usesFastDetector()));
+        }
+        if (useCasesChanged) {
+            bindCameraUseCases(/* keepImageProcessor= */ true);
+        }
     }
 
     private void bindAllCameraUseCases() {
-        if (cameraProvider != null) {
-            // As required by CameraX API, unbinds all use cases before trying to re-bind any of them.
-            cameraProvider.unbindAll();
-            bindPreviewUseCase();
-            bindAnalysisUseCase();
+        if (cameraProvider != null && poseCatalog != null) {
+            boundQualityLevel = qualityGovernor.getLevel();
+            bindCameraUseCases(/* keepImageProcessor= */ false);
         }
     }
 
+    private void bindCameraUseCases(boolean keepImageProcessor) {
+        // As required by CameraX API, unbinds all use cases before trying to re-bind any of them.
+        cameraProvider.unbindAll();
+        bindPreviewUseCase();
+        bindAnalysisUseCase(keepImageProcessor);
+    }
+
     private void bindPreviewUseCase() {
-        if (!PreferenceUtils.isCameraLiveViewportEnabled(this)) {
+        // Without the manual bitmap preview, the camera draws the preview itself.
+        if (!PreferenceUtils.isCameraLiveViewportEnabled(this)
+                && !boundQualityLevel.skipsPreviewBitmap()) {
             return;
         }
         if (cameraProvider == null) {
@@ -227,57 +290,48 @@ public final class CameraXLivePreviewActivity extends AppCompatActivity
                 cameraProvider.bindToLifecycle(/* lifecycleOwner= */ this, cameraSelector, previewUseCase);
     }
 
-    private void bindAnalysisUseCase() {
+    private void bindAnalysisUseCase(boolean keepImageProcessor) {
         if (cameraProvider == null) {
             return;
         }
         if (analysisUseCase != null) {
             cameraProvider.unbind(analysisUseCase);
         }
-        if (imageProcessor != null) {
-            imageProcessor.stop();
-        }
-
-        try {
-            PoseDetectorOptionsBase poseDetectorOptions =
-                    PreferenceUtils.getPoseDetectorOptionsForLivePreview(this);
-            boolean visualizeZ = PreferenceUtils.shouldPoseDetectionVisualizeZ(this);
-            boolean rescaleZ = PreferenceUtils.shouldPoseDetectionRescaleZForVisualization(this);
-            boolean runClassification = PreferenceUtils.shouldPoseDetectionRunClassification(this);
-            imageProcessor =
-                    new PoseDetectorProcessor(
-                            this,
-                            poseDetectorOptions,
-                            visualizeZ,
-                            rescaleZ,
-                            runClassification,
-                            /* isStreamMode = */ true,
-                            getAngleJSONObjectForSelectedPose());
-        } catch (Exception e) {
-            Log.e(TAG, "Can not create image processor: " + POSE_DETECTION, e);
-            Toast.makeText(
-                            getApplicationContext(),
-                            "Can not create image processor: " + e.getLocalizedMessage(),
-                            Toast.LENGTH_LONG)
-                    .show();
-            return;
+        if (!keepImageProcessor || imageProcessor == null) {
+            if (imageProcessor != null) {
+                imageProcessor.stop();
+            }
+            imageProcessor = createImageProcessor();
+            if (imageProcessor == null) {
+                return;
+            }
         }
 
-        ImageAnalysis.Builder builder = new ImageAnalysis.Builder();
+        ImageAnalysis.Builder builder = new ImageAnalysis.Builder()
+                // Only the most recent frame is worth analysing, older ones are discarded.
+                .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST);
         Size targetResolution = PreferenceUtils.getCameraXTargetResolution(this, lensFacing);
+        if (boundQualityLevel.reducesResolution()) {
+            targetResolution =
+                    targetResolution == null
+                            ? REDUCED_DEFAULT_RESOLUTION
+                            : new Size(targetResolution.getWidth() / 2, targetResolution.getHeight() / 2);
+        }
         if (targetResolution != null) {
             builder.setTargetResolution(targetResolution);
         }
         analysisUseCase = builder.build();
 
         needUpdateGraphicOverlayImageSourceInfo = true;
+        // Fields are replaced on the main thread when rebinding, the analyzer keeps its own copies.
+        VisionImageProcessor processor = imageProcessor;
+        boolean isImageFlipped = lensFacing == CameraSelector.LENS_FACING_FRONT;
         analysisUseCase.setAnalyzer(
-                // imageProcessor.processImageProxy will use another thread to run the detection underneath,
-                // thus we can just runs the analyzer itself on main thread.
-                ContextCompat.getMainExecutor(this),
+                // Frame conversion runs on the analysis thread so it doesn't compete with drawing,
+                // results are still drawn on the main thread.
+                analysisExecutor,
                 imageProxy -> {
                     if (needUpdateGraphicOverlayImageSourceInfo) {
-                        boolean isImageFlipped = lensFacing == CameraSelector.LENS_FACING_FRONT;
                         int rotationDegrees = imageProxy.getImageInfo().getRotationDegrees();
                         if (rotationDegrees == 0 || rotationDegrees == 180) {
                             graphicOverlay.setImageSourceInfo(
@@ -289,47 +343,58 @@ public final class CameraXLivePreviewActivity extends AppCompatActivity
                         needUpdateGraphicOverlayImageSourceInfo = false;
                     }
                     try {
-                        imageProcessor.processImageProxy(imageProxy, graphicOverlay);
+                        processor.processImageProxy(imageProxy, graphicOverlay);
                     } catch (MlKitException e) {
                         Log.e(TAG, "Failed to process image. Error: " + e.getLocalizedMessage());
-                        Toast.makeText(getApplicationContext(), e.getLocalizedMessage(), Toast.LENGTH_SHORT)
-                                .show();
+                        runOnUiThread(() -> Toast.makeText(
+                                getApplicationContext(), e.getLocalizedMessage(), Toast.LENGTH_SHORT)
+                                .show());
                     }
                 });
 
         cameraProvider.bindToLifecycle(/* lifecycleOwner= */ this, cameraSelector, analysisUseCase);
     }
 
-    JSONObject getAngleJSONObjectForSelectedPose() {
+    /** Returns a processor at the current quality level, or null after telling the user why not. */
+    @Nullable
+    private VisionImageProcessor createImageProcessor() {
         try {
-            String jsonString = loadJSONFromAsset("pose/angles.json");
-            JSONObject jsonObject = new JSONObject(jsonString);
-            JSONArray posesArray = jsonObject.getJSONArray("Angles");
-
-            for (int i = 0; i < posesArray.length(); i++) {
-                JSONObject poseObject = posesArray.getJSONObject(i);
-                Log.d(TAG, "pose = " + poseObject.keys().next());
-                if (selectedPose.equals(poseObject.keys().next()))
-                    return poseObject;
-            }
-        } catch (JSONException e) { throw new RuntimeException(e); }
-
-        Log.d(TAG, "selected pose is NULL");
-        return null;
+            PoseDetectorOptionsBase poseDetectorOptions =
+                    PreferenceUtils.getPoseDetectorOptionsForLivePreview(
+                            this, /* forceFastMode= */ boundQualityLevel.usesFastDetector());
+            boolean visualizeZ = PreferenceUtils.shouldPoseDetectionVisualizeZ(this);
+            boolean rescaleZ = PreferenceUtils.shouldPoseDetectionRescaleZForVisualization(this);
+            boolean runClassification = PreferenceUtils.shouldPoseDetectionRunClassification(this);
+            PoseDetectorProcessor poseDetectorProcessor =
+                    new PoseDetectorProcessor(
+                            this,
+                            poseDetectorOptions,
+                            visualizeZ,
+                            rescaleZ,
+                            runClassification,
+                            /* isStreamMode = */ true,
+                            getAngleTargetsForSelectedPose());
+            poseDetectorProcessor.setQualityGovernor(qualityGovernor);
+            return poseDetectorProcessor;
+        } catch (Exception e) {
+            Log.e(TAG, "Can not create image processor: " + POSE_DETECTION, e);
+            Toast.makeText(
+                            getApplicationContext(),
+                            "Can not create image processor: " + e.getLocalizedMessage(),
+                            Toast.LENGTH_LONG)
+                    .show();
+            return null;
+        }
     }
-    private String loadJSONFromAsset(String file) {
-        String json = null;
-        try {
-            InputStream is = getAssets().open(file);
-            int size = is.available();
-            byte[] buffer = new byte[size];
-            is.read(buffer);
-            is.close();
-            json = new String(buffer, "UTF-8");
-        } catch (IOException ex) {
-            ex.printStackTrace();
-            // fall through
+
+    @Nullable
+    JointAngleTargets getAngleTargetsForSelectedPose() {
+        // Loaded once per process, usually long before the camera starts.
+        PoseCatalog.Entry entry = poseCatalog.findByName(selectedPose);
+        if (entry == null || entry.getAngleTargets() == null) {
+            Log.d(TAG, "No angles for the selected pose " + selectedPose);
+            return null;
         }
-        return json;
+        return entry.getAngleTargets();
     }
 }
\ No newline at end of file
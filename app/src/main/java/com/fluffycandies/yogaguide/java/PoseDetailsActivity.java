@@ -4,9 +4,6 @@ import android.content.Intent;
 import android.os.Bundle;
 
 import androidx.appcompat.app.AppCompatActivity;
-import android.graphics.Picture;
-import android.graphics.drawable.PictureDrawable;
-import com.caverock.androidsvg.SVG;
 
 import android.view.View;
 import android.widget.Button;
@@ -14,14 +11,10 @@ import android.widget.EditText;
 import android.widget.ImageView;
 import android.widget.TextView;
 
-import org.json.JSONException;
-import org.json.JSONObject;
-import org.json.JSONArray;
-import java.io.IOException;
-import java.io.InputStream;
-
-import com.caverock.androidsvg.SVGParseException;
+import com.fluffycandies.yogaguide.PoseIllustrationCache;
 import com.fluffycandies.yogaguide.R;
+import com.fluffycandies.yogaguide.java.posedetector.PoseCatalog;
+import com.fluffycandies.yogaguide.java.posedetector.PosePipelineWarmup;
 
 
 /** Demo app chooser which allows you pick from all available testing Activities. */
@@ -38,6 +31,7 @@ public final class PoseDetailsActivity extends AppCompatActivity implements View
 
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_pose_details);
+        PosePipelineWarmup.warmUp(this);
 
         Button continueButton = findViewById(R.id.continue_button);
         continueButton.setOnClickListener(this);
@@ -55,68 +49,20 @@ public final class PoseDetailsActivity extends AppCompatActivity implements View
         TextView sanskritNameTextView = findViewById(R.id.tvSanskritName);
         ImageView poseImageView = findViewById(R.id.ivPoseImage);
 
-        try {
-            String jsonString = loadJSONFromAsset();
-            JSONObject jsonObject = new JSONObject(jsonString);
-            JSONArray posesArray = jsonObject.getJSONArray("Poses");
-
-            Intent intent = getIntent();
-            selectedPose = intent.getStringExtra(STATE_SELECTED_POSE);
-
-            for (int i = 0; i < posesArray.length(); i++) {
-                JSONObject poseObject = posesArray.getJSONObject(i);
-                String sanskritName = poseObject.getString("sanskrit_name");
-
-                if (sanskritName.equals(selectedPose)) {
-                    String englishName = poseObject.getString("english_name");
-                    String imageUrl = "pose/images/" + englishName + ".svg";
-
-                    // Set data to views
-                    englishNameTextView.setText(englishName);
-                    sanskritNameTextView.setText(sanskritName);
-                    loadSVGFromAssets(imageUrl, poseImageView);
-
-                    break;
-                }
+        Intent intent = getIntent();
+        selectedPose = intent.getStringExtra(STATE_SELECTED_POSE);
+
+        // Usually loaded already, if not the views are filled in once it is.
+        PoseCatalog.getCatalog(this).observe(this, catalog -> {
+            PoseCatalog.Entry entry = catalog.findByName(selectedPose);
+            if (entry != null) {
+                // Set data to views
+                englishNameTextView.setText(entry.getEnglishName());
+                sanskritNameTextView.setText(entry.getSanskritName());
+                // Rendered off the main thread, and only once per size.
+                PoseIllustrationCache.getInstance(this).load(entry.getImagePath(), poseImageView);
             }
-        } catch (JSONException e) {
-            e.printStackTrace();
-        }
-    }
-
-    private String loadJSONFromAsset() {
-        String json = null;
-        try {
-            InputStream is = getAssets().open("pose/Poses.json");
-            int size = is.available();
-            byte[] buffer = new byte[size];
-            is.read(buffer);
-            is.close();
-            json = new String(buffer, "UTF-8");
-        } catch (IOException ex) {
-            ex.printStackTrace();
-            // fall through
-        }
-        return json;
-    }
-
-    private void loadSVGFromAssets(String fileName, ImageView imageView) {
-        try (InputStream inputStream = getAssets().open(fileName)) {
-            // Load the SVG from the InputStream
-            SVG svg = SVG.getFromInputStream(inputStream);
-
-            // Convert SVG to a Picture and wrap it in a PictureDrawable
-            Picture picture = svg.renderToPicture();
-            PictureDrawable drawable = new PictureDrawable(picture);
-
-            // Set the drawable to the ImageView
-            imageView.setLayerType(ImageView.LAYER_TYPE_SOFTWARE, null);
-            imageView.setImageDrawable(drawable);
-            // the following does not work
-//      imageView.setColorFilter(getResources().getColor(android.R.color.black), PorterDuff.Mode.SRC_IN);
-        } catch (IOException | SVGParseException e) {
-            e.printStackTrace();
-        }
+        });
     }
 
     @Override
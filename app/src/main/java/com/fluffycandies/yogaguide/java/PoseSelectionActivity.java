@@ -22,13 +22,9 @@ import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.fluffycandies.yogaguide.R;
+import com.fluffycandies.yogaguide.java.posedetector.PoseCatalog;
+import com.fluffycandies.yogaguide.java.posedetector.PosePipelineWarmup;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-import org.json.JSONException;
-
-import java.io.IOException;
-import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -50,12 +46,8 @@ public class PoseSelectionActivity extends AppCompatActivity
 
         setContentView(R.layout.pose_chooser);
 
-        populatePosesFromJSON();
-
-        // Set up ListView and Adapter
+        // Set up ListView, its adapter is set once the catalog is loaded
         ListView listView = findViewById(R.id.test_activity_list_view);
-        adapter = new MyArrayAdapter(this, android.R.layout.simple_list_item_2, POSES);
-        listView.setAdapter(adapter);
         listView.setOnItemClickListener(this);
 
         // Set up SearchView
@@ -68,11 +60,21 @@ public class PoseSelectionActivity extends AppCompatActivity
 
             @Override
             public boolean onQueryTextChange(String newText) {
-                adapter.getFilter().filter(newText); // Filter as text changes
+                if (adapter != null) {
+                    adapter.getFilter().filter(newText); // Filter as text changes
+                }
                 return true;
             }
         });
 
+        PoseCatalog.getCatalog(this).observe(this, catalog -> {
+            populatePosesFromCatalog(catalog);
+            adapter = new MyArrayAdapter(this, android.R.layout.simple_list_item_2, POSES);
+            listView.setAdapter(adapter);
+            // Keeps a query typed while the catalog was loading.
+            adapter.getFilter().filter(searchView.getQuery());
+        });
+
         // Set up Voice Search Button
         ImageButton voiceSearchButton = findViewById(R.id.voice_search_button);
         voiceSearchButton.setOnClickListener(new View.OnClickListener() {
@@ -109,43 +111,20 @@ public class PoseSelectionActivity extends AppCompatActivity
         }
     }
 
-    private void populatePosesFromJSON() {
-        try {
-            String jsonString = loadJSONFromAsset();
-            JSONObject jsonObject = new JSONObject(jsonString);
-            JSONArray posesArray = jsonObject.getJSONArray("Poses");
-
-            POSES = new Pose[posesArray.length()];
-
-            for (int i = 0; i < posesArray.length(); i++) {
-                JSONObject poseObject = posesArray.getJSONObject(i);
-                String sanskritName = poseObject.getString("sanskrit_name");
-                String englishName = poseObject.getString("english_name");
-                POSES[i] = new Pose(sanskritName, englishName);
-            }
-        } catch (JSONException e) {
-            e.printStackTrace();
-        }
-    }
-
-    private String loadJSONFromAsset() {
-        String json = null;
-        try {
-            InputStream is = getAssets().open("pose/Poses.json");
-            int size = is.available();
-            byte[] buffer = new byte[size];
-            is.read(buffer);
-            is.close();
-            json = new String(buffer, "UTF-8");
-        } catch (IOException ex) {
-            ex.printStackTrace();
+    private void populatePosesFromCatalog(PoseCatalog catalog) {
+        List<PoseCatalog.Entry> entries = catalog.getEntries();
+        POSES = new Pose[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            PoseCatalog.Entry entry = entries.get(i);
+            POSES[i] = new Pose(entry.getSanskritName(), entry.getEnglishName());
         }
-        return json;
     }
 
     @Override
     public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
         Pose clickedPose = adapter.getItem(position);
+        // Start loading the classifier and detector while the user reads the pose details.
+        PosePipelineWarmup.warmUp(this);
         Intent intent = new Intent(this, PoseDetailsActivity.class);
         intent.putExtra("selected_pose", clickedPose.getSanskritName());
         startActivity(intent);
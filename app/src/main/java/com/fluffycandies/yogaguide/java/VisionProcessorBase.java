@@ -16,9 +16,6 @@
 
 package com.fluffycandies.yogaguide.java;
 
-import static java.lang.Math.max;
-import static java.lang.Math.min;
-
 import android.app.ActivityManager;
 import android.app.ActivityManager.MemoryInfo;
 import android.content.Context;
@@ -45,48 +42,94 @@ import com.fluffycandies.yogaguide.CameraImageGraphic;
 import com.fluffycandies.yogaguide.FrameMetadata;
 import com.fluffycandies.yogaguide.GraphicOverlay;
 import com.fluffycandies.yogaguide.InferenceInfoGraphic;
+import com.fluffycandies.yogaguide.PerfReports;
 import com.fluffycandies.yogaguide.ScopedExecutor;
+import com.fluffycandies.yogaguide.SessionSampler;
 import com.fluffycandies.yogaguide.TemperatureMonitor;
 import com.fluffycandies.yogaguide.VisionImageProcessor;
+import com.fluffycandies.yogaguide.perf.LatencyHistogram;
+import com.fluffycandies.yogaguide.perf.LatencyReport;
+import com.fluffycandies.yogaguide.perf.PipelineLatencies;
+import com.fluffycandies.yogaguide.perf.PipelineLatencies.Stage;
+import com.fluffycandies.yogaguide.perf.QualityGovernor;
+import com.fluffycandies.yogaguide.perf.StageMonitor;
 import com.fluffycandies.yogaguide.preference.PreferenceUtils;
+import com.google.common.util.concurrent.MoreExecutors;
 import java.nio.ByteBuffer;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Abstract base class for vision frame processors. Subclasses need to implement {@link
  * #onSuccess(Object, GraphicOverlay)} to define what they want to with the detection results and
  * {@link #detectInImage(InputImage)} to specify the detector object.
  *
+ * <p>A frame goes through three stages: detection, {@link #postProcess} on {@link
+ * #getPostProcessingExecutor} and drawing on the main thread. By default a live preview frame is
+ * only started once the previous one was drawn. In pipelined mode it is started as soon as the
+ * detector is done with the previous one, so consecutive frames overlap across the stages, up to
+ * one frame per stage. Camera frames arriving meanwhile are dropped rather than queued. Results are
+ * still drawn in frame order.
+ *
  * @param <T> The type of the detected feature.
  */
 public abstract class VisionProcessorBase<T> implements VisionImageProcessor {
 
   protected static final String MANUAL_TESTING_LOG = "LogTagForTest";
   private static final String TAG = "VisionProcessorBase";
+  // One frame per stage: detecting, post-processing and drawing.
+  private static final int PIPELINED_MAX_FRAMES_IN_FLIGHT = 3;
 
+  private final Context appContext;
   private final ActivityManager activityManager;
   private final Timer fpsTimer = new Timer();
   private final ScopedExecutor executor;
   private final TemperatureMonitor temperatureMonitor;
+  // Samples the session once per second on the fps timer, exported to PerfReports when stopped.
+  private final SessionSampler sessionSampler;
+  // Fed the latest sample on the fps timer, decides on the preview bitmap.
+  @Nullable private volatile QualityGovernor qualityGovernor;
 
   // Whether this processor is already shut down
   private boolean isShutdown;
 
-  // Used to calculate latency, running in the same thread, no sync needed.
-  private int numRuns = 0;
-  private long totalFrameMs = 0;
-  private long maxFrameMs = 0;
-  private long minFrameMs = Long.MAX_VALUE;
-  private long totalDetectorMs = 0;
-  private long maxDetectorMs = 0;
-  private long minDetectorMs = Long.MAX_VALUE;
+  // Latency histograms of the whole session, exported to PerfReports when stopped.
+  private final PipelineLatencies latencies = new PipelineLatencies();
 
   // Frame count that have been processed so far in an one second interval to calculate FPS.
   private int frameProcessedInOneSecondInterval = 0;
   private int framesPerSecond = 0;
 
+  // Live preview frames that have been started but whose results are not drawn yet. CameraX frames
+  // arriving while maxFramesInFlight are in flight are dropped. In pipelined mode the limit allows
+  // one frame per stage instead of the preference, and also holds back Camera1 frames. A Camera1
+  // frame replaced by a newer one before it was started counts as dropped too.
+  private final int maxFramesInFlight;
+  private final AtomicInteger framesInFlight = new AtomicInteger();
+  private final AtomicLong queuedFrameCount = new AtomicLong();
+  private final AtomicLong processedFrameCount = new AtomicLong();
+  private final AtomicLong droppedFrameCount = new AtomicLong();
+
+  // Whether the next live preview frame starts once the detector is done with the previous one,
+  // instead of once the previous one was drawn.
+  private final boolean isPipelined;
+  private final StageMonitor detectionStage = new StageMonitor("detection");
+  private final StageMonitor postProcessingStage = new StageMonitor("post-processing");
+  private final StageMonitor drawingStage = new StageMonitor("drawing");
+  private final AtomicLong nextFrameSequence = new AtomicLong();
+  // Only touched on the main thread.
+  private long lastDrawnFrameSequence = -1;
+  private long outOfOrderFrameCount = 0;
+  // Frame bitmap the overlay draws, given back to BitmapUtils once the overlay moves on. Only
+  // touched on the main thread.
+  @Nullable private Bitmap displayedFrameBitmap;
+
   // To keep the latest images and its metadata.
   @GuardedBy("this")
   private ByteBuffer latestImage;
@@ -101,19 +144,35 @@ public abstract class VisionProcessorBase<T> implements VisionImageProcessor {
   private FrameMetadata processingMetaData;
 
   protected VisionProcessorBase(Context context) {
+    appContext = context.getApplicationContext();
     activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
     executor = new ScopedExecutor(TaskExecutors.MAIN_THREAD);
+    isPipelined = PreferenceUtils.isPipelinedProcessingEnabled(context);
+    maxFramesInFlight =
+        isPipelined
+            ? PIPELINED_MAX_FRAMES_IN_FLIGHT
+            : PreferenceUtils.getCameraXMaxFramesInFlight(context);
+    temperatureMonitor = new TemperatureMonitor(context);
+    sessionSampler = new SessionSampler(context, temperatureMonitor, latencies);
     fpsTimer.schedule(
         new TimerTask() {
           @Override
           public void run() {
             framesPerSecond = frameProcessedInOneSecondInterval;
             frameProcessedInOneSecondInterval = 0;
+            sessionSampler.sample(framesPerSecond, droppedFrameCount.get());
+            QualityGovernor governor = qualityGovernor;
+            if (governor != null) {
+              governor.update(
+                  SystemClock.elapsedRealtime(),
+                  sessionSampler.getLastFrameP95Ms(),
+                  sessionSampler.getLastThermalStatus(),
+                  sessionSampler.getLastTemperatureCelsius());
+            }
           }
         },
         /* delay= */ 0,
         /* period= */ 1000);
-    temperatureMonitor = new TemperatureMonitor(context);
   }
 
   // -----------------Code for processing single still image----------------------------------------
@@ -128,7 +187,8 @@ public abstract class VisionProcessorBase<T> implements VisionImageProcessor {
           graphicOverlay,
           /* originalCameraImage= */ null,
           /* shouldShowFps= */ false,
-          frameStartMs);
+          frameStartMs,
+          /* onDetected= */ null);
       mlImage.close();
 
       return;
@@ -139,13 +199,18 @@ public abstract class VisionProcessorBase<T> implements VisionImageProcessor {
         graphicOverlay,
         /* originalCameraImage= */ null,
         /* shouldShowFps= */ false,
-        frameStartMs);
+        frameStartMs,
+        /* onDetected= */ null);
   }
 
   // -----------------Code for processing live preview frame from Camera1 API-----------------------
   @Override
   public synchronized void processByteBuffer(
       ByteBuffer data, final FrameMetadata frameMetadata, final GraphicOverlay graphicOverlay) {
+    if (latestImage != null) {
+      // Never started, the newer frame is the one worth detecting.
+      droppedFrameCount.incrementAndGet();
+    }
     latestImage = data;
     latestImageMetaData = frameMetadata;
     if (processingImage == null && processingMetaData == null) {
@@ -154,25 +219,56 @@ public abstract class VisionProcessorBase<T> implements VisionImageProcessor {
   }
 
   private synchronized void processLatestImage(final GraphicOverlay graphicOverlay) {
+    if (isPipelined && framesInFlight.get() >= maxFramesInFlight) {
+      // Started again once a frame in flight was drawn, see processImage. Until then newer frames
+      // replace the latest one instead of queueing up behind the frames in flight.
+      processingImage = null;
+      processingMetaData = null;
+      return;
+    }
     processingImage = latestImage;
     processingMetaData = latestImageMetaData;
     latestImage = null;
     latestImageMetaData = null;
     if (processingImage != null && processingMetaData != null && !isShutdown) {
+      framesInFlight.incrementAndGet();
+      queuedFrameCount.incrementAndGet();
       processImage(processingImage, processingMetaData, graphicOverlay);
     }
   }
 
+  /** Starts the latest Camera1 frame unless one is being detected already. */
+  private synchronized void processLatestImageIfIdle(final GraphicOverlay graphicOverlay) {
+    if (processingImage == null && processingMetaData == null) {
+      processLatestImage(graphicOverlay);
+    }
+  }
+
+  /** Called on the main thread once a Camera1 frame was drawn or failed. */
+  private void onCamera1FrameDone(final GraphicOverlay graphicOverlay) {
+    framesInFlight.decrementAndGet();
+    if (isPipelined) {
+      // The latest frame may have been held back by the in-flight limit.
+      processLatestImageIfIdle(graphicOverlay);
+    }
+  }
+
   private void processImage(
       ByteBuffer data, final FrameMetadata frameMetadata, final GraphicOverlay graphicOverlay) {
     long frameStartMs = SystemClock.elapsedRealtime();
+    // In pipelined mode the next frame is started as soon as the detector is done with this one,
+    // unless maxFramesInFlight are in flight.
+    Runnable onDetected =
+        isPipelined ? () -> executor.execute(() -> processLatestImage(graphicOverlay)) : null;
 
     // If live viewport is on (that is the underneath surface view takes care of the camera preview
     // drawing), skip the unnecessary bitmap creation that used for the manual preview drawing.
-    Bitmap bitmap =
-        PreferenceUtils.isCameraLiveViewportEnabled(graphicOverlay.getContext())
-            ? null
-            : BitmapUtils.getBitmap(data, frameMetadata);
+    Bitmap bitmap = null;
+    if (shouldDrawPreviewBitmap(graphicOverlay.getContext())) {
+      long conversionStartNanos = System.nanoTime();
+      bitmap = BitmapUtils.getBitmap(data, frameMetadata);
+      latencies.record(Stage.CONVERSION, System.nanoTime() - conversionStartNanos);
+    }
 
     if (isMlImageEnabled(graphicOverlay.getContext())) {
       MlImage mlImage =
@@ -184,15 +280,22 @@ public abstract class VisionProcessorBase<T> implements VisionImageProcessor {
               .setRotation(frameMetadata.getRotation())
               .build();
 
-      requestDetectInImage(mlImage, graphicOverlay, bitmap, /* shouldShowFps= */ true, frameStartMs)
-          .addOnSuccessListener(executor, results -> processLatestImage(graphicOverlay));
+      Task<T> task =
+          requestDetectInImage(
+              mlImage, graphicOverlay, bitmap, /* shouldShowFps= */ true, frameStartMs, onDetected);
+      if (!isPipelined) {
+        task.addOnSuccessListener(executor, results -> processLatestImage(graphicOverlay));
+      }
+      // Runs after the result was drawn on the same executor.
+      task.addOnCompleteListener(executor, results -> onCamera1FrameDone(graphicOverlay));
 
       // This is optional. Java Garbage collection can also close it eventually.
       mlImage.close();
       return;
     }
 
-    requestDetectInImage(
+    Task<T> task =
+        requestDetectInImage(
             InputImage.fromByteBuffer(
                 data,
                 frameMetadata.getWidth(),
@@ -202,11 +305,21 @@ public abstract class VisionProcessorBase<T> implements VisionImageProcessor {
             graphicOverlay,
             bitmap,
             /* shouldShowFps= */ true,
-            frameStartMs)
-        .addOnSuccessListener(executor, results -> processLatestImage(graphicOverlay));
+            frameStartMs,
+            onDetected);
+    if (!isPipelined) {
+      task.addOnSuccessListener(executor, results -> processLatestImage(graphicOverlay));
+    }
+    // Runs after the result was drawn on the same executor.
+    task.addOnCompleteListener(executor, results -> onCamera1FrameDone(graphicOverlay));
   }
 
   // -----------------Code for processing live preview frame from CameraX API-----------------------
+  /**
+   * Processes a CameraX frame, or drops it if {@code maxFramesInFlight} earlier frames are still
+   * being detected or drawn, so a stale frame never queues up behind them. Meant to be called from
+   * a single analysis thread.
+   */
   @Override
   @ExperimentalGetImage
   public void processImageProxy(ImageProxy image, GraphicOverlay graphicOverlay) {
@@ -215,10 +328,22 @@ public abstract class VisionProcessorBase<T> implements VisionImageProcessor {
       image.close();
       return;
     }
+    if (framesInFlight.get() >= maxFramesInFlight) {
+      droppedFrameCount.incrementAndGet();
+      image.close();
+      return;
+    }
+    framesInFlight.incrementAndGet();
+    queuedFrameCount.incrementAndGet();
+    // In pipelined mode the image is closed as soon as the detector is done with it, which lets
+    // CameraX hand over the next frame while this one is post-processed and drawn.
+    Runnable onDetected = isPipelined ? image::close : null;
 
     Bitmap bitmap = null;
-    if (!PreferenceUtils.isCameraLiveViewportEnabled(graphicOverlay.getContext())) {
+    if (shouldDrawPreviewBitmap(graphicOverlay.getContext())) {
+      long conversionStartNanos = System.nanoTime();
       bitmap = BitmapUtils.getBitmap(image);
+      latencies.record(Stage.CONVERSION, System.nanoTime() - conversionStartNanos);
     }
 
     if (isMlImageEnabled(graphicOverlay.getContext())) {
@@ -227,42 +352,72 @@ public abstract class VisionProcessorBase<T> implements VisionImageProcessor {
               .setRotation(image.getImageInfo().getRotationDegrees())
               .build();
 
-      requestDetectInImage(
+      Task<T> task =
+          requestDetectInImage(
               mlImage,
               graphicOverlay,
               /* originalCameraImage= */ bitmap,
               /* shouldShowFps= */ true,
-              frameStartMs)
-          // When the image is from CameraX analysis use case, must call image.close() on received
-          // images when finished using them. Otherwise, new images may not be received or the
-          // camera may stall.
-          // Currently MlImage doesn't support ImageProxy directly, so we still need to call
-          // ImageProxy.close() here.
-          .addOnCompleteListener(results -> image.close());
+              frameStartMs,
+              onDetected);
+      if (!isPipelined) {
+        // When the image is from CameraX analysis use case, must call image.close() on received
+        // images when finished using them. Otherwise, new images may not be received or the
+        // camera may stall.
+        // Currently MlImage doesn't support ImageProxy directly, so we still need to call
+        // ImageProxy.close() here.
+        task.addOnCompleteListener(results -> image.close());
+      }
+      // Runs after the result was drawn on the same executor.
+      task.addOnCompleteListener(executor, results -> framesInFlight.decrementAndGet());
       return;
     }
 
-    requestDetectInImage(
+    Task<T> task =
+        requestDetectInImage(
             InputImage.fromMediaImage(Objects.requireNonNull(image.getImage()), image.getImageInfo().getRotationDegrees()),
             graphicOverlay,
             /* originalCameraImage= */ bitmap,
             /* shouldShowFps= */ true,
-            frameStartMs)
-        // When the image is from CameraX analysis use case, must call image.close() on received
-        // images when finished using them. Otherwise, new images may not be received or the camera
-        // may stall.
-        .addOnCompleteListener(results -> image.close());
+            frameStartMs,
+            onDetected);
+    if (!isPipelined) {
+      // When the image is from CameraX analysis use case, must call image.close() on received
+      // images when finished using them. Otherwise, new images may not be received or the camera
+      // may stall.
+      task.addOnCompleteListener(results -> image.close());
+    }
+    // Runs after the result was drawn on the same executor.
+    task.addOnCompleteListener(executor, results -> framesInFlight.decrementAndGet());
   }
 
   // -----------------Common processing logic-------------------------------------------------------
+  /**
+   * Returns whether to convert live preview frames to bitmaps and draw them, rather than leave the
+   * preview to the camera's own surface.
+   */
+  private boolean shouldDrawPreviewBitmap(Context context) {
+    QualityGovernor governor = qualityGovernor;
+    return !PreferenceUtils.isCameraLiveViewportEnabled(context)
+        && (governor == null || !governor.getLevel().skipsPreviewBitmap());
+  }
+
   private Task<T> requestDetectInImage(
       final InputImage image,
       final GraphicOverlay graphicOverlay,
       @Nullable final Bitmap originalCameraImage,
       boolean shouldShowFps,
-      long frameStartMs) {
+      long frameStartMs,
+      @Nullable Runnable onDetected) {
+    FrameTrace frame = new FrameTrace(nextFrameSequence.getAndIncrement(), detectionStage);
     return setUpListener(
-        detectInImage(image), graphicOverlay, originalCameraImage, shouldShowFps, frameStartMs);
+        detectInImage(image),
+        frame,
+        graphicOverlay,
+        originalCameraImage,
+        shouldShowFps,
+        frameStartMs,
+        onDetected);
   }
 
   private Task<T> requestDetectInImage(
@@ -270,56 +425,89 @@ public abstract class VisionProcessorBase<T> implements VisionImageProcessor {
       final GraphicOverlay graphicOverlay,
       @Nullable final Bitmap originalCameraImage,
       boolean shouldShowFps,
-      long frameStartMs) {
+      long frameStartMs,
+      @Nullable Runnable onDetected) {
+    FrameTrace frame = new FrameTrace(nextFrameSequence.getAndIncrement(), detectionStage);
     return setUpListener(
-        detectInImage(image), graphicOverlay, originalCameraImage, shouldShowFps, frameStartMs);
+        detectInImage(image),
+        frame,
+        graphicOverlay,
+        originalCameraImage,
+        shouldShowFps,
+        frameStartMs,
+        onDetected);
   }
 
+  /**
+   * Chains post-processing and drawing onto the detection task of a frame.
+   *
+   * @param onDetected run as soon as the detector is done with the frame, successfully or not.
+   */
   private Task<T> setUpListener(
-      Task<T> task,
+      Task<T> detection,
+      FrameTrace frame,
       final GraphicOverlay graphicOverlay,
       @Nullable final Bitmap originalCameraImage,
       boolean shouldShowFps,
-      long frameStartMs) {
+      long frameStartMs,
+      @Nullable Runnable onDetected) {
     final long detectorStartMs = SystemClock.elapsedRealtime();
-    return task.addOnSuccessListener(
+    Executor directExecutor = MoreExecutors.directExecutor();
+    return detection
+        .continueWithTask(
+            directExecutor,
+            task -> {
+              latencies.record(Stage.DETECTION, frame.advance(postProcessingStage));
+              if (onDetected != null) {
+                onDetected.run();
+              }
+              return task;
+            })
+        .continueWith(getPostProcessingExecutor(), task -> postProcess(task.getResult()))
+        .continueWithTask(
+            directExecutor,
+            task -> {
+              frame.advance(drawingStage);
+              return task;
+            })
+        .addOnSuccessListener(
             executor,
             results -> {
+              if (frame.sequence < lastDrawnFrameSequence) {
+                // A later frame was drawn already, don't go back in time.
+                outOfOrderFrameCount++;
+                releaseFrameBitmap(originalCameraImage);
+                return;
+              }
+              lastDrawnFrameSequence = frame.sequence;
               long endMs = SystemClock.elapsedRealtime();
               long currentFrameLatencyMs = endMs - frameStartMs;
               long currentDetectorLatencyMs = endMs - detectorStartMs;
-              if (numRuns >= 500) {
-                resetLatencyStats();
-              }
-              numRuns++;
+              latencies.record(
+                  Stage.FRAME, TimeUnit.MILLISECONDS.toNanos(currentFrameLatencyMs));
               frameProcessedInOneSecondInterval++;
-              totalFrameMs += currentFrameLatencyMs;
-              maxFrameMs = max(currentFrameLatencyMs, maxFrameMs);
-              minFrameMs = min(currentFrameLatencyMs, minFrameMs);
-              totalDetectorMs += currentDetectorLatencyMs;
-              maxDetectorMs = max(currentDetectorLatencyMs, maxDetectorMs);
-              minDetectorMs = min(currentDetectorLatencyMs, minDetectorMs);
+              processedFrameCount.incrementAndGet();
 
               // Only log inference info once per second. When frameProcessedInOneSecondInterval is
               // equal to 1, it means this is the first frame processed during the current second.
               if (frameProcessedInOneSecondInterval == 1) {
-                Log.d(TAG, "Num of Runs: " + numRuns);
+                for (Map.Entry<String, LatencyHistogram.Snapshot> entry :
+                    latencies.snapshot().entrySet()) {
+                  Log.d(TAG, LatencyReport.summarize(entry.getKey(), entry.getValue()));
+                }
                 Log.d(
                     TAG,
-                    "Frame latency: max="
-                        + maxFrameMs
-                        + ", min="
-                        + minFrameMs
-                        + ", avg="
-                        + totalFrameMs / numRuns);
-                Log.d(
-                    TAG,
-                    "Detector latency: max="
-                        + maxDetectorMs
-                        + ", min="
-                        + minDetectorMs
-                        + ", avg="
-                        + totalDetectorMs / numRuns);
+                    "Frames: queued="
+                        + queuedFrameCount.get()
+                        + ", processed="
+                        + processedFrameCount.get()
+                        + ", dropped="
+                        + droppedFrameCount.get()
+                        + ", out of order="
+                        + outOfOrderFrameCount);
+                Log.d(TAG, detectionStage.drainSummary());
+                Log.d(TAG, postProcessingStage.drainSummary());
+                Log.d(TAG, drawingStage.drainSummary());
                 MemoryInfo mi = new MemoryInfo();
                 activityManager.getMemoryInfo(mi);
                 long availableMegs = mi.availMem / 0x100000L;
@@ -328,6 +516,8 @@ public abstract class VisionProcessorBase<T> implements VisionImageProcessor {
               }
 
               graphicOverlay.clear();
+              releaseFrameBitmap(displayedFrameBitmap);
+              displayedFrameBitmap = originalCameraImage;
               if (originalCameraImage != null) {
                 graphicOverlay.add(new CameraImageGraphic(graphicOverlay, originalCameraImage));
               }
@@ -346,6 +536,9 @@ public abstract class VisionProcessorBase<T> implements VisionImageProcessor {
             executor,
             e -> {
               graphicOverlay.clear();
+              releaseFrameBitmap(displayedFrameBitmap);
+              displayedFrameBitmap = null;
+              releaseFrameBitmap(originalCameraImage);
               graphicOverlay.postInvalidate();
               String error = "Failed to process. Error: " + e.getLocalizedMessage();
               Toast.makeText(
@@ -356,30 +549,89 @@ public abstract class VisionProcessorBase<T> implements VisionImageProcessor {
               Log.d(TAG, error);
               e.printStackTrace();
               VisionProcessorBase.this.onFailure(e);
-            });
+            })
+        // Runs after the success or failure listener on the same executor.
+        .addOnCompleteListener(
+            executor, task -> latencies.record(Stage.DRAW, frame.advance(null)));
+  }
+
+  /**
+   * Gives a live preview frame bitmap back to {@link BitmapUtils} once the overlay no longer draws
+   * it. Frames only carry a bitmap made by {@link BitmapUtils#getBitmap}, still images have none.
+   */
+  private static void releaseFrameBitmap(@Nullable Bitmap frameBitmap) {
+    if (frameBitmap != null) {
+      BitmapUtils.releaseFrameBitmap(frameBitmap);
+    }
   }
 
   @Override
   public void stop() {
     executor.shutdown();
-    isShutdown = true;
-    resetLatencyStats();
     fpsTimer.cancel();
+    if (!isShutdown && latencies.getHistogram(Stage.FRAME).snapshot().getCount() > 0) {
+      PerfReports.exportLatencies(appContext, latencies.snapshot());
+      PerfReports.exportSession(appContext, sessionSampler.getRecorder());
+    }
+    isShutdown = true;
     temperatureMonitor.stop();
   }
 
-  private void resetLatencyStats() {
-    numRuns = 0;
-    totalFrameMs = 0;
-    maxFrameMs = 0;
-    minFrameMs = Long.MAX_VALUE;
-    totalDetectorMs = 0;
-    maxDetectorMs = 0;
-    minDetectorMs = Long.MAX_VALUE;
+  /**
+   * Returns the latency histograms of this processor's session, for subclasses and their helpers
+   * to record their own stages into.
+   */
+  public PipelineLatencies getPipelineLatencies() {
+    return latencies;
+  }
+
+  /**
+   * Sets the governor to feed a sample of this processor's session once per second, and whose
+   * level decides whether the preview is drawn from bitmaps. The governor may outlive this
+   * processor, e.g. to carry on when the camera is rebound.
+   */
+  public void setQualityGovernor(@Nullable QualityGovernor qualityGovernor) {
+    this.qualityGovernor = qualityGovernor;
+  }
+
+  @Nullable
+  protected QualityGovernor getQualityGovernor() {
+    return qualityGovernor;
+  }
+
+  /** Returns the number of live preview frames accepted for processing so far. */
+  public long getQueuedFrameCount() {
+    return queuedFrameCount.get();
+  }
+
+  /** Returns the number of frames whose results have been drawn so far. */
+  public long getProcessedFrameCount() {
+    return processedFrameCount.get();
+  }
+
+  /**
+   * Returns the number of live preview frames dropped because too many were in flight, or for a
+   * newer Camera1 frame.
+   */
+  public long getDroppedFrameCount() {
+    return droppedFrameCount.get();
   }
 
   protected abstract Task<T> detectInImage(InputImage image);
 
+  /**
+   * Second stage of a frame, run on {@link #getPostProcessingExecutor} with the result of {@link
+   * #detectInImage}. Returns the detection result as is by default.
+   */
+  protected T postProcess(T detectionResult) {
+    return detectionResult;
+  }
+
+  /** Returns the executor {@link #postProcess} runs on. */
+  protected Executor getPostProcessingExecutor() {
+    return MoreExecutors.directExecutor();
+  }
+
   protected Task<T> detectInImage(MlImage image) {
     return Tasks.forException(
         new MlKitException(
@@ -394,4 +646,33 @@ public abstract class VisionProcessorBase<T> implements VisionImageProcessor {
   protected boolean isMlImageEnabled(Context context) {
     return false;
   }
+
+  /** The pipeline stage a frame is in, and since when. */
+  private static final class FrameTrace {
+    final long sequence;
+    @Nullable private StageMonitor stage;
+    private long stageEnteredNanos;
+
+    FrameTrace(long sequence, StageMonitor firstStage) {
+      this.sequence = sequence;
+      stage = firstStage;
+      stageEnteredNanos = firstStage.enter();
+    }
+
+    /**
+     * Moves the frame on to {@code nextStage}, or out of the pipeline if null, and returns how
+     * long it spent in the stage it left.
+     */
+    long advance(@Nullable StageMonitor nextStage) {
+      long latencyNanos = 0;
+      if (stage != null) {
+        latencyNanos = stage.exit(stageEnteredNanos);
+      }
+      stage = nextStage;
+      if (nextStage != null) {
+        stageEnteredNanos = nextStage.enter();
+      }
+      return latencyNanos;
+    }
+  }
 }
@@ -0,0 +1,39 @@
+package com.fluffycandies.yogaguide.java.posedetector;
+
+import com.fluffycandies.yogaguide.catalog.PoseAssetReader;
+
+/**
+ * Ideal joint angles of a pose, in degrees, resolved once from angles.json by {@link PoseCatalog},
+ * so that scoring a frame doesn't touch any JSON.
+ *
+ * <p>Immutable, shared by every frame of a {@link PoseDetectorProcessor}.
+ */
+public final class JointAngleTargets {
+  // Joint indices, in the order of PoseAssetReader.JOINT_KEYS.
+  public static final int LEFT_SHOULDER = 0;
+  public static final int RIGHT_SHOULDER = 1;
+  public static final int LEFT_ELBOW = 2;
+  public static final int RIGHT_ELBOW = 3;
+  public static final int LEFT_HIP = 4;
+  public static final int RIGHT_HIP = 5;
+  public static final int LEFT_KNEE = 6;
+  public static final int RIGHT_KNEE = 7;
+  public static final int NUM_JOINTS = 8;
+
+  private final String poseName;
+  private final float[] angles;
+
+  JointAngleTargets(PoseAssetReader.AngleRecord record) {
+    poseName = record.getPoseName();
+    angles = record.getAngles().clone();
+  }
+
+  public String getPoseName() {
+    return poseName;
+  }
+
+  /** Returns the ideal angle of {@code joint}, one of the joint constants. */
+  public float getAngle(int joint) {
+    return angles[joint];
+  }
+}
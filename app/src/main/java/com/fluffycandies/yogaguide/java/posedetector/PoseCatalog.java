@@ -0,0 +1,186 @@
+package com.fluffycandies.yogaguide.java.posedetector;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import com.fluffycandies.yogaguide.catalog.PoseAssetReader;
+import com.fluffycandies.yogaguide.catalog.PoseAssetReader.AngleRecord;
+import com.fluffycandies.yogaguide.catalog.PoseAssetReader.PoseRecord;
+import com.fluffycandies.yogaguide.java.posedetector.classification.ClassVocabulary;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The poses of Poses.json joined by Sanskrit name with their ideal angles from angles.json.
+ *
+ * <p>Both files are parsed once per process, on a background thread started by {@link #preload},
+ * and every screen observes {@link #getCatalog} and looks its poses up there instead of reading the
+ * assets again. They are streamed straight from the assets by {@link PoseAssetReader}.
+ */
+public final class PoseCatalog {
+  private static final String TAG = "PoseCatalog";
+  private static final String POSES_FILE = "pose/Poses.json";
+  private static final String ANGLES_FILE = "pose/angles.json";
+  private static final String IMAGES_DIR = "pose/images/";
+
+  private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+  private static final MutableLiveData<PoseCatalog> catalogLiveData = new MutableLiveData<>();
+  // Set while loading and once loaded, cleared after a failure so the next call tries again.
+  private static boolean isLoadStarted;
+
+  /** A pose of the catalog. Immutable. */
+  public static final class Entry {
+    private final int id;
+    private final String sanskritName;
+    private final String englishName;
+    @Nullable private final JointAngleTargets angleTargets;
+
+    private Entry(
+        int id, String sanskritName, String englishName, @Nullable JointAngleTargets angleTargets) {
+      this.id = id;
+      this.sanskritName = sanskritName;
+      this.englishName = englishName;
+      this.angleTargets = angleTargets;
+    }
+
+    /** Returns the id of the pose in Poses.json. */
+    public int getId() {
+      return id;
+    }
+
+    public String getSanskritName() {
+      return sanskritName;
+    }
+
+    public String getEnglishName() {
+      return englishName;
+    }
+
+    /** Returns the asset path of the illustration of the pose. */
+    public String getImagePath() {
+      return IMAGES_DIR + englishName + ".svg";
+    }
+
+    /** Returns the ideal joint angles of the pose, or null if angles.json has none. */
+    @Nullable
+    public JointAngleTargets getAngleTargets() {
+      return angleTargets;
+    }
+
+    /**
+     * Returns the id of the pose's class in the classifier's {@code vocabulary}, as in its results
+     * and {@link PoseFeedback#getMatchedClassId}, or -1 if there are no samples of the pose.
+     */
+    public int getClassId(ClassVocabulary vocabulary) {
+      return vocabulary.getId(sanskritName);
+    }
+  }
+
+  private final List<Entry> entries;
+  private final Map<String, Entry> entriesByName;
+  private final Map<Integer, Entry> entriesById;
+
+  private PoseCatalog(List<Entry> entries) {
+    this.entries = Collections.unmodifiableList(entries);
+    entriesByName = new HashMap<>();
+    entriesById = new HashMap<>();
+    for (Entry entry : entries) {
+      // Poses.json lists some names twice, the first one is the one shown.
+      if (!entriesByName.containsKey(entry.sanskritName)) {
+        entriesByName.put(entry.sanskritName, entry);
+      }
+      entriesById.put(entry.id, entry);
+    }
+  }
+
+  /** Starts loading the catalog in the background. Safe to call repeatedly. */
+  public static synchronized void preload(Context context) {
+    if (isLoadStarted) {
+      return;
+    }
+    isLoadStarted = true;
+    Context appContext = context.getApplicationContext();
+    executor.execute(
+        () -> {
+          PoseCatalog catalog;
+          try {
+            catalog = load(appContext);
+          } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Failed to load the pose catalog", e);
+            synchronized (PoseCatalog.class) {
+              isLoadStarted = false;
+            }
+            catalog = new PoseCatalog(new ArrayList<>());
+          }
+          catalogLiveData.postValue(catalog);
+        });
+  }
+
+  /**
+   * Returns the catalog, set on the main thread once {@link #preload} finished, so screens never
+   * wait for the assets. It is empty if they can't be read, and the next call tries again.
+   */
+  public static LiveData<PoseCatalog> getCatalog(Context context) {
+    preload(context);
+    return catalogLiveData;
+  }
+
+  /** Returns the poses in the order of Poses.json. */
+  public List<Entry> getEntries() {
+    return entries;
+  }
+
+  @Nullable
+  public Entry findByName(String sanskritName) {
+    return entriesByName.get(sanskritName);
+  }
+
+  @Nullable
+  public Entry findById(int id) {
+    return entriesById.get(id);
+  }
+
+  private static PoseCatalog load(Context context) throws IOException {
+    Map<String, JointAngleTargets> anglesByName = new HashMap<>();
+    try (Reader reader = openAsset(context, ANGLES_FILE)) {
+      for (AngleRecord record : PoseAssetReader.readAngles(reader)) {
+        // angles.json lists most poses twice, the first entry is the one used.
+        if (!anglesByName.containsKey(record.getPoseName())) {
+          anglesByName.put(record.getPoseName(), new JointAngleTargets(record));
+        }
+      }
+    }
+
+    List<Entry> entries = new ArrayList<>();
+    try (Reader reader = openAsset(context, POSES_FILE)) {
+      for (PoseRecord record : PoseAssetReader.readPoses(reader)) {
+        String sanskritName = record.getSanskritName();
+        entries.add(
+            new Entry(
+                record.getId(),
+                sanskritName,
+                record.getEnglishName(),
+                anglesByName.get(sanskritName)));
+      }
+    }
+    Log.d(TAG, "Loaded " + entries.size() + " poses, " + anglesByName.size() + " with angles");
+    return new PoseCatalog(entries);
+  }
+
+  private static Reader openAsset(Context context, String file) throws IOException {
+    return new InputStreamReader(context.getAssets().open(file), StandardCharsets.UTF_8);
+  }
+}
@@ -17,50 +17,90 @@
 package com.fluffycandies.yogaguide.java.posedetector;
 
 import android.content.Context;
+import android.os.SystemClock;
 import android.util.Log;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import com.google.android.gms.tasks.Task;
 import com.google.android.odml.image.MlImage;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.mlkit.vision.common.InputImage;
 import com.fluffycandies.yogaguide.GraphicOverlay;
 import com.fluffycandies.yogaguide.java.VisionProcessorBase;
+import com.fluffycandies.yogaguide.java.posedetector.classification.ClassificationCache;
+import com.fluffycandies.yogaguide.java.posedetector.classification.ClassificationScheduler;
 import com.fluffycandies.yogaguide.java.posedetector.classification.PoseClassifierProcessor;
+import com.fluffycandies.yogaguide.java.posedetector.classification.PoseLandmarkIndex;
+import com.fluffycandies.yogaguide.perf.QualityGovernor;
+import com.fluffycandies.yogaguide.preference.PreferenceUtils;
 import com.google.mlkit.vision.pose.Pose;
 import com.google.mlkit.vision.pose.PoseDetection;
 import com.google.mlkit.vision.pose.PoseDetector;
 import com.google.mlkit.vision.pose.PoseDetectorOptionsBase;
 
-import org.json.JSONObject;
-
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 /** A processor to run pose detector. */
 public class PoseDetectorProcessor
     extends VisionProcessorBase<PoseDetectorProcessor.PoseWithClassification> {
   private static final String TAG = "PoseDetectorProcessor";
 
-  private final PoseDetector detector;
+  // Guards detector and lastDetection, which setDetectorOptions replaces while frames arrive.
+  private final Object detectorLock = new Object();
+  private PoseDetector detector;
+  @Nullable private Task<Pose> lastDetection;
 
   private final boolean visualizeZ;
   private final boolean rescaleZForVisualization;
   private final boolean runClassification;
   private final boolean isStreamMode;
   private final Context context;
-  private final Executor classificationExecutor;
-  private final JSONObject selectedPose;
+  private final ExecutorService classificationExecutor;
+  // Runs postProcess on classificationExecutor, or inline for frames that finish detection after
+  // stop, which postProcess passes through without touching the classifier.
+  private final Executor postProcessingExecutor =
+      command -> {
+        try {
+          classificationExecutor.execute(command);
+        } catch (RejectedExecutionException e) {
+          command.run();
+        }
+      };
+  private volatile boolean isStopped;
+  // Ideal angles of the selected pose, null if there is none. Shared by every frame's PoseGraphic.
+  @Nullable private final JointAngleTargets angleTargets;
+
+  private final long createdMs;
 
   private PoseClassifierProcessor poseClassifierProcessor;
+  private long timeToFirstClassifiedFrameMs = -1;
+  // Only touched on the classification executor. Frames the scheduler skips show the latest
+  // classification with their own pose.
+  private final ClassificationScheduler classificationScheduler;
+  private final float[] landmarks = new float[PoseLandmarkIndex.NUM_LANDMARKS * 3];
+  private List<String> lastClassificationResult;
+  private int lastMatchedClassId = -1;
   /** Internal class to hold Pose and classification results. */
   protected static class PoseWithClassification {
     private final Pose pose;
     private final List<String> classificationResult;
+    @Nullable private final PoseFeedback feedback;
 
     public PoseWithClassification(Pose pose, List<String> classificationResult) {
+      this(pose, classificationResult, null);
+    }
+
+    public PoseWithClassification(
+        Pose pose, List<String> classificationResult, @Nullable PoseFeedback feedback) {
       this.pose = pose;
       this.classificationResult = classificationResult;
+      this.feedback = feedback;
     }
 
     public Pose getPose() {
@@ -70,6 +110,11 @@ public class PoseDetectorProcessor
     public List<String> getClassificationResult() {
       return classificationResult;
     }
+
+    @Nullable
+    public PoseFeedback getFeedback() {
+      return feedback;
+    }
   }
 
   public PoseDetectorProcessor(
@@ -79,7 +124,7 @@ public class PoseDetectorProcessor
       boolean rescaleZForVisualization,
       boolean runClassification,
       boolean isStreamMode,
-      JSONObject selectedPose
+      @Nullable JointAngleTargets angleTargets
       ) {
     super(context);
     this.visualizeZ = visualizeZ;
@@ -89,51 +134,173 @@ public class PoseDetectorProcessor
     this.isStreamMode = isStreamMode;
     this.context = context;
     classificationExecutor = Executors.newSingleThreadExecutor();
-    this.selectedPose = selectedPose;
+    this.angleTargets = angleTargets;
+    classificationScheduler =
+        isStreamMode
+            ? PreferenceUtils.getPoseClassificationScheduler(context)
+            : ClassificationScheduler.everyFrame();
+    createdMs = SystemClock.elapsedRealtime();
+    if (runClassification) {
+      // Picks up the classifier prepared by PosePipelineWarmup (or loads it) before the first
+      // frame arrives, instead of inside the first frame's classification task. Also builds the
+      // classifier targeted at the selected pose.
+      classificationExecutor.execute(
+          () -> {
+            PoseClassifierProcessor processor =
+                new PoseClassifierProcessor(
+                    PosePipelineWarmup.getPoseClassifier(context), isStreamMode);
+            processor.setPipelineLatencies(getPipelineLatencies());
+            setTargetClass(processor);
+            poseClassifierProcessor = processor;
+          });
+    }
+  }
+
+  /**
+   * Returns the time from creating this processor to its first classified frame, or -1 if no
+   * frame has been classified yet.
+   */
+  public long getTimeToFirstClassifiedFrameMs() {
+    return timeToFirstClassifiedFrameMs;
+  }
+
+  /**
+   * Switches to a detector with the given options, e.g. the fast one at a lower quality level.
+   * The classifier and its state are kept, the old detector is closed once its last frame is done.
+   */
+  public void setDetectorOptions(PoseDetectorOptionsBase options) {
+    if (isStopped) {
+      return;
+    }
+    PoseDetector newDetector = PoseDetection.getClient(options);
+    PoseDetector oldDetector;
+    Task<Pose> pendingDetection;
+    synchronized (detectorLock) {
+      oldDetector = detector;
+      pendingDetection = lastDetection;
+      detector = newDetector;
+      lastDetection = null;
+    }
+    if (pendingDetection == null) {
+      oldDetector.close();
+    } else {
+      pendingDetection.addOnCompleteListener(
+          MoreExecutors.directExecutor(), task -> oldDetector.close());
+    }
   }
 
   @Override
   public void stop() {
+    // Called again when the activity is destroyed after pausing, by then there's nothing left to
+    // stop and the executor takes no more tasks.
+    if (isStopped) {
+      return;
+    }
+    isStopped = true;
     super.stop();
-    detector.close();
+    synchronized (detectorLock) {
+      detector.close();
+    }
+    classificationExecutor.execute(
+        () -> {
+          Log.d(
+              TAG,
+              "Classified "
+                  + classificationScheduler.getClassifiedCount()
+                  + " frames, skipped "
+                  + classificationScheduler.getSkippedCount());
+          if (poseClassifierProcessor != null) {
+            ClassificationCache cache = poseClassifierProcessor.getClassificationCache();
+            Log.d(
+                TAG,
+                "Classification cache: hits="
+                    + cache.getHitCount()
+                    + ", refined="
+                    + cache.getRefinedCount()
+                    + ", misses="
+                    + cache.getMissCount());
+          }
+        });
+    // Lets the frames already queued and the stats above finish, then ends the thread.
+    classificationExecutor.shutdown();
   }
 
   @Override
   protected Task<PoseWithClassification> detectInImage(InputImage image) {
-    return detector
-        .process(image)
-        .continueWith(
-            classificationExecutor,
-            task -> {
-              Pose pose = task.getResult();
-              List<String> classificationResult = new ArrayList<>();
-              if (runClassification) {
-                if (poseClassifierProcessor == null) {
-                  poseClassifierProcessor = new PoseClassifierProcessor(context, isStreamMode);
-                }
-                classificationResult = poseClassifierProcessor.getPoseResult(pose, selectedPose);
-              }
-              return new PoseWithClassification(pose, classificationResult);
-            });
+    Task<Pose> detection;
+    synchronized (detectorLock) {
+      detection = detector.process(image);
+      lastDetection = detection;
+    }
+    return withoutClassification(detection);
   }
 
   @Override
   protected Task<PoseWithClassification> detectInImage(MlImage image) {
-    return detector
-        .process(image)
-        .continueWith(
-            classificationExecutor,
-            task -> {
-              Pose pose = task.getResult();
-              List<String> classificationResult = new ArrayList<>();
-              if (runClassification) {
-                if (poseClassifierProcessor == null) {
-                  poseClassifierProcessor = new PoseClassifierProcessor(context, isStreamMode);
-                }
-                classificationResult = poseClassifierProcessor.getPoseResult(pose, selectedPose);
-              }
-              return new PoseWithClassification(pose, classificationResult);
-            });
+    Task<Pose> detection;
+    synchronized (detectorLock) {
+      detection = detector.process(image);
+      lastDetection = detection;
+    }
+    return withoutClassification(detection);
+  }
+
+  private static Task<PoseWithClassification> withoutClassification(Task<Pose> detection) {
+    return detection.continueWith(
+        MoreExecutors.directExecutor(),
+        task -> new PoseWithClassification(task.getResult(), Collections.emptyList()));
+  }
+
+  @Override
+  protected PoseWithClassification postProcess(PoseWithClassification detectionResult) {
+    if (!runClassification || isStopped) {
+      return detectionResult;
+    }
+    QualityGovernor governor = getQualityGovernor();
+    classificationScheduler.setFrameInterval(
+        governor == null ? 1 : governor.getLevel().getClassificationInterval());
+    float[] poseLandmarks =
+        PoseClassifierProcessor.extractPoseLandmarks(detectionResult.pose, landmarks);
+    boolean shouldClassify =
+        classificationScheduler.shouldClassify(SystemClock.elapsedRealtime(), poseLandmarks);
+    if (shouldClassify || lastClassificationResult == null) {
+      lastClassificationResult = classify(detectionResult.pose);
+      lastMatchedClassId = poseClassifierProcessor.getMatchedClassId();
+    }
+    // The joint angles follow every frame, whether the pose is classified again or not.
+    return new PoseWithClassification(
+        detectionResult.pose,
+        lastClassificationResult,
+        PoseFeedback.evaluate(poseLandmarks, angleTargets, lastMatchedClassId));
+  }
+
+  @Override
+  protected Executor getPostProcessingExecutor() {
+    return postProcessingExecutor;
+  }
+
+  private void setTargetClass(PoseClassifierProcessor processor) {
+    if (angleTargets != null) {
+      processor.setTargetClass(angleTargets.getPoseName());
+    }
+  }
+
+  private List<String> classify(Pose pose) {
+    List<String> classificationResult = new ArrayList<>();
+    if (runClassification) {
+      if (poseClassifierProcessor == null) {
+        poseClassifierProcessor =
+            new PoseClassifierProcessor(PosePipelineWarmup.getPoseClassifier(context), isStreamMode);
+        poseClassifierProcessor.setPipelineLatencies(getPipelineLatencies());
+        setTargetClass(poseClassifierProcessor);
+      }
+      classificationResult = poseClassifierProcessor.getPoseResult(pose);
+      if (timeToFirstClassifiedFrameMs < 0 && !pose.getAllPoseLandmarks().isEmpty()) {
+        timeToFirstClassifiedFrameMs = SystemClock.elapsedRealtime() - createdMs;
+        PosePipelineWarmup.recordTimeToFirstClassifiedFrame(timeToFirstClassifiedFrameMs);
+      }
+    }
+    return classificationResult;
   }
 
   @Override
@@ -146,7 +313,8 @@ public class PoseDetectorProcessor
             poseWithClassification.pose,
             visualizeZ,
             rescaleZForVisualization,
-            poseWithClassification.classificationResult, selectedPose));
+            poseWithClassification.classificationResult,
+            poseWithClassification.feedback));
   }
 
   @Override
@@ -0,0 +1,119 @@
+package com.fluffycandies.yogaguide.java.posedetector;
+
+import static com.fluffycandies.yogaguide.java.posedetector.classification.PoseLandmarkIndex.LEFT_ANKLE;
+import static com.fluffycandies.yogaguide.java.posedetector.classification.PoseLandmarkIndex.LEFT_ELBOW;
+import static com.fluffycandies.yogaguide.java.posedetector.classification.PoseLandmarkIndex.LEFT_HIP;
+import static com.fluffycandies.yogaguide.java.posedetector.classification.PoseLandmarkIndex.LEFT_KNEE;
+import static com.fluffycandies.yogaguide.java.posedetector.classification.PoseLandmarkIndex.LEFT_SHOULDER;
+import static com.fluffycandies.yogaguide.java.posedetector.classification.PoseLandmarkIndex.LEFT_WRIST;
+import static com.fluffycandies.yogaguide.java.posedetector.classification.PoseLandmarkIndex.RIGHT_ELBOW;
+import static com.fluffycandies.yogaguide.java.posedetector.classification.PoseLandmarkIndex.RIGHT_HIP;
+import static com.fluffycandies.yogaguide.java.posedetector.classification.PoseLandmarkIndex.RIGHT_KNEE;
+import static com.fluffycandies.yogaguide.java.posedetector.classification.PoseLandmarkIndex.RIGHT_SHOULDER;
+import static com.fluffycandies.yogaguide.java.posedetector.classification.PoseLandmarkIndex.RIGHT_WRIST;
+
+import androidx.annotation.Nullable;
+import com.fluffycandies.yogaguide.java.posedetector.classification.ClassVocabulary;
+
+/**
+ * How far the joints of one frame's pose are from the ideal angles of the selected pose.
+ *
+ * <p>Evaluated on the classification executor, so that {@link PoseGraphic} only has to draw it.
+ * Immutable.
+ */
+public final class PoseFeedback {
+  /** Degrees a joint may be off its ideal angle before it's highlighted. */
+  public static final float ANGLE_THRESHOLD = 25.0f;
+
+  // Landmarks of the angle of each joint, by joint index of JointAngleTargets: the two ends and
+  // the vertex in the middle. The right knee is measured towards the left ankle, as it always was.
+  private static final int[][] ANGLE_LANDMARKS = {
+    {LEFT_ELBOW, LEFT_SHOULDER, LEFT_HIP},
+    {RIGHT_ELBOW, RIGHT_SHOULDER, RIGHT_HIP},
+    {LEFT_SHOULDER, LEFT_ELBOW, LEFT_WRIST},
+    {RIGHT_SHOULDER, RIGHT_ELBOW, RIGHT_WRIST},
+    {LEFT_SHOULDER, LEFT_HIP, LEFT_KNEE},
+    {RIGHT_SHOULDER, RIGHT_HIP, RIGHT_KNEE},
+    {LEFT_HIP, LEFT_KNEE, LEFT_ANKLE},
+    {RIGHT_HIP, RIGHT_KNEE, LEFT_ANKLE}
+  };
+
+  private final float[] angleDeltas;
+  private final int outOfRangeMask;
+  private final int matchedClassId;
+
+  private PoseFeedback(float[] angleDeltas, int outOfRangeMask, int matchedClassId) {
+    this.angleDeltas = angleDeltas;
+    this.outOfRangeMask = outOfRangeMask;
+    this.matchedClassId = matchedClassId;
+  }
+
+  /**
+   * Compares the joint angles of a pose with {@code targets}.
+   *
+   * @param landmarks packed x, y, z of the landmarks, empty if no pose was detected.
+   * @param matchedClassId id of the selected pose's class in the classifier's {@link
+   *     ClassVocabulary} if it is the one detected, else -1.
+   * @return the feedback, or null if there is no pose or no selected pose.
+   */
+  @Nullable
+  public static PoseFeedback evaluate(
+      float[] landmarks, @Nullable JointAngleTargets targets, int matchedClassId) {
+    if (landmarks.length == 0 || targets == null) {
+      return null;
+    }
+    float[] angleDeltas = new float[JointAngleTargets.NUM_JOINTS];
+    int outOfRangeMask = 0;
+    for (int joint = 0; joint < JointAngleTargets.NUM_JOINTS; joint++) {
+      int[] angleLandmarks = ANGLE_LANDMARKS[joint];
+      float angle = angle(landmarks, angleLandmarks[0], angleLandmarks[1], angleLandmarks[2]);
+      angleDeltas[joint] = targets.getAngle(joint) - angle;
+      if (Math.abs(angleDeltas[joint]) > ANGLE_THRESHOLD) {
+        outOfRangeMask |= 1 << joint;
+      }
+    }
+    return new PoseFeedback(angleDeltas, outOfRangeMask, matchedClassId);
+  }
+
+  /** Returns the ideal minus the measured angle of {@code joint}, in degrees. */
+  public float getAngleDelta(int joint) {
+    return angleDeltas[joint];
+  }
+
+  /** Returns a bit per joint index, set if the joint is more than the threshold off. */
+  public int getOutOfRangeMask() {
+    return outOfRangeMask;
+  }
+
+  public boolean isOutOfRange(int joint) {
+    return (outOfRangeMask & (1 << joint)) != 0;
+  }
+
+  /**
+   * Returns the id of the selected pose's class in the classifier's {@link ClassVocabulary} if it
+   * is the one detected, else -1.
+   */
+  public int getMatchedClassId() {
+    return matchedClassId;
+  }
+
+  /**
+   * Returns the angle at {@code vertex} between the lines to {@code end1} and {@code end2} in
+   * degrees, or -1 if one of the lines has no length.
+   */
+  private static float angle(float[] landmarks, int end1, int vertex, int end2) {
+    float x1 = landmarks[end1 * 3] - landmarks[vertex * 3];
+    float y1 = landmarks[end1 * 3 + 1] - landmarks[vertex * 3 + 1];
+    float z1 = landmarks[end1 * 3 + 2] - landmarks[vertex * 3 + 2];
+    float x2 = landmarks[end2 * 3] - landmarks[vertex * 3];
+    float y2 = landmarks[end2 * 3 + 1] - landmarks[vertex * 3 + 1];
+    float z2 = landmarks[end2 * 3 + 2] - landmarks[vertex * 3 + 2];
+    float magnitude1 = (float) Math.sqrt(x1 * x1 + y1 * y1 + z1 * z1);
+    float magnitude2 = (float) Math.sqrt(x2 * x2 + y2 * y2 + z2 * z2);
+    if (magnitude1 == 0f || magnitude2 == 0f) {
+      return -1f;
+    }
+    float dot = x1 * x2 + y1 * y2 + z1 * z2;
+    return (float) Math.toDegrees((float) Math.acos(dot / (magnitude1 * magnitude2)));
+  }
+}
@@ -16,7 +16,6 @@
 
 package com.fluffycandies.yogaguide.java.posedetector;
 
-import static java.lang.Math.abs;
 import static java.lang.Math.max;
 import static java.lang.Math.min;
 
@@ -27,7 +26,8 @@ import static java.lang.Math.min;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
-import android.util.Log;
+
+import androidx.annotation.Nullable;
 
 import com.google.mlkit.vision.common.PointF3D;
 import com.fluffycandies.yogaguide.GraphicOverlay;
@@ -35,9 +35,6 @@ import com.fluffycandies.yogaguide.GraphicOverlay.Graphic;
 import com.google.mlkit.vision.pose.Pose;
 import com.google.mlkit.vision.pose.PoseLandmark;
 
-import org.json.JSONException;
-import org.json.JSONObject;
-
 import java.util.List;
 
 /** Draw the detected pose in preview. */
@@ -46,7 +43,14 @@ public class PoseGraphic extends Graphic {
     private static final float DOT_RADIUS = 8.0f;
     private static final float STROKE_WIDTH = 10.0f;
     private static final float POSE_CLASSIFICATION_TEXT_SIZE = 60.0f;
-    private static final float ANGLE_THRESHOLD = 25.0f;
+    // Landmark marking each joint, by joint index of JointAngleTargets. Knees are marked at the
+    // ankles.
+    private static final int[] JOINT_LANDMARKS = {
+            PoseLandmark.LEFT_SHOULDER, PoseLandmark.RIGHT_SHOULDER,
+            PoseLandmark.LEFT_ELBOW, PoseLandmark.RIGHT_ELBOW,
+            PoseLandmark.LEFT_HIP, PoseLandmark.RIGHT_HIP,
+            PoseLandmark.LEFT_ANKLE, PoseLandmark.RIGHT_ANKLE
+    };
 
     private final Pose pose;
     private final boolean visualizeZ;
@@ -62,19 +66,19 @@ public class PoseGraphic extends Graphic {
     private final Paint redPaint;
     private final Paint bluePaint;
     private String lastPoseTime;
-    private JSONObject poseAnglesObject;
+    @Nullable private final PoseFeedback feedback;
     PoseGraphic(
             GraphicOverlay overlay,
             Pose pose,
             boolean visualizeZ,
             boolean rescaleZForVisualization,
             List<String> poseClassification,
-            JSONObject selectedPoseAngles) {
+            @Nullable PoseFeedback feedback) {
         super(overlay);
         this.pose = pose;
         this.visualizeZ = visualizeZ;
         this.rescaleZForVisualization = rescaleZForVisualization;
-        this.poseAnglesObject = selectedPoseAngles;
+        this.feedback = feedback;
 
         this.poseClassification = poseClassification;
         classificationTextPaint = new Paint();
@@ -142,37 +146,18 @@ public class PoseGraphic extends Graphic {
         PoseLandmark leftAnkle = pose.getPoseLandmark(PoseLandmark.LEFT_ANKLE);
         PoseLandmark rightAnkle = pose.getPoseLandmark(PoseLandmark.RIGHT_ANKLE);
 
-        try {
-            String name = poseAnglesObject.keys().next();
-            JSONObject angleJSON = poseAnglesObject.getJSONObject(name);
-            PoseAngles idealAngles = new PoseAngles(angleJSON);
-
-            PoseAngles measuredAngles = new PoseAngles(
-                    getJointAngle(leftElbow, leftShoulder, leftHip),
-                    getJointAngle(rightElbow, rightShoulder, rightHip),
-                    getJointAngle(leftShoulder , leftElbow, leftWrist),
-                    getJointAngle(rightShoulder, rightElbow, rightWrist),
-                    getJointAngle(leftShoulder, leftHip, leftKnee),
-                    getJointAngle(rightShoulder, rightHip, rightKnee),
-                    getJointAngle(leftHip, leftKnee, leftAnkle),
-                    getJointAngle(rightHip, rightKnee, leftAnkle)
-            );
-
-            float[] comparison = idealAngles.compareTo(measuredAngles);
-            PoseLandmark[] joints = {leftShoulder, rightShoulder, leftElbow, rightElbow, leftHip, rightHip, leftAnkle, rightAnkle};
-
-            String lastPoseDetected = poseClassification.get(0).split(" : ")[0];
-            String currentPose = poseClassification.get(1).split(" : ")[0];
-
-            for (int i = 0; i < 8; i ++) {
-                if (abs(comparison[i]) > ANGLE_THRESHOLD && lastPoseDetected.equals(currentPose)) {
-                    Log.d("PoseGraphic", "Joint " + i + " is out of sync by " + abs(comparison[i]) + " degrees");
-                    drawCircle(canvas, joints[i], redPaint);
+        if (feedback != null) {
+            // Only a held selected pose gets its joints that are off highlighted.
+            boolean isMatched = feedback.getMatchedClassId() >= 0;
+            for (int joint = 0; joint < JointAngleTargets.NUM_JOINTS; joint++) {
+                PoseLandmark landmark = pose.getPoseLandmark(JOINT_LANDMARKS[joint]);
+                if (isMatched && feedback.isOutOfRange(joint)) {
+                    drawCircle(canvas, landmark, redPaint);
                 } else {
-                    drawPoint(canvas, joints[i], bluePaint);
+                    drawPoint(canvas, landmark, bluePaint);
                 }
             }
-        } catch (JSONException e) { e.printStackTrace(); }
+        }
 
         drawLine(canvas, leftShoulder, rightShoulder, whitePaint);
         drawLine(canvas, leftHip, rightHip, whitePaint);
@@ -192,12 +177,6 @@ public class PoseGraphic extends Graphic {
         drawLine(canvas, rightKnee, rightAnkle, rightPaint);
     }
 
-    private float getJointAngle(PoseLandmark l1, PoseLandmark l2, PoseLandmark l3) {
-        Vector vec1 = new Vector(l1, l2);
-        Vector vec2 = new Vector(l3, l2);
-        return vec1.angle(vec2);
-    }
-
     void drawPoint(Canvas canvas, PoseLandmark landmark, Paint paint) {
         PointF3D point = landmark.getPosition3D();
         updatePaintColorByZValue(
@@ -234,85 +213,4 @@ public class PoseGraphic extends Graphic {
                 translateY(end.getY()),
                 paint);
     }
-
-    public class PoseAngles {
-        public double left_shoulder;
-        public double right_shoulder;
-        public double left_elbow;
-        public double right_elbow;
-        public double left_hip;
-        public double right_hip;
-        public double left_knee;
-        public double right_knee;
-
-        public PoseAngles(double left_shoulder, double right_shoulder, double left_elbow, double right_elbow,
-                          double left_hip, double right_hip, double left_knee, double right_knee) {
-            this.left_shoulder = left_shoulder;
-            this.right_shoulder = right_shoulder;
-            this.left_elbow = left_elbow;
-            this.right_elbow = right_elbow;
-            this.left_hip = left_hip;
-            this.right_hip = right_hip;
-            this.left_knee = left_knee;
-            this.right_knee = right_knee;
-        }
-
-        // Constructor for initializing the values
-        public PoseAngles(JSONObject angles) {
-
-            try {
-                this.left_shoulder = Double.parseDouble(angles.getString("left_shoulder"));
-                this.right_shoulder = Double.parseDouble(angles.getString("right_shoulder"));
-                this.left_elbow = Double.parseDouble(angles.getString("left_elbow"));
-                this.right_elbow = Double.parseDouble(angles.getString("right_elbow"));
-                this.left_hip = Double.parseDouble(angles.getString("left_hip"));
-                this.right_hip = Double.parseDouble(angles.getString("right_hip"));
-                this.left_knee = Double.parseDouble(angles.getString("left_knee"));
-                this.right_knee = Double.parseDouble(angles.getString("right_knee"));
-            } catch (JSONException e) { e.printStackTrace(); }
-        }
-
-        float[] compareTo(PoseAngles measuredPose) {
-            float[] comparison = new float[8];
-
-            comparison[0] = (float) (this.left_shoulder - measuredPose.left_shoulder);
-            comparison[1] = (float) (this.right_shoulder - measuredPose.right_shoulder);
-            comparison[2] = (float) (this.left_elbow - measuredPose.left_elbow);
-            comparison[3] = (float) (this.right_elbow - measuredPose.right_elbow);
-            comparison[4] = (float) (this.left_hip - measuredPose.left_hip);
-            comparison[5] = (float) (this.right_hip - measuredPose.right_hip);
-            comparison[6] = (float) (this.left_knee - measuredPose.left_knee);
-            comparison[7] = (float) (this.right_knee - measuredPose.right_knee);
-
-            return comparison;
-        }
-    }
-
-    private static class Vector{
-        private final float x;
-        private final float y;
-        private final float z;
-        public Vector(PoseLandmark Point , PoseLandmark Vertex){
-            this.x = Point.getPosition3D().getX() - Vertex.getPosition3D().getX();
-            this.y = Point.getPosition3D().getY() - Vertex.getPosition3D().getY();
-            this.z = Point.getPosition3D().getZ() - Vertex.getPosition3D().getZ();
-        }
-        public float dotProduct(Vector v) {
-            return this.x * v.x + this.y * v.y + this.z * v.z;
-        }
-
-        public float magnitude() {
-            return (float)Math.sqrt(this.x * this.x + this.y * this.y + this.z * this.z);
-        }
-
-        public float angle(Vector v){
-            float mag1 = this.magnitude();
-            float mag2 = v.magnitude();
-            float dot = this.dotProduct(v);
-            if(mag1 == 0f || mag2 == 0f)
-                return -1f;
-            float rad = (float)Math.acos(dot/(mag1 * mag2));
-            return (float)(Math.toDegrees(rad));
-        }
-    }
 }
@@ -0,0 +1,113 @@
+package com.fluffycandies.yogaguide.java.posedetector;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.SystemClock;
+import android.util.Log;
+import androidx.annotation.MainThread;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import com.fluffycandies.yogaguide.java.posedetector.classification.PoseClassifier;
+import com.fluffycandies.yogaguide.java.posedetector.classification.PoseClassifierProcessor;
+import com.fluffycandies.yogaguide.preference.PreferenceUtils;
+import com.google.mlkit.vision.common.InputImage;
+import com.google.mlkit.vision.pose.PoseDetection;
+import com.google.mlkit.vision.pose.PoseDetector;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Process-wide warm-up of the expensive parts of the live pose pipeline.
+ *
+ * <p>Loading the pose samples, initializing the ML Kit detector and parsing the angles table used
+ * to happen on the first camera frame. {@link #warmUp} starts all three in the background as soon
+ * as the user picks a pose, and the live preview picks up the results from here and from {@link
+ * PoseCatalog}.
+ */
+public final class PosePipelineWarmup {
+  private static final String TAG = "PosePipelineWarmup";
+  private static final int DUMMY_FRAME_SIZE = 64;
+
+  private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+  @Nullable private static Future<PoseClassifier> poseClassifierFuture;
+  private static boolean detectorWarmedUp;
+  private static volatile long lastTimeToFirstClassifiedFrameMs = -1;
+
+  /** Starts loading everything the live preview needs. Safe to call repeatedly. */
+  @MainThread
+  public static synchronized void warmUp(Context context) {
+    Context appContext = context.getApplicationContext();
+    if (poseClassifierFuture == null) {
+      poseClassifierFuture =
+          executor.submit(() -> PoseClassifierProcessor.loadPoseClassifier(appContext));
+    }
+    PoseCatalog.preload(appContext);
+    if (!detectorWarmedUp) {
+      detectorWarmedUp = true;
+      warmUpDetector(appContext);
+    }
+  }
+
+  /** Returns the shared classifier, waiting for the warm-up to finish if needed. */
+  @WorkerThread
+  public static PoseClassifier getPoseClassifier(Context context) {
+    Future<PoseClassifier> future;
+    synchronized (PosePipelineWarmup.class) {
+      if (poseClassifierFuture == null) {
+        Context appContext = context.getApplicationContext();
+        poseClassifierFuture =
+            executor.submit(() -> PoseClassifierProcessor.loadPoseClassifier(appContext));
+      }
+      future = poseClassifierFuture;
+    }
+    try {
+      return future.get();
+    } catch (ExecutionException | InterruptedException e) {
+      Log.e(TAG, "Pose classifier warm-up failed, loading inline.", e);
+      synchronized (PosePipelineWarmup.class) {
+        poseClassifierFuture = null;
+      }
+      return PoseClassifierProcessor.loadPoseClassifier(context);
+    }
+  }
+
+  /**
+   * Returns the time from creating the last live {@link PoseDetectorProcessor} to its first
+   * classified frame, or -1 if no frame has been classified yet.
+   */
+  public static long getLastTimeToFirstClassifiedFrameMs() {
+    return lastTimeToFirstClassifiedFrameMs;
+  }
+
+  static void recordTimeToFirstClassifiedFrame(long elapsedMs) {
+    lastTimeToFirstClassifiedFrameMs = elapsedMs;
+    Log.i(TAG, "Time to first classified frame: " + elapsedMs + " ms");
+  }
+
+  /**
+   * Runs one blank frame through a throwaway detector so the ML Kit native libraries and model
+   * files are loaded before the camera starts.
+   */
+  private static void warmUpDetector(Context context) {
+    long startMs = SystemClock.elapsedRealtime();
+    PoseDetector detector =
+        PoseDetection.getClient(PreferenceUtils.getPoseDetectorOptionsForLivePreview(context));
+    Bitmap blank =
+        Bitmap.createBitmap(DUMMY_FRAME_SIZE, DUMMY_FRAME_SIZE, Bitmap.Config.ARGB_8888);
+    detector
+        .process(InputImage.fromBitmap(blank, 0))
+        .addOnCompleteListener(
+            executor,
+            task -> {
+              detector.close();
+              Log.d(TAG, "Detector warm-up took " + (SystemClock.elapsedRealtime() - startMs)
+                  + " ms");
+            });
+  }
+
+  private PosePipelineWarmup() {}
+}
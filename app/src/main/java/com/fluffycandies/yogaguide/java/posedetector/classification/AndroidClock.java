@@ -0,0 +1,20 @@
+package com.fluffycandies.yogaguide.java.posedetector.classification;
+
+import android.os.SystemClock;
+
+/** {@link Clock} backed by {@link SystemClock}. */
+public final class AndroidClock implements Clock {
+  public static final AndroidClock INSTANCE = new AndroidClock();
+
+  @Override
+  public long elapsedRealtime() {
+    return SystemClock.elapsedRealtime();
+  }
+
+  @Override
+  public long currentTimeMillis() {
+    return System.currentTimeMillis();
+  }
+
+  private AndroidClock() {}
+}
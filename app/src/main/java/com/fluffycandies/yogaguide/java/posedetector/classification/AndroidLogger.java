@@ -0,0 +1,20 @@
+package com.fluffycandies.yogaguide.java.posedetector.classification;
+
+import android.util.Log;
+
+/** {@link Logger} that writes to Logcat. */
+public final class AndroidLogger implements Logger {
+  public static final AndroidLogger INSTANCE = new AndroidLogger();
+
+  @Override
+  public void d(String tag, String message) {
+    Log.d(tag, message);
+  }
+
+  @Override
+  public void e(String tag, String message) {
+    Log.e(tag, message);
+  }
+
+  private AndroidLogger() {}
+}
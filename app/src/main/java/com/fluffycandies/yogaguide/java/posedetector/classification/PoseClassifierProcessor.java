@@ -17,21 +17,27 @@
 package com.fluffycandies.yogaguide.java.posedetector.classification;
 
 import android.content.Context;
+import android.content.res.AssetFileDescriptor;
 import android.media.AudioManager;
 import android.media.ToneGenerator;
 import android.os.Looper;
 import android.util.Log;
+import androidx.annotation.Nullable;
 import androidx.annotation.WorkerThread;
+import com.fluffycandies.yogaguide.perf.PipelineLatencies;
+import com.fluffycandies.yogaguide.perf.PipelineLatencies.Stage;
 import com.google.common.base.Preconditions;
+import com.google.mlkit.vision.common.PointF3D;
 import com.google.mlkit.vision.pose.Pose;
+import com.google.mlkit.vision.pose.PoseLandmark;
 
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.io.BufferedReader;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 
@@ -41,6 +47,9 @@ import java.util.Locale;
 public class PoseClassifierProcessor {
     private static final String TAG = "PoseClassifierProcessor";
     private static final String POSE_SAMPLES_FILE = "pose/yoga_poses.csv";
+    // Precomputed embeddings of POSE_SAMPLES_FILE, generated at build time by the
+    // generatePoseSampleAsset task. Stored uncompressed so it can be memory-mapped.
+    private static final String POSE_SAMPLES_BINARY_FILE = "pose/yoga_poses.bin";
 
     // Specify classes for which we want rep counting.
     // These are the labels in the given {@code POSE_SAMPLES_FILE}. You can set your own class labels
@@ -83,7 +92,6 @@ public class PoseClassifierProcessor {
             "Salamba Bhujangasana",
             "Hanumanasana",
             "Malasana",
-            "Uttanasana",
             "Ashta Chandrasana",
             "Upavistha Konasana",
             "Vrksasana",
@@ -95,48 +103,146 @@ public class PoseClassifierProcessor {
             "Urdhva Dhanurasana",
             "Camatkarasana"
     };
+    private static final float[] NO_LANDMARKS = new float[0];
+    // Classification may run below the frame rate, see ClassificationScheduler, so smoothing only
+    // forgets results more than a second old. CountdownTimer doesn't bridge longer gaps either.
+    private static final long SMOOTHING_RESET_THRESHOLD_MS = 1000;
+
     public static int lastCount = 0;
     private final boolean isStreamMode;
 
+    private final PoseClassifier poseClassifier;
+    private final float[] landmarks = new float[PoseLandmarkIndex.NUM_LANDMARKS * 3];
+    // Held poses barely move between frames, so most of them are served from the last full scan.
+    private final ClassificationCache classificationCache = new ClassificationCache();
     private EMASmoothing emaSmoothing;
-    private List<CountdownTimer> countdownTimers;
-    private PoseClassifier poseClassifier;
     private String lastCountResult;
+    // Class of the countdown in lastCountResult, null until it first advances.
+    @Nullable private String lastCountClassName;
+    private int matchedClassId = -1;
+    // Targeted mode state, see setTargetClass.
+    @Nullable private String targetClass;
+    private PoseClassifier targetClassifier;
+    @Nullable private CountdownTimer targetTimer;
+    @Nullable private PipelineLatencies latencies;
+
     @WorkerThread
     public PoseClassifierProcessor(Context context, boolean isStreamMode) {
-        Preconditions.checkState(Looper.myLooper() != Looper.getMainLooper());
+        this(loadPoseClassifier(context), isStreamMode);
+    }
+
+    /**
+     * Creates a processor around an already loaded {@link PoseClassifier}, e.g. one prepared by
+     * {@link com.fluffycandies.yogaguide.java.posedetector.PosePipelineWarmup}.
+     */
+    public PoseClassifierProcessor(PoseClassifier poseClassifier, boolean isStreamMode) {
+        CoreLog.setLogger(AndroidLogger.INSTANCE);
         this.isStreamMode = isStreamMode;
+        this.poseClassifier = poseClassifier;
         if (isStreamMode) {
-            emaSmoothing = new EMASmoothing();
-            countdownTimers = new ArrayList<>();
+            emaSmoothing = new EMASmoothing(SMOOTHING_RESET_THRESHOLD_MS, AndroidClock.INSTANCE);
             lastCountResult = "";
         }
-        loadPoseSamples(context);
+        targetClassifier = poseClassifier;
     }
 
-    private void loadPoseSamples(Context context) {
-        List<PoseSample> poseSamples = new ArrayList<>();
-        try {
-            BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(context.getAssets().open(POSE_SAMPLES_FILE)));
-            String csvLine = reader.readLine();
-            while (csvLine != null) {
-                // If line is not a valid {@link PoseSample}, we'll get null and skip adding to the list.
-                PoseSample poseSample = PoseSample.getPoseSample(csvLine, ",");
-                if (poseSample != null) {
-                    poseSamples.add(poseSample);
-                }
-                csvLine = reader.readLine();
+    /**
+     * Switches to scoring only {@code className} and the classes it can be confused with, and to
+     * counting down only its timer. Building the targeted classifier takes a pass over the samples
+     * the first time a class is selected, so call this ahead of the first frame when possible.
+     */
+    @WorkerThread
+    public void setTargetClass(String className) {
+        if (className.equals(targetClass)) {
+            return;
+        }
+        targetClass = className;
+        targetClassifier = poseClassifier.forTargetClass(className);
+        targetTimer = isStreamMode && hasCountdown(className)
+                ? new CountdownTimer(className, AndroidClock.INSTANCE)
+                : null;
+        if (emaSmoothing != null) {
+            // Results of the previous classifier don't mix with the targeted one's.
+            emaSmoothing.reset();
+        }
+    }
+
+    /** Returns whether {@code className} gets a countdown timer when selected. */
+    public static boolean hasCountdown(String className) {
+        return Arrays.asList(POSE_CLASSES).contains(className);
+    }
+
+    /**
+     * Returns the class id of the pose of the last {@link #getPoseResult} call if it is the class
+     * being counted down, i.e. the selected pose is being held, or -1 otherwise. The id is the one
+     * of the classifier's {@link ClassVocabulary}.
+     */
+    public int getMatchedClassId() {
+        return matchedClassId;
+    }
+
+    /** Records the classification and smoothing latency of each frame into {@code latencies}. */
+    public void setPipelineLatencies(@Nullable PipelineLatencies latencies) {
+        this.latencies = latencies;
+    }
+
+    public ClassificationCache getClassificationCache() {
+        return classificationCache;
+    }
+
+    /** Loads the pose samples and builds the classifier. This is the expensive part of startup. */
+    @WorkerThread
+    public static PoseClassifier loadPoseClassifier(Context context) {
+        Preconditions.checkState(Looper.myLooper() != Looper.getMainLooper());
+        CoreLog.setLogger(AndroidLogger.INSTANCE);
+        PoseSampleStore sampleStore = loadPrecomputedPoseSamples(context);
+        if (sampleStore == null) {
+            // Fall back to parsing and embedding the csv.
+            List<PoseSample> poseSamples = new ArrayList<>();
+            try (InputStreamReader reader =
+                         new InputStreamReader(context.getAssets().open(POSE_SAMPLES_FILE))) {
+                poseSamples = PoseSampleLoader.load(reader);
+            } catch (IOException e) {
+                Log.e(TAG, "Error when loading pose samples.\n" + e);
             }
+            sampleStore = new PoseSampleStore(poseSamples);
+        }
+        return new PoseClassifier(sampleStore);
+    }
+
+    /**
+     * Memory-maps the precomputed sample embeddings, or returns null if the binary asset is
+     * missing, compressed or stale.
+     */
+    @Nullable
+    private static PoseSampleStore loadPrecomputedPoseSamples(Context context) {
+        try (AssetFileDescriptor fd = context.getAssets().openFd(POSE_SAMPLES_BINARY_FILE);
+             FileInputStream inputStream = fd.createInputStream()) {
+            MappedByteBuffer buffer = inputStream.getChannel().map(
+                    FileChannel.MapMode.READ_ONLY, fd.getStartOffset(), fd.getLength());
+            return PoseSampleCodec.read(buffer);
         } catch (IOException e) {
-            Log.e(TAG, "Error when loading pose samples.\n" + e);
+            Log.w(TAG, "Precomputed pose samples unavailable, parsing csv.\n" + e);
+            return null;
         }
-        poseClassifier = new PoseClassifier(poseSamples);
-        if (isStreamMode) {
-            for (String className : POSE_CLASSES) {
-                countdownTimers.add(new CountdownTimer(className));
-            }
+    }
+
+    /**
+     * Packs the x, y and z of the landmarks into {@code landmarks}, sized for {@link
+     * PoseLandmarkIndex#NUM_LANDMARKS}, or returns an empty array if no pose was detected.
+     */
+    public static float[] extractPoseLandmarks(Pose pose, float[] landmarks) {
+        List<PoseLandmark> poseLandmarks = pose.getAllPoseLandmarks();
+        if (poseLandmarks.isEmpty()) {
+            return NO_LANDMARKS;
+        }
+        for (int i = 0; i < poseLandmarks.size(); i++) {
+            PointF3D position = poseLandmarks.get(i).getPosition3D();
+            landmarks[i * 3] = position.getX();
+            landmarks[i * 3 + 1] = position.getY();
+            landmarks[i * 3 + 2] = position.getZ();
         }
+        return landmarks;
     }
 
     /**
@@ -148,55 +254,62 @@ public class PoseClassifierProcessor {
      * 1: PoseClass : [0.0-1.0] confidence
      */
     @WorkerThread
-    public List<String> getPoseResult(Pose pose, JSONObject selectedPose) {
+    public List<String> getPoseResult(Pose pose) {
         Preconditions.checkState(Looper.myLooper() != Looper.getMainLooper());
         List<String> result = new ArrayList<>();
-        ClassificationResult classification = poseClassifier.classify(pose);
+        matchedClassId = -1;
+        long classificationStartNanos = System.nanoTime();
+        ClassificationResult classification =
+                targetClassifier.classify(
+                        extractPoseLandmarks(pose, landmarks), classificationCache);
+        long smoothingStartNanos = System.nanoTime();
+        if (latencies != null) {
+            latencies.record(Stage.CLASSIFICATION, smoothingStartNanos - classificationStartNanos);
+        }
 
         // Update {@link RepetitionCounter}s if {@code isStreamMode}.
         if (isStreamMode) {
             // Feed pose to smoothing even if no pose found.
             classification = emaSmoothing.getSmoothedResult(classification);
+            if (latencies != null) {
+                latencies.record(Stage.SMOOTHING, System.nanoTime() - smoothingStartNanos);
+            }
 
             if (pose.getAllPoseLandmarks().isEmpty()) {
                 result.add(lastCountResult);
                 return result;
             }
 
-            for (CountdownTimer countdownTimer : countdownTimers) {
-                String poseName = "";
-
-                poseName = selectedPose.keys().next();
-
-                if (!countdownTimer.getClassName().equals(poseName))
-                    continue;
-
-                int timeBefore = countdownTimer.getTimeCount();
-                int timeAfter = countdownTimer.addClassificationResult(classification);
+            if (targetTimer != null) {
+                int timeBefore = targetTimer.getTimeCount();
+                int timeAfter = targetTimer.addClassificationResult(classification);
                 if (timeAfter > timeBefore) {
                     // Play a fun beep when countdown updates.
                     ToneGenerator tg = new ToneGenerator(AudioManager.STREAM_NOTIFICATION, 100);
                     tg.startTone(ToneGenerator.TONE_PROP_BEEP);
                     lastCount = timeAfter;
                     lastCountResult = String.format(
-                            Locale.US, "%s : %d seconds", countdownTimer.getClassName(), timeAfter);
-
-                    break;
+                            Locale.US, "%s : %d seconds", targetTimer.getClassName(), timeAfter);
+                    lastCountClassName = targetTimer.getClassName();
                 }
             }
             result.add(lastCountResult);
         }
 
         // Add maxConfidence class of current frame to result if pose is found.
-        if (!pose.getAllPoseLandmarks().isEmpty()) {
-            String maxConfidenceClass = classification.getMaxConfidenceClass();
+        int maxConfidenceClassId = classification.getMaxConfidenceClassId();
+        if (!pose.getAllPoseLandmarks().isEmpty() && maxConfidenceClassId >= 0) {
             String maxConfidenceClassResult = String.format(
                     Locale.US,
                     "%s : %.2f confidence",
-                    maxConfidenceClass,
-                    classification.getClassConfidence(maxConfidenceClass)
-                            / poseClassifier.confidenceRange());
+                    classification.getVocabulary().getName(maxConfidenceClassId),
+                    classification.getClassConfidence(maxConfidenceClassId)
+                            / targetClassifier.confidenceRange());
             result.add(maxConfidenceClassResult);
+            if (classification.getVocabulary().getName(maxConfidenceClassId)
+                    .equals(lastCountClassName)) {
+                matchedClassId = maxConfidenceClassId;
+            }
         }
 
         return result;
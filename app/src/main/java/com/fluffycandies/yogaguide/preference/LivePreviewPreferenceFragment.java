@@ -49,6 +49,8 @@ public class LivePreviewPreferenceFragment extends PreferenceFragment {
         findPreference(getString(R.string.pref_key_camerax_rear_camera_target_resolution)));
     cameraPreference.removePreference(
         findPreference(getString(R.string.pref_key_camerax_front_camera_target_resolution)));
+    cameraPreference.removePreference(
+        findPreference(getString(R.string.pref_key_camerax_max_frames_in_flight)));
     setUpCameraPreviewSizePreference(
         R.string.pref_key_rear_camera_preview_size,
         R.string.pref_key_rear_camera_picture_size,
@@ -27,6 +27,7 @@ import com.google.common.base.Preconditions;
 import com.fluffycandies.yogaguide.CameraSource;
 import com.fluffycandies.yogaguide.CameraSource.SizePair;
 import com.fluffycandies.yogaguide.R;
+import com.fluffycandies.yogaguide.java.posedetector.classification.ClassificationScheduler;
 import com.google.mlkit.vision.pose.PoseDetectorOptionsBase;
 import com.google.mlkit.vision.pose.accurate.AccuratePoseDetectorOptions;
 import com.google.mlkit.vision.pose.defaults.PoseDetectorOptions;
@@ -35,6 +36,13 @@ import com.google.mlkit.vision.pose.defaults.PoseDetectorOptions;
 public class PreferenceUtils {
 
   private static final int POSE_DETECTOR_PERFORMANCE_MODE_FAST = 1;
+  // Values of the classification schedule preference other than a rate per second.
+  private static final int POSE_CLASSIFICATION_SCHEDULE_EVERY_FRAME = 0;
+  private static final int POSE_CLASSIFICATION_SCHEDULE_ON_MOTION = -1;
+  // Classification rates per second a fixed rate schedule is clamped to. Above the camera frame
+  // rate a fixed rate is the same as every frame.
+  private static final int MIN_POSE_CLASSIFICATION_RATE = 1;
+  private static final int MAX_POSE_CLASSIFICATION_RATE = 30;
 
   static void saveString(Context context, @StringRes int prefKeyId, @Nullable String value) {
     PreferenceManager.getDefaultSharedPreferences(context)
@@ -85,19 +93,32 @@ public class PreferenceUtils {
     }
   }
 
+  /** Returns how many CameraX frames may be between analysis and drawing at once, 1 or 2. */
+  public static int getCameraXMaxFramesInFlight(Context context) {
+    int maxFramesInFlight =
+        getModeTypePreferenceValue(context, R.string.pref_key_camerax_max_frames_in_flight, 1);
+    return maxFramesInFlight >= 2 ? 2 : 1;
+  }
+
   public static boolean shouldHideDetectionInfo(Context context) {
     SharedPreferences sharedPreferences = PreferenceManager.getDefaultSharedPreferences(context);
     String prefKey = context.getString(R.string.pref_key_info_hide);
     return sharedPreferences.getBoolean(prefKey, true);
   }
   public static PoseDetectorOptionsBase getPoseDetectorOptionsForLivePreview(Context context) {
+    return getPoseDetectorOptionsForLivePreview(context, /* forceFastMode= */ false);
+  }
+
+  /** Same as above, but uses the fast detector regardless of the preference if forceFastMode. */
+  public static PoseDetectorOptionsBase getPoseDetectorOptionsForLivePreview(
+      Context context, boolean forceFastMode) {
     int performanceMode =
         getModeTypePreferenceValue(
             context,
             R.string.pref_key_live_preview_pose_detection_performance_mode,
             POSE_DETECTOR_PERFORMANCE_MODE_FAST);
     boolean preferGPU = preferGPUForPoseDetection(context);
-    if (performanceMode == POSE_DETECTOR_PERFORMANCE_MODE_FAST) {
+    if (forceFastMode || performanceMode == POSE_DETECTOR_PERFORMANCE_MODE_FAST) {
       PoseDetectorOptions.Builder builder =
           new PoseDetectorOptions.Builder().setDetectorMode(PoseDetectorOptions.STREAM_MODE);
       if (preferGPU) {
@@ -139,6 +160,32 @@ public class PreferenceUtils {
     return sharedPreferences.getBoolean(prefKey, true);
   }
 
+  /**
+   * Returns the classification scheduler of the preference. Unknown values classify every frame,
+   * rates are clamped to what a camera can deliver.
+   */
+  public static ClassificationScheduler getPoseClassificationScheduler(Context context) {
+    int schedule;
+    try {
+      schedule =
+          getModeTypePreferenceValue(
+              context,
+              R.string.pref_key_pose_classification_schedule,
+              POSE_CLASSIFICATION_SCHEDULE_EVERY_FRAME);
+    } catch (NumberFormatException e) {
+      return ClassificationScheduler.everyFrame();
+    }
+    if (schedule == POSE_CLASSIFICATION_SCHEDULE_ON_MOTION) {
+      return ClassificationScheduler.onMotion(
+          ClassificationScheduler.DEFAULT_MOTION_THRESHOLD,
+          ClassificationScheduler.DEFAULT_MAX_INTERVAL_MS);
+    } else if (schedule > 0) {
+      return ClassificationScheduler.fixedRate(
+          Math.max(MIN_POSE_CLASSIFICATION_RATE, Math.min(schedule, MAX_POSE_CLASSIFICATION_RATE)));
+    }
+    return ClassificationScheduler.everyFrame();
+  }
+
   /**
    * Mode type preference is backed by {@link android.preference.ListPreference} which only support
    * storing its entry value as string type, so we need to retrieve as string and then convert to
@@ -157,5 +204,11 @@ public class PreferenceUtils {
     return sharedPreferences.getBoolean(prefKey, false);
   }
 
+  public static boolean isPipelinedProcessingEnabled(Context context) {
+    SharedPreferences sharedPreferences = PreferenceManager.getDefaultSharedPreferences(context);
+    String prefKey = context.getString(R.string.pref_key_pipelined_processing);
+    return sharedPreferences.getBoolean(prefKey, false);
+  }
+
   private PreferenceUtils() {}
 }
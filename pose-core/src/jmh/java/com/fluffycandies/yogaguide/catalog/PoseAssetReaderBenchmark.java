@@ -0,0 +1,90 @@
+package com.fluffycandies.yogaguide.catalog;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parse time of angles.json with {@link PoseAssetReader}, against a JVM stand-in for the code it
+ * replaced: read the whole file into a {@code String}, build a JSON tree of it and pick the angles
+ * out of the tree. The stand-in uses Gson's tree model instead of Android's {@code org.json}, so it
+ * only indicates the cost of the old path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PoseAssetReaderBenchmark {
+  private static final String ANGLES_PROPERTY = "posecore.angles";
+  private static final String DEFAULT_ANGLES_PATH = "app/src/main/assets/pose/angles.json";
+
+  private File anglesFile;
+
+  @Setup
+  public void setUp() {
+    anglesFile = new File(System.getProperty(ANGLES_PROPERTY, DEFAULT_ANGLES_PATH));
+    if (!anglesFile.isFile()) {
+      throw new IllegalStateException(
+          "Angles not found at " + anglesFile + ", set -D" + ANGLES_PROPERTY);
+    }
+  }
+
+  @Benchmark
+  public List<PoseAssetReader.AngleRecord> streamAngles() throws IOException {
+    try (Reader reader =
+        new InputStreamReader(new FileInputStream(anglesFile), StandardCharsets.UTF_8)) {
+      return PoseAssetReader.readAngles(reader);
+    }
+  }
+
+  @Benchmark
+  public List<float[]> readStringThenParseTree() throws IOException {
+    String json;
+    try (InputStream is = new FileInputStream(anglesFile)) {
+      byte[] buffer = new byte[is.available()];
+      int length = 0;
+      int read;
+      while (length < buffer.length
+          && (read = is.read(buffer, length, buffer.length - length)) != -1) {
+        length += read;
+      }
+      json = new String(buffer, 0, length, StandardCharsets.UTF_8);
+    }
+    List<float[]> poseAngles = new ArrayList<>();
+    JsonObject root = JsonParser.parseString(json).getAsJsonObject();
+    for (JsonElement pose : root.getAsJsonArray("Angles")) {
+      for (Map.Entry<String, JsonElement> entry : pose.getAsJsonObject().entrySet()) {
+        JsonObject anglesObject = entry.getValue().getAsJsonObject();
+        float[] angles = new float[PoseAssetReader.JOINT_KEYS.size()];
+        for (int joint = 0; joint < angles.length; joint++) {
+          angles[joint] = anglesObject.get(PoseAssetReader.JOINT_KEYS.get(joint)).getAsFloat();
+        }
+        poseAngles.add(angles);
+      }
+    }
+    return poseAngles;
+  }
+}
@@ -0,0 +1,98 @@
+package com.fluffycandies.yogaguide.imaging;
+
+import java.awt.geom.AffineTransform;
+import java.awt.image.AffineTransformOp;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Preview frame to ARGB conversion with {@link Nv21Converter}, against a JVM stand-in for the JPEG
+ * round trip it replaced: encode at quality 80, decode, then make a rotated copy. The stand-in uses
+ * ImageIO instead of Android's {@code YuvImage} and {@code BitmapFactory}, so it only indicates the
+ * cost of the old path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class Nv21ConverterBenchmark {
+  private static final int WIDTH = 640;
+  private static final int HEIGHT = 480;
+
+  @Param({"0", "90"})
+  public int rotationDegrees;
+
+  private byte[] nv21;
+  private int[] argb;
+  private BufferedImage frame;
+
+  @Setup
+  public void setUp() {
+    // Smooth gradients plus noise, so JPEG has something realistic to compress.
+    Random random = new Random(7);
+    nv21 = new byte[WIDTH * HEIGHT * 3 / 2];
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < WIDTH; x++) {
+        nv21[y * WIDTH + x] = (byte) ((x + y) / 5 + random.nextInt(16));
+      }
+    }
+    for (int i = WIDTH * HEIGHT; i < nv21.length; i++) {
+      nv21[i] = (byte) (112 + random.nextInt(32));
+    }
+    argb = new int[WIDTH * HEIGHT];
+    frame = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    Nv21Converter.toArgb(nv21, WIDTH, HEIGHT, 0, false, argb);
+    frame.setRGB(0, 0, WIDTH, HEIGHT, argb, 0, WIDTH);
+  }
+
+  @Benchmark
+  public int[] direct() {
+    Nv21Converter.toArgb(nv21, WIDTH, HEIGHT, rotationDegrees, false, argb);
+    return argb;
+  }
+
+  @Benchmark
+  public BufferedImage jpegRoundTrip() throws IOException {
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+    ImageWriteParam param = writer.getDefaultWriteParam();
+    param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+    param.setCompressionQuality(0.8f);
+    try (MemoryCacheImageOutputStream output = new MemoryCacheImageOutputStream(stream)) {
+      writer.setOutput(output);
+      writer.write(null, new IIOImage(frame, null, null), param);
+    } finally {
+      writer.dispose();
+    }
+    BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(stream.toByteArray()));
+
+    AffineTransform rotation = new AffineTransform();
+    if (rotationDegrees == 90) {
+      rotation.translate(HEIGHT, 0);
+    }
+    rotation.rotate(Math.toRadians(rotationDegrees));
+    return new AffineTransformOp(rotation, AffineTransformOp.TYPE_BILINEAR).filter(decoded, null);
+  }
+}
@@ -0,0 +1,65 @@
+package com.fluffycandies.yogaguide.java.posedetector.classification;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Throughput of {@link EMASmoothing} fed with real classifier output at 30 fps. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EMASmoothingBenchmark {
+  private static final long FRAME_INTERVAL_MS = 33;
+
+  private final FakeClock clock = new FakeClock();
+  private EMASmoothing smoothing;
+  private List<ClassificationResult> results;
+  private int next;
+
+  @Setup
+  public void setUp() throws IOException {
+    PoseClassifier classifier = new PoseClassifier(BenchmarkSamples.loadSamples());
+    results = new ArrayList<>();
+    for (List<Point3D> landmarks : BenchmarkSamples.loadLandmarks(/* step= */ 37)) {
+      results.add(classifier.classify(landmarks));
+    }
+    smoothing = new EMASmoothing(clock);
+  }
+
+  @Benchmark
+  public ClassificationResult getSmoothedResult() {
+    clock.nowMs += FRAME_INTERVAL_MS;
+    ClassificationResult result = results.get(next);
+    next = (next + 1) % results.size();
+    return smoothing.getSmoothedResult(result);
+  }
+
+  /** Advances only when told to, so the smoothing window is never reset mid-run. */
+  private static class FakeClock implements Clock {
+    private long nowMs;
+
+    @Override
+    public long elapsedRealtime() {
+      return nowMs;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+      return nowMs;
+    }
+  }
+}
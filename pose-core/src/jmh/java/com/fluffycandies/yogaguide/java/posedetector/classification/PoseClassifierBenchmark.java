@@ -0,0 +1,41 @@
+package com.fluffycandies.yogaguide.java.posedetector.classification;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Single-frame {@link PoseClassifier#classify} latency against the shipped sample set. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PoseClassifierBenchmark {
+  private PoseClassifier classifier;
+  private List<List<Point3D>> queries;
+  private int next;
+
+  @Setup
+  public void setUp() throws IOException {
+    classifier = new PoseClassifier(BenchmarkSamples.loadSamples());
+    queries = BenchmarkSamples.loadLandmarks(/* step= */ 37);
+  }
+
+  @Benchmark
+  public ClassificationResult classify() {
+    List<Point3D> landmarks = queries.get(next);
+    next = (next + 1) % queries.size();
+    return classifier.classify(landmarks);
+  }
+}
@@ -0,0 +1,56 @@
+package com.fluffycandies.yogaguide.java.posedetector.classification;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Cost of turning one frame of landmarks into a {@link PoseEmbedding}. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PoseEmbeddingBenchmark {
+  private List<List<Point3D>> queries;
+  private float[][] packedQueries;
+  private final float[] normalized = new float[PoseLandmarkIndex.NUM_LANDMARKS * 3];
+  private final float[] embedding = new float[PoseEmbedding.EMBEDDING_SIZE * 3];
+  private final float[] flippedEmbedding = new float[PoseEmbedding.EMBEDDING_SIZE * 3];
+  private int next;
+
+  @Setup
+  public void setUp() throws IOException {
+    queries = BenchmarkSamples.loadLandmarks(/* step= */ 37);
+    packedQueries = new float[queries.size()][];
+    for (int i = 0; i < queries.size(); i++) {
+      packedQueries[i] = BenchmarkSamples.packLandmarks(queries.get(i));
+    }
+  }
+
+  @Benchmark
+  public List<Point3D> getPoseEmbedding() {
+    List<Point3D> landmarks = queries.get(next);
+    next = (next + 1) % queries.size();
+    return PoseEmbedding.getPoseEmbedding(landmarks);
+  }
+
+  /** Same embedding plus its mirror image, written into reused buffers. */
+  @Benchmark
+  public float[] getPoseEmbeddingIntoBuffers() {
+    float[] landmarks = packedQueries[next];
+    next = (next + 1) % packedQueries.length;
+    PoseEmbedding.getPoseEmbedding(landmarks, normalized, embedding, flippedEmbedding);
+    return flippedEmbedding;
+  }
+}
@@ -0,0 +1,68 @@
+package com.fluffycandies.yogaguide.java.posedetector.classification;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to load the pose samples and build the {@link PoseClassifier}, i.e. the work done before
+ * the first frame can be classified. Compares parsing the csv with reading the precomputed binary
+ * file written by {@link PoseSampleCodec}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(3)
+public class PoseSampleLoaderBenchmark {
+  private File samplesFile;
+  private File binaryFile;
+
+  @Setup
+  public void setUp() throws IOException {
+    samplesFile = BenchmarkSamples.samplesFile();
+    binaryFile = File.createTempFile("yoga_poses", ".bin");
+    binaryFile.deleteOnExit();
+    try (OutputStream out = new FileOutputStream(binaryFile)) {
+      PoseSampleCodec.write(BenchmarkSamples.loadSamples(), out);
+    }
+  }
+
+  @Benchmark
+  public List<PoseSample> loadCsv() throws IOException {
+    try (FileReader reader = new FileReader(samplesFile)) {
+      return PoseSampleLoader.load(reader);
+    }
+  }
+
+  @Benchmark
+  public PoseClassifier loadCsvAndBuildClassifier() throws IOException {
+    return new PoseClassifier(loadCsv());
+  }
+
+  @Benchmark
+  public PoseClassifier loadBinaryAndBuildClassifier() throws IOException {
+    try (FileInputStream in = new FileInputStream(binaryFile)) {
+      FileChannel channel = in.getChannel();
+      return new PoseClassifier(
+          PoseSampleCodec.read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())));
+    }
+  }
+}
@@ -0,0 +1,132 @@
+package com.fluffycandies.yogaguide.java.posedetector.classification;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link PoseClassifier.SearchStrategy}s as the sample set grows.
+ *
+ * <p>Larger sample sets are synthesized by jittering the shipped samples, which approximates
+ * adding more recordings of the same poses. Setup prints the recall of the vantage-point tree's
+ * max distance candidates against an exhaustive sort, which should stay at 1.0.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpatialIndexBenchmark {
+  private static final int MAX_DISTANCE_TOP_K = 30;
+  private static final Point3D AXES_WEIGHTS = Point3D.from(1, 1, 0.2f);
+  // Embedding units are percent of body size, so this is a small change of posture.
+  private static final float JITTER = 2f;
+  private static final int RECALL_QUERIES = 50;
+
+  @Param({"2000", "10000", "30000", "100000"})
+  public int sampleCount;
+
+  @Param({"LINEAR_SCAN", "VANTAGE_POINT_TREE"})
+  public PoseClassifier.SearchStrategy searchStrategy;
+
+  private PoseClassifier classifier;
+  private List<List<Point3D>> queries;
+  private int next;
+
+  @Setup
+  public void setUp() throws IOException {
+    PoseSampleStore store = synthesize(
+        new PoseSampleStore(BenchmarkSamples.loadSamples()), sampleCount, new Random(1));
+    classifier = new PoseClassifier(store, searchStrategy);
+    queries = BenchmarkSamples.loadLandmarks(/* step= */ 37);
+    if (searchStrategy == PoseClassifier.SearchStrategy.VANTAGE_POINT_TREE) {
+      System.out.printf(
+          Locale.US, "%nrecall@%d with %d samples: %.4f%n",
+          MAX_DISTANCE_TOP_K, sampleCount, recall(store));
+    }
+  }
+
+  @Benchmark
+  public ClassificationResult classify() {
+    List<Point3D> landmarks = queries.get(next);
+    next = (next + 1) % queries.size();
+    return classifier.classify(landmarks);
+  }
+
+  private static PoseSampleStore synthesize(PoseSampleStore source, int count, Random random) {
+    int stride = source.getEmbeddingSize() * 3;
+    float[] sourceEmbeddings = source.getEmbeddings();
+    float[] embeddings = new float[count * stride];
+    String[] classNames = new String[count];
+    for (int i = 0; i < count; i++) {
+      int sourceIndex = i % source.size();
+      for (int j = 0; j < stride; j++) {
+        float jitter = i < source.size() ? 0 : (float) random.nextGaussian() * JITTER;
+        embeddings[i * stride + j] = sourceEmbeddings[sourceIndex * stride + j] + jitter;
+      }
+      classNames[i] = source.getClassName(sourceIndex);
+    }
+    return new PoseSampleStore(embeddings, classNames, source.getEmbeddingSize());
+  }
+
+  /** Mean fraction of the exhaustive top K that the tree search also returns. */
+  private double recall(PoseSampleStore store) throws IOException {
+    VantagePointTree tree = new VantagePointTree(store, AXES_WEIGHTS);
+    TopKSelector neighbours = new TopKSelector(MAX_DISTANCE_TOP_K);
+    List<List<Point3D>> recallQueries = BenchmarkSamples.loadLandmarks(/* step= */ 41);
+    int embeddingLength = store.getEmbeddingSize() * 3;
+    float[] normalized = new float[PoseLandmarkIndex.NUM_LANDMARKS * 3];
+    double total = 0;
+    int evaluated = 0;
+    for (List<Point3D> landmarks : recallQueries.subList(0, RECALL_QUERIES)) {
+      float[] query = new float[embeddingLength];
+      float[] flippedQuery = new float[embeddingLength];
+      PoseEmbedding.getPoseEmbedding(
+          BenchmarkSamples.packLandmarks(landmarks), normalized, query, flippedQuery);
+
+      float[] distances = new float[store.size()];
+      for (int i = 0; i < store.size(); i++) {
+        distances[i] = store.maxDistance(i, query, flippedQuery, AXES_WEIGHTS);
+      }
+      float[] sorted = distances.clone();
+      Arrays.sort(sorted);
+      float kthDistance = sorted[MAX_DISTANCE_TOP_K - 1];
+
+      Set<Integer> found = new HashSet<>();
+      for (float[] treeQuery : new float[][] {query, flippedQuery}) {
+        tree.search(treeQuery, neighbours);
+        for (int i = 0; i < neighbours.size(); i++) {
+          found.add(neighbours.indexAt(i));
+        }
+      }
+
+      // Count hits by distance so that ties at the K-th distance do not count as misses.
+      int hits = 0;
+      for (int index : found) {
+        if (distances[index] <= kthDistance) {
+          hits++;
+        }
+      }
+      total += Math.min(hits, MAX_DISTANCE_TOP_K) / (double) MAX_DISTANCE_TOP_K;
+      evaluated++;
+    }
+    return total / evaluated;
+  }
+}
@@ -0,0 +1,89 @@
+package com.fluffycandies.yogaguide.java.posedetector.classification;
+
+import java.io.IOException;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * First stage top-K selection over the max distances of one frame to every shipped sample, with a
+ * {@link TopKSelector} against the boxed {@link PriorityQueue} it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TopKSelectorBenchmark {
+  private static final int MAX_DISTANCE_TOP_K = 30;
+  private static final Point3D AXES_WEIGHTS = Point3D.from(1, 1, 0.2f);
+
+  private float[][] frameDistances;
+  private final TopKSelector selector = new TopKSelector(MAX_DISTANCE_TOP_K);
+  private int next;
+
+  @Setup
+  public void setUp() throws IOException {
+    PoseSampleStore store = new PoseSampleStore(BenchmarkSamples.loadSamples());
+    List<List<Point3D>> queries = BenchmarkSamples.loadLandmarks(/* step= */ 37);
+    float[] normalized = new float[PoseLandmarkIndex.NUM_LANDMARKS * 3];
+    float[] query = new float[PoseEmbedding.EMBEDDING_SIZE * 3];
+    float[] flippedQuery = new float[PoseEmbedding.EMBEDDING_SIZE * 3];
+    frameDistances = new float[queries.size()][store.size()];
+    for (int q = 0; q < queries.size(); q++) {
+      PoseEmbedding.getPoseEmbedding(
+          BenchmarkSamples.packLandmarks(queries.get(q)), normalized, query, flippedQuery);
+      for (int i = 0; i < store.size(); i++) {
+        frameDistances[q][i] = store.maxDistance(i, query, flippedQuery, AXES_WEIGHTS);
+      }
+    }
+  }
+
+  @Benchmark
+  public void priorityQueue(Blackhole blackhole) {
+    float[] distances = nextFrame();
+    PriorityQueue<Map.Entry<Integer, Float>> maxDistances = new PriorityQueue<>(
+        MAX_DISTANCE_TOP_K, (o1, o2) -> -Float.compare(o1.getValue(), o2.getValue()));
+    for (int i = 0; i < distances.length; i++) {
+      maxDistances.add(new SimpleImmutableEntry<>(i, distances[i]));
+      if (maxDistances.size() > MAX_DISTANCE_TOP_K) {
+        maxDistances.poll();
+      }
+    }
+    for (Map.Entry<Integer, Float> entry : maxDistances) {
+      blackhole.consume(entry.getKey().intValue());
+    }
+  }
+
+  @Benchmark
+  public void topKSelector(Blackhole blackhole) {
+    float[] distances = nextFrame();
+    selector.clear();
+    for (int i = 0; i < distances.length; i++) {
+      selector.offer(i, distances[i]);
+    }
+    for (int i = 0; i < selector.size(); i++) {
+      blackhole.consume(selector.indexAt(i));
+    }
+  }
+
+  private float[] nextFrame() {
+    float[] distances = frameDistances[next];
+    next = (next + 1) % frameDistances.length;
+    return distances;
+  }
+}
@@ -0,0 +1,189 @@
+package com.fluffycandies.yogaguide.catalog;
+
+import com.fluffycandies.yogaguide.java.posedetector.classification.CoreLog;
+import com.google.gson.stream.JsonReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads the pose catalog assets, Poses.json and angles.json, into typed records.
+ *
+ * <p>Parses straight from the stream with Gson's {@link JsonReader}, so neither the file contents
+ * nor a JSON tree of them is ever held in memory. Records missing a field are skipped and logged;
+ * unknown fields are ignored. The reader passed in is not closed.
+ */
+public final class PoseAssetReader {
+  private static final String TAG = "PoseAssetReader";
+
+  /** Keys of the joints in angles.json, in the order of {@link AngleRecord#getAngles}. */
+  public static final List<String> JOINT_KEYS =
+      Collections.unmodifiableList(
+          Arrays.asList(
+              "left_shoulder",
+              "right_shoulder",
+              "left_elbow",
+              "right_elbow",
+              "left_hip",
+              "right_hip",
+              "left_knee",
+              "right_knee"));
+
+  /** A pose of Poses.json. */
+  public static final class PoseRecord {
+    private final int id;
+    private final String sanskritName;
+    private final String englishName;
+
+    PoseRecord(int id, String sanskritName, String englishName) {
+      this.id = id;
+      this.sanskritName = sanskritName;
+      this.englishName = englishName;
+    }
+
+    public int getId() {
+      return id;
+    }
+
+    public String getSanskritName() {
+      return sanskritName;
+    }
+
+    public String getEnglishName() {
+      return englishName;
+    }
+  }
+
+  /** The ideal joint angles of a pose in angles.json. */
+  public static final class AngleRecord {
+    private final String poseName;
+    private final float[] angles;
+
+    AngleRecord(String poseName, float[] angles) {
+      this.poseName = poseName;
+      this.angles = angles;
+    }
+
+    public String getPoseName() {
+      return poseName;
+    }
+
+    /**
+     * Returns the angles in degrees, in the order of {@link PoseAssetReader#JOINT_KEYS}. Don't
+     * modify.
+     */
+    public float[] getAngles() {
+      return angles;
+    }
+  }
+
+  /** Reads the {@code "Poses"} array of Poses.json, in file order. */
+  public static List<PoseRecord> readPoses(Reader in) throws IOException {
+    List<PoseRecord> records = new ArrayList<>();
+    JsonReader reader = new JsonReader(in);
+    reader.beginObject();
+    while (reader.hasNext()) {
+      if (!reader.nextName().equals("Poses")) {
+        reader.skipValue();
+        continue;
+      }
+      reader.beginArray();
+      while (reader.hasNext()) {
+        PoseRecord record = readPose(reader);
+        if (record != null) {
+          records.add(record);
+        }
+      }
+      reader.endArray();
+    }
+    reader.endObject();
+    return records;
+  }
+
+  /**
+   * Reads the {@code "Angles"} array of angles.json, in file order. A pose listed more than once
+   * gets a record for each.
+   */
+  public static List<AngleRecord> readAngles(Reader in) throws IOException {
+    List<AngleRecord> records = new ArrayList<>();
+    JsonReader reader = new JsonReader(in);
+    reader.beginObject();
+    while (reader.hasNext()) {
+      if (!reader.nextName().equals("Angles")) {
+        reader.skipValue();
+        continue;
+      }
+      reader.beginArray();
+      while (reader.hasNext()) {
+        // Each element maps the name of a pose to its angles.
+        reader.beginObject();
+        while (reader.hasNext()) {
+          String poseName = reader.nextName();
+          float[] angles = readJointAngles(reader);
+          if (angles != null) {
+            records.add(new AngleRecord(poseName, angles));
+          } else {
+            CoreLog.e(TAG, "Skipping " + poseName + ", it is missing joint angles");
+          }
+        }
+        reader.endObject();
+      }
+      reader.endArray();
+    }
+    reader.endObject();
+    return records;
+  }
+
+  /** Returns the next pose object, or null if it lacks a field. */
+  private static PoseRecord readPose(JsonReader reader) throws IOException {
+    int id = -1;
+    String sanskritName = null;
+    String englishName = null;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      switch (reader.nextName()) {
+        case "id":
+          id = reader.nextInt();
+          break;
+        case "sanskrit_name":
+          sanskritName = reader.nextString();
+          break;
+        case "english_name":
+          englishName = reader.nextString();
+          break;
+        default:
+          reader.skipValue();
+      }
+    }
+    reader.endObject();
+    if (id < 0 || sanskritName == null || englishName == null) {
+      CoreLog.e(TAG, "Skipping pose " + sanskritName + ", it is missing fields");
+      return null;
+    }
+    return new PoseRecord(id, sanskritName, englishName);
+  }
+
+  /** Returns the next object of joint angles, or null if it lacks a joint. */
+  private static float[] readJointAngles(JsonReader reader) throws IOException {
+    float[] angles = new float[JOINT_KEYS.size()];
+    int readJointMask = 0;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      int joint = JOINT_KEYS.indexOf(reader.nextName());
+      if (joint < 0) {
+        reader.skipValue();
+        continue;
+      }
+      // Also takes angles written as strings.
+      angles[joint] = (float) reader.nextDouble();
+      readJointMask |= 1 << joint;
+    }
+    reader.endObject();
+    return readJointMask == (1 << JOINT_KEYS.size()) - 1 ? angles : null;
+  }
+
+  private PoseAssetReader() {}
+}
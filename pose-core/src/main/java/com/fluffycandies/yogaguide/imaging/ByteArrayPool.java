@@ -0,0 +1,51 @@
+package com.fluffycandies.yogaguide.imaging;
+
+import java.util.ArrayDeque;
+
+/**
+ * Pool of equally sized {@code byte[]}s for per-frame image buffers.
+ *
+ * <p>Camera frames keep the same size for the whole stream, so the pool only holds buffers of the
+ * size last asked for. Asking for a different size, e.g. after a resolution change, drops the idle
+ * buffers of the old size. Thread-safe.
+ */
+public final class ByteArrayPool {
+  private final int maxIdleBuffers;
+  private final ArrayDeque<byte[]> idleBuffers = new ArrayDeque<>();
+  private int bufferSize = -1;
+  private long allocationCount;
+
+  /** @param maxIdleBuffers how many released buffers to keep around for reuse. */
+  public ByteArrayPool(int maxIdleBuffers) {
+    this.maxIdleBuffers = maxIdleBuffers;
+  }
+
+  /** Returns a buffer of exactly {@code size} bytes, reusing a released one if possible. */
+  public synchronized byte[] acquire(int size) {
+    if (size != bufferSize) {
+      idleBuffers.clear();
+      bufferSize = size;
+    }
+    byte[] buffer = idleBuffers.pollFirst();
+    if (buffer == null) {
+      buffer = new byte[size];
+      allocationCount++;
+    }
+    return buffer;
+  }
+
+  /**
+   * Returns a buffer to the pool. The caller must not touch it afterwards. Buffers of a size the
+   * pool no longer hands out are dropped.
+   */
+  public synchronized void release(byte[] buffer) {
+    if (buffer.length == bufferSize && idleBuffers.size() < maxIdleBuffers) {
+      idleBuffers.addFirst(buffer);
+    }
+  }
+
+  /** Returns how many buffers the pool has allocated, to check that steady state allocates none. */
+  public synchronized long getAllocationCount() {
+    return allocationCount;
+  }
+}
@@ -0,0 +1,114 @@
+package com.fluffycandies.yogaguide.imaging;
+
+/**
+ * Converts NV21 frames straight to ARGB_8888 pixels, rotating and mirroring in the same pass.
+ *
+ * <p>Colors use the full range BT.601 matrix in 16.16 fixed point, which is what camera NV21 and
+ * JPEG both use, so output matches the old JPEG round trip up to its compression loss.
+ */
+public final class Nv21Converter {
+  private static final int SHIFT = 16;
+  private static final int HALF = 1 << (SHIFT - 1);
+  // Full range BT.601: R = Y + 1.402 V', G = Y - 0.344 U' - 0.714 V', B = Y + 1.772 U'.
+  private static final int V_TO_R = 91881;
+  private static final int U_TO_G = 22554;
+  private static final int V_TO_G = 46802;
+  private static final int U_TO_B = 116130;
+
+  /** Returns the width of a {@code width} x {@code height} frame once rotated. */
+  public static int rotatedWidth(int width, int height, int rotationDegrees) {
+    return isSideways(rotationDegrees) ? height : width;
+  }
+
+  /** Returns the height of a {@code width} x {@code height} frame once rotated. */
+  public static int rotatedHeight(int width, int height, int rotationDegrees) {
+    return isSideways(rotationDegrees) ? width : height;
+  }
+
+  /**
+   * Converts an NV21 frame to ARGB_8888 pixels.
+   *
+   * @param nv21 {@code width * height} Y bytes followed by interleaved V and U at half resolution.
+   * @param width frame width, must be even.
+   * @param height frame height, must be even.
+   * @param rotationDegrees clockwise rotation to apply, one of 0, 90, 180 or 270.
+   * @param mirror whether to mirror the rotated frame horizontally.
+   * @param out receives the rotated frame row by row, at least {@code width * height} ints. Its row
+   *     length is {@link #rotatedWidth}.
+   */
+  public static void toArgb(
+      byte[] nv21, int width, int height, int rotationDegrees, boolean mirror, int[] out) {
+    int rotation = normalize(rotationDegrees);
+    int imageSize = width * height;
+    for (int y = 0; y < height; y++) {
+      // Where pixels 0 and 1 of this row land gives the start and step for the whole row.
+      int outIndex = destinationIndex(0, y, width, height, rotation, mirror);
+      int outStep = destinationIndex(1, y, width, height, rotation, mirror) - outIndex;
+      int yIndex = y * width;
+      int uvIndex = imageSize + (y >> 1) * width;
+      for (int x = 0; x < width; x += 2) {
+        int v = (nv21[uvIndex++] & 0xFF) - 128;
+        int u = (nv21[uvIndex++] & 0xFF) - 128;
+        int red = V_TO_R * v + HALF;
+        int green = -U_TO_G * u - V_TO_G * v + HALF;
+        int blue = U_TO_B * u + HALF;
+
+        int luma = (nv21[yIndex++] & 0xFF) << SHIFT;
+        out[outIndex] = argb(luma + red, luma + green, luma + blue);
+        outIndex += outStep;
+        luma = (nv21[yIndex++] & 0xFF) << SHIFT;
+        out[outIndex] = argb(luma + red, luma + green, luma + blue);
+        outIndex += outStep;
+      }
+    }
+  }
+
+  private static int destinationIndex(
+      int x, int y, int width, int height, int rotation, boolean mirror) {
+    int outWidth = rotatedWidth(width, height, rotation);
+    int outX;
+    int outY;
+    switch (rotation) {
+      case 90:
+        outX = height - 1 - y;
+        outY = x;
+        break;
+      case 180:
+        outX = width - 1 - x;
+        outY = height - 1 - y;
+        break;
+      case 270:
+        outX = y;
+        outY = width - 1 - x;
+        break;
+      default:
+        outX = x;
+        outY = y;
+    }
+    if (mirror) {
+      outX = outWidth - 1 - outX;
+    }
+    return outY * outWidth + outX;
+  }
+
+  private static int argb(int red, int green, int blue) {
+    return 0xFF000000 | (clamp(red) << 16) | (clamp(green) << 8) | clamp(blue);
+  }
+
+  private static int clamp(int fixedPoint) {
+    int value = fixedPoint >> SHIFT;
+    return value < 0 ? 0 : (value > 255 ? 255 : value);
+  }
+
+  private static boolean isSideways(int rotationDegrees) {
+    int rotation = normalize(rotationDegrees);
+    return rotation == 90 || rotation == 270;
+  }
+
+  private static int normalize(int rotationDegrees) {
+    int rotation = rotationDegrees % 360;
+    return rotation < 0 ? rotation + 360 : rotation;
+  }
+
+  private Nv21Converter() {}
+}
@@ -0,0 +1,71 @@
+package com.fluffycandies.yogaguide.imaging;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Copies the planes of a YUV_420_888 frame into an NV21 array with bulk row reads instead of one
+ * {@link ByteBuffer#get(int)} per pixel.
+ *
+ * <p>Each source row is read with a single relative bulk get, straight into the output when
+ * neither side is strided, otherwise into a reused row buffer that is then de-interleaved. Row
+ * padding is skipped by positioning at every row start, and the last row may stop right after its
+ * last pixel as camera buffers often do. Keep one instance per stream so the row buffer is reused.
+ * Not thread-safe.
+ */
+public final class YuvPlaneUnpacker {
+  private byte[] rowBuffer = new byte[0];
+
+  /**
+   * Unpacks one plane.
+   *
+   * @param buffer the plane's pixels. Its position is changed.
+   * @param rowStride bytes between the starts of two rows in {@code buffer}.
+   * @param pixelStride bytes between two pixels of a row in {@code buffer}.
+   * @param planeWidth pixels per row.
+   * @param planeHeight rows.
+   * @param out receives the pixels without row padding.
+   * @param offset index in {@code out} of the first pixel.
+   * @param outPixelStride spacing of pixels in {@code out}, 2 to interleave U and V.
+   */
+  public void unpack(
+      ByteBuffer buffer,
+      int rowStride,
+      int pixelStride,
+      int planeWidth,
+      int planeHeight,
+      byte[] out,
+      int offset,
+      int outPixelStride) {
+    if (planeWidth <= 0 || planeHeight <= 0) {
+      return;
+    }
+    int rowSpan = (planeWidth - 1) * pixelStride + 1;
+    int start = buffer.position();
+
+    if (pixelStride == 1 && outPixelStride == 1) {
+      if (rowStride == planeWidth) {
+        buffer.get(out, offset, planeWidth * planeHeight);
+        return;
+      }
+      for (int row = 0; row < planeHeight; row++) {
+        buffer.position(start + row * rowStride);
+        buffer.get(out, offset + row * planeWidth, planeWidth);
+      }
+      return;
+    }
+
+    if (rowBuffer.length < rowSpan) {
+      rowBuffer = new byte[rowSpan];
+    }
+    byte[] row = rowBuffer;
+    int outPos = offset;
+    for (int r = 0; r < planeHeight; r++) {
+      buffer.position(start + r * rowStride);
+      buffer.get(row, 0, rowSpan);
+      for (int in = 0; in < rowSpan; in += pixelStride) {
+        out[outPos] = row[in];
+        outPos += outPixelStride;
+      }
+    }
+  }
+}
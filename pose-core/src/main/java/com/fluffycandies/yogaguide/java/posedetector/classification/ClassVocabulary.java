@@ -0,0 +1,51 @@
+package com.fluffycandies.yogaguide.java.posedetector.classification;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps each pose class name to a dense int id, from 0 to {@link #size()} exclusive.
+ *
+ * <p>Built once from the sample set and shared by everything derived from it, so per-frame code
+ * can index {@code float[]}s by class id instead of hashing class names.
+ */
+public final class ClassVocabulary {
+  private final String[] names;
+  private final Map<String, Integer> ids;
+
+  /** Assigns ids to the distinct {@code classNames} in order of first appearance. */
+  public ClassVocabulary(Collection<String> classNames) {
+    ids = new HashMap<>();
+    for (String className : classNames) {
+      if (!ids.containsKey(className)) {
+        ids.put(className, ids.size());
+      }
+    }
+    names = new String[ids.size()];
+    for (Map.Entry<String, Integer> entry : ids.entrySet()) {
+      names[entry.getValue()] = entry.getKey();
+    }
+  }
+
+  public int size() {
+    return names.length;
+  }
+
+  /** Returns the id of {@code className}, or -1 if it is not in the vocabulary. */
+  public int getId(String className) {
+    Integer id = ids.get(className);
+    return id == null ? -1 : id;
+  }
+
+  public String getName(int classId) {
+    return names[classId];
+  }
+
+  /** Returns all class names, indexed by id. */
+  public List<String> getNames() {
+    return Arrays.asList(names.clone());
+  }
+}
@@ -0,0 +1,141 @@
+package com.fluffycandies.yogaguide.java.posedetector.classification;
+
+/**
+ * Remembers the last full classification of a stream of poses, so that while the pose barely moves,
+ * as during a yoga hold, the next classifications skip most of the samples.
+ *
+ * <p>A full scan computes the max distance of every sample to the query. The cache keeps the query
+ * embedding, the result and a shortlist of the samples within the K-th max distance plus twice
+ * {@code maxDrift}. The max distance is a weighted max-abs metric, so for a query within {@code
+ * maxDrift} of the cached one every sample moves by at most {@code maxDrift}: the K-th max distance
+ * grows by at most that much and no sample outside the shortlist can get under it. Scanning only
+ * the shortlist therefore selects the same top K samples as a full scan, and the result is the same.
+ * A query identical to the cached one reuses the cached result, anything farther than {@code
+ * maxDrift} is a miss and gets a full scan, which refills the cache. With a {@code maxDrift} of 0
+ * only identical queries are served from the cache.
+ *
+ * <p>Hold one per stream of poses, passed to {@link PoseClassifier#classify(float[],
+ * ClassificationCache)}. Not thread-safe.
+ */
+public final class ClassificationCache {
+  /**
+   * Default max drift, in embedding units where the pose size is 100. Covers the landmark jitter
+   * of a hold while the shortlist stays a few percent of the samples.
+   */
+  public static final float DEFAULT_MAX_DRIFT = 5f;
+  // Slack for float rounding, so the triangle inequality the shortlist relies on holds.
+  private static final float RELATIVE_ROUNDING_MARGIN = 1e-5f;
+  private static final float ABSOLUTE_ROUNDING_MARGIN = 1e-6f;
+
+  private final float maxDrift;
+
+  // State of the last full scan, valid for the classifier it was made with.
+  private PoseClassifier classifier;
+  private float[] embedding = new float[0];
+  private float[] distances = new float[0];
+  private int[] shortlist = new int[0];
+  private int shortlistSize;
+  private ClassificationResult result;
+
+  private long hitCount;
+  private long refinedCount;
+  private long missCount;
+
+  public ClassificationCache() {
+    this(DEFAULT_MAX_DRIFT);
+  }
+
+  /** @param maxDrift max distance from the cached query for which the shortlist is scanned. */
+  public ClassificationCache(float maxDrift) {
+    if (Float.isNaN(maxDrift) || maxDrift < 0) {
+      throw new IllegalArgumentException("Max drift must not be negative: " + maxDrift);
+    }
+    this.maxDrift = maxDrift;
+  }
+
+  public float getMaxDrift() {
+    return maxDrift;
+  }
+
+  /** Returns how many queries were identical to the cached one and reused its result. */
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  /** Returns how many queries were within the max drift and only scanned the shortlist. */
+  public long getRefinedCount() {
+    return refinedCount;
+  }
+
+  /** Returns how many queries needed a full scan. */
+  public long getMissCount() {
+    return missCount;
+  }
+
+  boolean isFor(PoseClassifier classifier) {
+    return this.classifier == classifier && result != null;
+  }
+
+  float[] getEmbedding() {
+    return embedding;
+  }
+
+  int[] getShortlist() {
+    return shortlist;
+  }
+
+  int getShortlistSize() {
+    return shortlistSize;
+  }
+
+  /** Copies the cached result into {@code out}, counting a hit. */
+  void reuseResult(ClassificationResult out) {
+    hitCount++;
+    for (int classId = 0; classId < result.getVocabulary().size(); classId++) {
+      out.putClassConfidence(classId, result.getClassConfidence(classId));
+    }
+  }
+
+  void recordRefined() {
+    refinedCount++;
+  }
+
+  /**
+   * Starts refilling the cache with a full scan of {@code sampleCount} samples, and returns the
+   * array to store the max distance of each sample in.
+   */
+  float[] beginFullScan(PoseClassifier classifier, int sampleCount, float[] queryEmbedding) {
+    missCount++;
+    this.classifier = classifier;
+    result = null;
+    if (embedding.length != queryEmbedding.length) {
+      embedding = new float[queryEmbedding.length];
+    }
+    System.arraycopy(queryEmbedding, 0, embedding, 0, queryEmbedding.length);
+    if (distances.length < sampleCount) {
+      distances = new float[sampleCount];
+      shortlist = new int[sampleCount];
+    }
+    return distances;
+  }
+
+  /**
+   * Completes a full scan with the K-th max distance, infinite if there are fewer than K samples,
+   * and the result of the scan.
+   */
+  void endFullScan(int sampleCount, float kthMaxDistance, ClassificationResult scanResult) {
+    // A copy, the caller owns the returned result.
+    result = new ClassificationResult(scanResult.getVocabulary());
+    for (int classId = 0; classId < result.getVocabulary().size(); classId++) {
+      result.putClassConfidence(classId, scanResult.getClassConfidence(classId));
+    }
+    float radius = kthMaxDistance + 2 * maxDrift;
+    radius += radius * RELATIVE_ROUNDING_MARGIN + ABSOLUTE_ROUNDING_MARGIN;
+    shortlistSize = 0;
+    for (int i = 0; i < sampleCount; i++) {
+      if (distances[i] <= radius) {
+        shortlist[shortlistSize++] = i;
+      }
+    }
+  }
+}
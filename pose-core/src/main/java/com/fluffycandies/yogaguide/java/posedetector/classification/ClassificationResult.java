@@ -0,0 +1,103 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.fluffycandies.yogaguide.java.posedetector.classification;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+public class ClassificationResult {
+  private final ClassVocabulary vocabulary;
+  // Indexed by class id, the value is how many times this class appears in the top K nearest
+  // neighbors. The value is in range [0, K] and could be a float after EMA smoothing. We use this
+  // number to represent the confidence of a pose being in this class.
+  private final float[] classConfidences;
+
+  public ClassificationResult(ClassVocabulary vocabulary) {
+    this.vocabulary = vocabulary;
+    this.classConfidences = new float[vocabulary.size()];
+  }
+
+  public ClassVocabulary getVocabulary() {
+    return vocabulary;
+  }
+
+  /** Returns the classes with a non-zero confidence. */
+  public Set<String> getAllClasses() {
+    Set<String> allClasses = new LinkedHashSet<>();
+    for (int classId = 0; classId < classConfidences.length; classId++) {
+      if (classConfidences[classId] != 0) {
+        allClasses.add(vocabulary.getName(classId));
+      }
+    }
+    return allClasses;
+  }
+
+  public float getClassConfidence(String className) {
+    int classId = vocabulary.getId(className);
+    return classId < 0 ? 0 : classConfidences[classId];
+  }
+
+  public float getClassConfidence(int classId) {
+    return classConfidences[classId];
+  }
+
+  /** Returns the class with the highest confidence, or null if all confidences are zero. */
+  public String getMaxConfidenceClass() {
+    int classId = getMaxConfidenceClassId();
+    return classId < 0 ? null : vocabulary.getName(classId);
+  }
+
+  /**
+   * Returns the id of the class with the highest confidence, the lowest id on ties, or -1 if all
+   * confidences are zero.
+   */
+  public int getMaxConfidenceClassId() {
+    int maxClassId = -1;
+    float maxConfidence = 0;
+    for (int classId = 0; classId < classConfidences.length; classId++) {
+      if (classConfidences[classId] > maxConfidence) {
+        maxConfidence = classConfidences[classId];
+        maxClassId = classId;
+      }
+    }
+    return maxClassId;
+  }
+
+  public void incrementClassConfidence(String className) {
+    classConfidences[requireId(className)]++;
+  }
+
+  public void incrementClassConfidence(int classId) {
+    classConfidences[classId]++;
+  }
+
+  public void putClassConfidence(String className, float confidence) {
+    classConfidences[requireId(className)] = confidence;
+  }
+
+  public void putClassConfidence(int classId, float confidence) {
+    classConfidences[classId] = confidence;
+  }
+
+  private int requireId(String className) {
+    int classId = vocabulary.getId(className);
+    if (classId < 0) {
+      throw new IllegalArgumentException("Unknown class " + className);
+    }
+    return classId;
+  }
+}
@@ -0,0 +1,156 @@
+package com.fluffycandies.yogaguide.java.posedetector.classification;
+
+/**
+ * Decides which detected poses get classified, so that classification can run below the detection
+ * rate while the skeleton is still drawn for every frame.
+ *
+ * <p>Classifying every frame is mostly wasted: {@link CountdownTimer} only advances once a second
+ * and {@link EMASmoothing} averages over a window of results anyway. A scheduler either classifies
+ * at a fixed rate, or only once the landmarks moved more than a threshold since the last classified
+ * pose, and then still at least every {@code maxIntervalMs} so the countdown keeps going while the
+ * pose is held still. A pose appearing or getting lost is always classified.
+ *
+ * <p>Not thread-safe, call from the thread classifying.
+ */
+public final class ClassificationScheduler {
+  /** Mean landmark movement, relative to the size of the pose, that counts as motion. */
+  public static final float DEFAULT_MOTION_THRESHOLD = 0.02f;
+  /** Longest a held pose goes unclassified, well below the second {@link CountdownTimer} needs. */
+  public static final long DEFAULT_MAX_INTERVAL_MS = 250;
+
+  // Classification period in fixed rate mode, 0 for every frame.
+  private final long periodMs;
+  // NaN unless in motion mode.
+  private final float motionThreshold;
+  private final long maxIntervalMs;
+
+  private int frameInterval = 1;
+
+  private final float[] lastLandmarks = new float[PoseLandmarkIndex.NUM_LANDMARKS * 3];
+  private float lastPoseSize;
+  private boolean hasClassified;
+  private boolean lastHadPose;
+  private long lastClassifiedMs;
+  private long nextDueMs;
+  private int framesSinceClassified;
+
+  private long classifiedCount;
+  private long skippedCount;
+
+  private ClassificationScheduler(long periodMs, float motionThreshold, long maxIntervalMs) {
+    this.periodMs = periodMs;
+    this.motionThreshold = motionThreshold;
+    this.maxIntervalMs = maxIntervalMs;
+  }
+
+  /** Returns a scheduler that classifies every frame. */
+  public static ClassificationScheduler everyFrame() {
+    return new ClassificationScheduler(0, Float.NaN, 0);
+  }
+
+  /** Returns a scheduler that classifies {@code ratePerSecond} frames a second at most. */
+  public static ClassificationScheduler fixedRate(float ratePerSecond) {
+    if (ratePerSecond <= 0) {
+      throw new IllegalArgumentException("Rate must be positive: " + ratePerSecond);
+    }
+    return new ClassificationScheduler(Math.round(1000 / ratePerSecond), Float.NaN, 0);
+  }
+
+  /**
+   * Returns a scheduler that classifies a frame once the mean landmark movement since the last
+   * classified one exceeds {@code motionThreshold} times the size of the pose, or {@code
+   * maxIntervalMs} passed.
+   */
+  public static ClassificationScheduler onMotion(float motionThreshold, long maxIntervalMs) {
+    return new ClassificationScheduler(0, motionThreshold, maxIntervalMs);
+  }
+
+  /**
+   * Classifies at most every {@code frameInterval}th frame on top of the schedule, e.g. while the
+   * quality of the pipeline is lowered.
+   */
+  public void setFrameInterval(int frameInterval) {
+    this.frameInterval = Math.max(1, frameInterval);
+  }
+
+  /**
+   * Returns whether to classify the pose of a frame, and if so remembers it as the last classified
+   * one.
+   *
+   * @param nowMs monotonic time of the frame.
+   * @param landmarks packed x, y, z of the landmarks, empty if no pose was detected.
+   */
+  public boolean shouldClassify(long nowMs, float[] landmarks) {
+    framesSinceClassified++;
+    boolean hasPose = landmarks.length > 0;
+    boolean isDue;
+    if (!hasClassified || hasPose != lastHadPose) {
+      isDue = true;
+    } else if (framesSinceClassified < frameInterval) {
+      isDue = false;
+    } else if (!Float.isNaN(motionThreshold)) {
+      isDue =
+          nowMs - lastClassifiedMs >= maxIntervalMs
+              || (hasPose && movement(landmarks) > motionThreshold);
+    } else {
+      isDue = nowMs >= nextDueMs;
+    }
+
+    if (!isDue) {
+      skippedCount++;
+      return false;
+    }
+    classifiedCount++;
+    hasClassified = true;
+    lastHadPose = hasPose;
+    lastClassifiedMs = nowMs;
+    framesSinceClassified = 0;
+    // Keeps the rate when frames don't line up with the period, unless it fell behind.
+    nextDueMs += periodMs;
+    if (nextDueMs <= nowMs) {
+      nextDueMs = nowMs + periodMs;
+    }
+    if (hasPose) {
+      System.arraycopy(landmarks, 0, lastLandmarks, 0, lastLandmarks.length);
+      lastPoseSize = poseSize(landmarks);
+    }
+    return true;
+  }
+
+  public long getClassifiedCount() {
+    return classifiedCount;
+  }
+
+  public long getSkippedCount() {
+    return skippedCount;
+  }
+
+  /** Returns the mean 2D landmark movement since the last classified pose, relative to its size. */
+  private float movement(float[] landmarks) {
+    if (lastPoseSize <= 0) {
+      return Float.POSITIVE_INFINITY;
+    }
+    float sum = 0;
+    for (int i = 0; i < lastLandmarks.length; i += 3) {
+      float dx = landmarks[i] - lastLandmarks[i];
+      float dy = landmarks[i + 1] - lastLandmarks[i + 1];
+      sum += (float) Math.sqrt(dx * dx + dy * dy);
+    }
+    return sum / PoseLandmarkIndex.NUM_LANDMARKS / lastPoseSize;
+  }
+
+  /** Returns the larger side of the 2D bounding box of the landmarks. */
+  private static float poseSize(float[] landmarks) {
+    float minX = Float.POSITIVE_INFINITY;
+    float maxX = Float.NEGATIVE_INFINITY;
+    float minY = Float.POSITIVE_INFINITY;
+    float maxY = Float.NEGATIVE_INFINITY;
+    for (int i = 0; i < landmarks.length; i += 3) {
+      minX = Math.min(minX, landmarks[i]);
+      maxX = Math.max(maxX, landmarks[i]);
+      minY = Math.min(minY, landmarks[i + 1]);
+      maxY = Math.max(maxY, landmarks[i + 1]);
+    }
+    return Math.max(maxX - minX, maxY - minY);
+  }
+}
@@ -0,0 +1,24 @@
+package com.fluffycandies.yogaguide.java.posedetector.classification;
+
+/** Time source for the classification code, so it can run off-device and under test. */
+public interface Clock {
+  /** Default clock backed by the JVM's monotonic and wall clocks. */
+  Clock SYSTEM =
+      new Clock() {
+        @Override
+        public long elapsedRealtime() {
+          return System.nanoTime() / 1_000_000;
+        }
+
+        @Override
+        public long currentTimeMillis() {
+          return System.currentTimeMillis();
+        }
+      };
+
+  /** Monotonic milliseconds, only meaningful relative to other readings of the same clock. */
+  long elapsedRealtime();
+
+  /** Wall clock milliseconds since the epoch. */
+  long currentTimeMillis();
+}
@@ -0,0 +1,36 @@
+package com.fluffycandies.yogaguide.java.posedetector.classification;
+
+/**
+ * Process-wide {@link Logger} used by the classification code.
+ *
+ * <p>Defaults to dropping debug messages and printing errors to stderr. The app installs a Logcat
+ * backed logger on startup.
+ */
+public final class CoreLog {
+  private static final Logger DEFAULT_LOGGER =
+      new Logger() {
+        @Override
+        public void d(String tag, String message) {}
+
+        @Override
+        public void e(String tag, String message) {
+          System.err.println(tag + ": " + message);
+        }
+      };
+
+  private static volatile Logger logger = DEFAULT_LOGGER;
+
+  public static void setLogger(Logger newLogger) {
+    logger = newLogger != null ? newLogger : DEFAULT_LOGGER;
+  }
+
+  public static void d(String tag, String message) {
+    logger.d(tag, message);
+  }
+
+  public static void e(String tag, String message) {
+    logger.e(tag, message);
+  }
+
+  private CoreLog() {}
+}
@@ -16,8 +16,6 @@
 
 package com.fluffycandies.yogaguide.java.posedetector.classification;
 
-import android.util.Log;
-
 /**
  * Counts down for the given class.
  */
@@ -28,20 +26,34 @@ public class CountdownTimer {
 
     private final String className;
     private final float threshold;
+    private final Clock clock;
+
+    // Id of className in the vocabulary of the last result, resolved once per vocabulary.
+    private ClassVocabulary vocabulary;
+    private int classId = -1;
 
     private long lastTime;
 
     private int timeCount;
 
     public CountdownTimer(String className) {
-        this(className, DEFAULT_THRESHOLD);
+        this(className, Clock.SYSTEM);
+    }
+
+    public CountdownTimer(String className, Clock clock) {
+        this(className, DEFAULT_THRESHOLD, clock);
     }
 
     public CountdownTimer(String className, float enterThreshold) {
+        this(className, enterThreshold, Clock.SYSTEM);
+    }
+
+    public CountdownTimer(String className, float enterThreshold, Clock clock) {
         this.className = className;
         this.threshold = enterThreshold;
+        this.clock = clock;
         this.timeCount = 0;
-        this.lastTime = System.currentTimeMillis() / 1000;
+        this.lastTime = clock.currentTimeMillis() / 1000;
 
     }
 
@@ -52,9 +64,13 @@ public class CountdownTimer {
      * @return number of reps.
      */
     public int addClassificationResult(ClassificationResult classificationResult) {
-        float poseConfidence = classificationResult.getClassConfidence(className);
+        if (classificationResult.getVocabulary() != vocabulary) {
+            vocabulary = classificationResult.getVocabulary();
+            classId = vocabulary.getId(className);
+        }
+        float poseConfidence = classId < 0 ? 0 : classificationResult.getClassConfidence(classId);
 
-        long currentTime = System.currentTimeMillis() / 1000;
+        long currentTime = clock.currentTimeMillis() / 1000;
         if (poseConfidence > threshold && currentTime >= lastTime + 1 && currentTime < lastTime + 2) {
             timeCount++;
             lastTime = currentTime;
@@ -63,7 +79,7 @@ public class CountdownTimer {
             lastTime = currentTime;
         }
 
-        Log.d("Countdown Timer", className + " countdown = " + timeCount);
+        CoreLog.d("Countdown Timer", className + " countdown = " + timeCount);
 
         return timeCount;
     }
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.fluffycandies.yogaguide.java.posedetector.classification;
+
+/**
+ * Runs EMA smoothing over a window with given stream of pose classification results.
+ *
+ * <p>Instead of re-summing the window every frame, each class keeps a running weighted sum of the
+ * window: every new result decays the sum by {@code 1 - alpha}, adds the new confidence and
+ * subtracts the contribution of the result falling out of the window. Each frame therefore costs
+ * one pass over the classes, whatever the window size.
+ */
+public class EMASmoothing {
+  private static final int DEFAULT_WINDOW_SIZE = 10;
+  private static final float DEFAULT_ALPHA = 0.2f;
+
+  private static final long DEFAULT_RESET_THRESHOLD_MS = 100;
+  // Running sums that should be zero can be left with rounding residue after eviction.
+  private static final double ZERO_EPSILON = 1e-4;
+
+  private final int windowSize;
+  private final long resetThresholdMs;
+  private final Clock clock;
+  private final double decay;
+  // Weight of the oldest result of a full window after one more decay, i.e. decay^windowSize.
+  private final double evictionWeight;
+  // bottomSums[m - 1] is the sum of the weights of a window holding m results.
+  private final float[] bottomSums;
+
+  // Per class state, sized for the vocabulary of the results being smoothed.
+  private ClassVocabulary vocabulary;
+  // The confidences of the last windowSize results, one row of classes per slot.
+  private float[] window;
+  private double[] topSums;
+  private ClassificationResult smoothedResult;
+  private int windowCount;
+  private int nextSlot;
+
+  private long lastInputMs;
+  private volatile boolean resetRequested;
+
+  public EMASmoothing() {
+    this(Clock.SYSTEM);
+  }
+
+  public EMASmoothing(Clock clock) {
+    this(DEFAULT_WINDOW_SIZE, DEFAULT_ALPHA, clock);
+  }
+
+  /**
+   * @param resetThresholdMs gap between two results after which the window is forgotten, e.g.
+   *     longer than the default if not every frame is classified.
+   */
+  public EMASmoothing(long resetThresholdMs, Clock clock) {
+    this(DEFAULT_WINDOW_SIZE, DEFAULT_ALPHA, resetThresholdMs, clock);
+  }
+
+  public EMASmoothing(int windowSize, float alpha) {
+    this(windowSize, alpha, Clock.SYSTEM);
+  }
+
+  public EMASmoothing(int windowSize, float alpha, Clock clock) {
+    this(windowSize, alpha, DEFAULT_RESET_THRESHOLD_MS, clock);
+  }
+
+  public EMASmoothing(int windowSize, float alpha, long resetThresholdMs, Clock clock) {
+    this.windowSize = windowSize;
+    this.resetThresholdMs = resetThresholdMs;
+    this.clock = clock;
+    this.decay = 1.0 - alpha;
+    this.evictionWeight = Math.pow(decay, windowSize);
+    this.bottomSums = new float[windowSize];
+    // Same float arithmetic as the weights were always summed with.
+    float factor = 1;
+    float bottomSum = 0;
+    for (int i = 0; i < windowSize; i++) {
+      bottomSum += factor;
+      bottomSums[i] = bottomSum;
+      factor = (float) (factor * (1.0 - alpha));
+    }
+  }
+
+  /**
+   * Empties the window before the next result. Safe to call from any thread, it takes effect on
+   * the thread feeding results.
+   */
+  public void reset() {
+    resetRequested = true;
+  }
+
+  /**
+   * Adds a result to the window and returns the smoothed confidences.
+   *
+   * <p>The returned result is reused by the next call, so read it before smoothing another one.
+   */
+  public ClassificationResult getSmoothedResult(ClassificationResult classificationResult) {
+    // Resets memory if the input is too far away from the previous one in time. Slots are only
+    // read once overwritten again, so forgetting the window is enough.
+    long nowMs = clock.elapsedRealtime();
+    if (resetRequested || nowMs - lastInputMs > resetThresholdMs) {
+      resetRequested = false;
+      windowCount = 0;
+    }
+    lastInputMs = nowMs;
+
+    if (classificationResult.getVocabulary() != vocabulary) {
+      vocabulary = classificationResult.getVocabulary();
+      window = new float[windowSize * vocabulary.size()];
+      topSums = new double[vocabulary.size()];
+      smoothedResult = new ClassificationResult(vocabulary);
+      windowCount = 0;
+    }
+
+    int classCount = vocabulary.size();
+    int slotStart = nextSlot * classCount;
+    // If we are at window size, the slot being overwritten holds the last (oldest) result.
+    boolean evict = windowCount == windowSize;
+    if (!evict) {
+      windowCount++;
+    }
+    float bottomSum = bottomSums[windowCount - 1];
+    for (int classId = 0; classId < classCount; classId++) {
+      float value = classificationResult.getClassConfidence(classId);
+      double topSum = windowCount == 1 ? 0 : topSums[classId] * decay;
+      if (evict) {
+        topSum -= evictionWeight * window[slotStart + classId];
+      }
+      topSum += value;
+      if (topSum < ZERO_EPSILON) {
+        topSum = 0;
+      }
+      topSums[classId] = topSum;
+      window[slotStart + classId] = value;
+      smoothedResult.putClassConfidence(classId, (float) (topSum / bottomSum));
+    }
+    nextSlot = (nextSlot + 1) % windowSize;
+
+    return smoothedResult;
+  }
+}
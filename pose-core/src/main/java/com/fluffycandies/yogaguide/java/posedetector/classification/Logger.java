@@ -0,0 +1,8 @@
+package com.fluffycandies.yogaguide.java.posedetector.classification;
+
+/** Logging sink for the classification code. See {@link CoreLog}. */
+public interface Logger {
+  void d(String tag, String message);
+
+  void e(String tag, String message);
+}
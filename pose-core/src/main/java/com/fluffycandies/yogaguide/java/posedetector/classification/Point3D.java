@@ -0,0 +1,38 @@
+package com.fluffycandies.yogaguide.java.posedetector.classification;
+
+/**
+ * Immutable 3D point used by the classification code in place of ML Kit's {@code PointF3D}, so
+ * that this module has no Android dependencies.
+ */
+public final class Point3D {
+  private final float x;
+  private final float y;
+  private final float z;
+
+  private Point3D(float x, float y, float z) {
+    this.x = x;
+    this.y = y;
+    this.z = z;
+  }
+
+  public static Point3D from(float x, float y, float z) {
+    return new Point3D(x, y, z);
+  }
+
+  public float getX() {
+    return x;
+  }
+
+  public float getY() {
+    return y;
+  }
+
+  public float getZ() {
+    return z;
+  }
+
+  @Override
+  public String toString() {
+    return "Point3D{x=" + x + ", y=" + y + ", z=" + z + "}";
+  }
+}
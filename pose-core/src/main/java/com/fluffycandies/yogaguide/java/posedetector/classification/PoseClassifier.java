@@ -0,0 +1,346 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.fluffycandies.yogaguide.java.posedetector.classification;
+
+import static com.fluffycandies.yogaguide.java.posedetector.classification.PoseEmbedding.getPoseEmbedding;
+import static java.lang.Math.min;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Classifies {link Pose} based on given {@link PoseSample}s.
+ *
+ * <p>Inspired by K-Nearest Neighbors Algorithm with outlier filtering.
+ * https://en.wikipedia.org/wiki/K-nearest_neighbors_algorithm
+ */
+public class PoseClassifier {
+  private static final String TAG = "PoseClassifier";
+  private static final int MAX_DISTANCE_TOP_K = 30;
+  private static final int MEAN_DISTANCE_TOP_K = 10;
+  // Note Z has a lower weight as it is generally less accurate than X & Y.
+  private static final Point3D AXES_WEIGHTS = Point3D.from(1, 1, 0.2f);
+  // Samples kept from each class that is not confusable with the target, so that an unrelated pose
+  // is still recognized as such instead of being forced onto the target or its neighbours.
+  private static final int BACKGROUND_SAMPLES_PER_CLASS = 3;
+
+  /** How the first, max distance, stage finds its candidates. */
+  public enum SearchStrategy {
+    /** Visits every sample. */
+    LINEAR_SCAN,
+    /**
+     * Looks the candidates up in a {@link VantagePointTree}, visiting only a fraction of the
+     * samples. Pays off for sample sets much larger than the bundled one.
+     */
+    VANTAGE_POINT_TREE
+  }
+
+  private final PoseSampleStore sampleStore;
+  private final int maxDistanceTopK;
+  private final int meanDistanceTopK;
+  private final Point3D axesWeights;
+  private final SearchStrategy searchStrategy;
+  private final VantagePointTree vantagePointTree;
+  private final Map<String, PoseClassifier> targetClassifiers = new ConcurrentHashMap<>();
+  // Per thread, as the classifier is shared between the live preview's classification threads.
+  private final ThreadLocal<QueryBuffers> queryBuffers = new ThreadLocal<QueryBuffers>() {
+    @Override
+    protected QueryBuffers initialValue() {
+      return new QueryBuffers();
+    }
+  };
+
+  public PoseClassifier(List<PoseSample> poseSamples) {
+    this(poseSamples, MAX_DISTANCE_TOP_K, MEAN_DISTANCE_TOP_K, AXES_WEIGHTS);
+  }
+
+  public PoseClassifier(List<PoseSample> poseSamples, int maxDistanceTopK,
+      int meanDistanceTopK, Point3D axesWeights) {
+    this(new PoseSampleStore(poseSamples), maxDistanceTopK, meanDistanceTopK, axesWeights);
+  }
+
+  public PoseClassifier(PoseSampleStore sampleStore) {
+    this(sampleStore, SearchStrategy.LINEAR_SCAN);
+  }
+
+  public PoseClassifier(PoseSampleStore sampleStore, SearchStrategy searchStrategy) {
+    this(sampleStore, MAX_DISTANCE_TOP_K, MEAN_DISTANCE_TOP_K, AXES_WEIGHTS, searchStrategy);
+  }
+
+  public PoseClassifier(PoseSampleStore sampleStore, int maxDistanceTopK,
+      int meanDistanceTopK, Point3D axesWeights) {
+    this(sampleStore, maxDistanceTopK, meanDistanceTopK, axesWeights, SearchStrategy.LINEAR_SCAN);
+  }
+
+  public PoseClassifier(PoseSampleStore sampleStore, int maxDistanceTopK,
+      int meanDistanceTopK, Point3D axesWeights, SearchStrategy searchStrategy) {
+    this.sampleStore = sampleStore;
+    this.maxDistanceTopK = maxDistanceTopK;
+    this.meanDistanceTopK = meanDistanceTopK;
+    this.axesWeights = axesWeights;
+    this.searchStrategy = searchStrategy;
+    this.vantagePointTree = searchStrategy == SearchStrategy.VANTAGE_POINT_TREE
+        ? new VantagePointTree(sampleStore, axesWeights)
+        : null;
+  }
+
+  /**
+   * Returns the max range of confidence values.
+   *
+   * <p><Since we calculate confidence by counting {@link PoseSample}s that survived
+   * outlier-filtering by maxDistanceTopK and meanDistanceTopK, this range is the minimum of two.
+   */
+  public int confidenceRange() {
+    return min(maxDistanceTopK, meanDistanceTopK);
+  }
+
+  /**
+   * Returns a classifier that only scores {@code targetClass} against the classes it is
+   * confusable with, for when the user has already picked the pose they are holding.
+   *
+   * <p>Confusable classes are those with a sample among the max distance top K of any sample of
+   * the target class (or its mirror image). Every other class keeps a few background samples. The
+   * result is built on first use and cached, and is this classifier if there are no samples of
+   * {@code targetClass}.
+   */
+  public PoseClassifier forTargetClass(String targetClass) {
+    PoseClassifier targetClassifier = targetClassifiers.get(targetClass);
+    if (targetClassifier == null) {
+      targetClassifier = createTargetClassifier(targetClass);
+      targetClassifiers.put(targetClass, targetClassifier);
+    }
+    return targetClassifier;
+  }
+
+  private PoseClassifier createTargetClassifier(String targetClass) {
+    int[] targetSamples = sampleStore.getSampleIndices(targetClass);
+    if (targetSamples.length == 0) {
+      return this;
+    }
+
+    Set<String> confusableClasses = new LinkedHashSet<>();
+    confusableClasses.add(targetClass);
+    int embeddingLength = sampleStore.getEmbeddingSize() * 3;
+    float[] query = new float[embeddingLength];
+    float[] flippedQuery = new float[embeddingLength];
+    TopKSelector maxDistances = new TopKSelector(maxDistanceTopK);
+    for (int targetSample : targetSamples) {
+      sampleStore.copyAsQuery(targetSample, query, flippedQuery);
+      maxDistances.clear();
+      for (int i = 0; i < sampleStore.size(); i++) {
+        if (i != targetSample) {
+          addMaxDistance(maxDistances, i, query, flippedQuery);
+        }
+      }
+      for (int i = 0; i < maxDistances.size(); i++) {
+        confusableClasses.add(sampleStore.getClassName(maxDistances.indexAt(i)));
+      }
+    }
+
+    int[] subset = new int[sampleStore.size()];
+    int subsetSize = 0;
+    for (String className : sampleStore.getClassNames()) {
+      int[] classSamples = sampleStore.getSampleIndices(className);
+      if (confusableClasses.contains(className)
+          || classSamples.length <= BACKGROUND_SAMPLES_PER_CLASS) {
+        for (int sampleIndex : classSamples) {
+          subset[subsetSize++] = sampleIndex;
+        }
+      } else {
+        // Spread the background samples over the class rather than taking the first few.
+        for (int i = 0; i < BACKGROUND_SAMPLES_PER_CLASS; i++) {
+          int classSample = i * classSamples.length / BACKGROUND_SAMPLES_PER_CLASS;
+          subset[subsetSize++] = classSamples[classSample];
+        }
+      }
+    }
+    // Keep sample order so ties resolve as they do over the full store.
+    int[] sortedSubset = Arrays.copyOf(subset, subsetSize);
+    Arrays.sort(sortedSubset);
+    CoreLog.d(TAG, targetClass + " is confusable with " + confusableClasses + ", scoring "
+        + subsetSize + " of " + sampleStore.size() + " samples");
+    return new PoseClassifier(sampleStore.subset(sortedSubset), maxDistanceTopK, meanDistanceTopK,
+        axesWeights, searchStrategy);
+  }
+
+  public ClassificationResult classify(List<Point3D> landmarks) {
+    // Return early if no landmarks detected.
+    if (landmarks.isEmpty()) {
+      return new ClassificationResult(sampleStore.getVocabulary());
+    }
+    float[] packedLandmarks = queryBuffers.get().landmarks;
+    for (int i = 0; i < PoseLandmarkIndex.NUM_LANDMARKS; i++) {
+      Point3D landmark = landmarks.get(i);
+      packedLandmarks[i * 3] = landmark.getX();
+      packedLandmarks[i * 3 + 1] = landmark.getY();
+      packedLandmarks[i * 3 + 2] = landmark.getZ();
+    }
+    return classify(packedLandmarks);
+  }
+
+  /**
+   * Classifies landmarks given as x, y, z of each of the {@link PoseLandmarkIndex#NUM_LANDMARKS}
+   * landmarks, or as an empty array if no pose was detected.
+   */
+  public ClassificationResult classify(float[] landmarks) {
+    return classify(landmarks, null);
+  }
+
+  /**
+   * Same as {@link #classify(float[])}, but reuses or narrows down the previous full scan kept in
+   * {@code cache}, if not null, while the pose stays close to it. The result is the same as
+   * without a cache.
+   */
+  public ClassificationResult classify(float[] landmarks, ClassificationCache cache) {
+    ClassificationResult result = new ClassificationResult(sampleStore.getVocabulary());
+    // Return early if no landmarks detected.
+    if (landmarks.length == 0) {
+      return result;
+    }
+
+    // The flipped embedding is the one of the landmarks mirrored on X, so we are horizontal
+    // (mirror) invariant.
+    QueryBuffers buffers = queryBuffers.get();
+    float[] embedding = buffers.embedding;
+    float[] flippedEmbedding = buffers.flippedEmbedding;
+    getPoseEmbedding(landmarks, buffers.normalizedLandmarks, embedding, flippedEmbedding);
+
+    // Classification is done in two stages:
+    //  * First we pick top-K samples by MAX distance. It allows to remove samples that are almost
+    //    the same as given pose, but maybe has few joints bent in the other direction.
+    //  * Then we pick top-K samples by MEAN distance. After outliers are removed, we pick samples
+    //    that are closest by average.
+
+    // Keeps max distance on top so we can replace it when top_k size is reached.
+    TopKSelector maxDistances = buffers.maxDistances;
+    maxDistances.clear();
+    // Retrieve top K poseSamples by least distance to remove outliers.
+    if (cache != null) {
+      if (cache.isFor(this)) {
+        // The flipped embeddings only differ in the sign of X, so they are as far apart.
+        float drift =
+            sampleStore.maxDistanceBetweenQueries(embedding, cache.getEmbedding(), axesWeights);
+        if (drift == 0) {
+          cache.reuseResult(result);
+          return result;
+        }
+        if (drift <= cache.getMaxDrift()) {
+          cache.recordRefined();
+          // The shortlist is in sample order, like the linear scan, so ties resolve the same way.
+          int[] shortlist = cache.getShortlist();
+          for (int i = 0; i < cache.getShortlistSize(); i++) {
+            addMaxDistance(maxDistances, shortlist[i], embedding, flippedEmbedding);
+          }
+          scoreMeanDistances(buffers, result);
+          return result;
+        }
+      }
+      // Full linear scan that keeps the distances for the cache's shortlist.
+      float[] distances = cache.beginFullScan(this, sampleStore.size(), embedding);
+      for (int i = 0; i < sampleStore.size(); i++) {
+        distances[i] = sampleStore.maxDistance(i, embedding, flippedEmbedding, axesWeights);
+        maxDistances.offer(i, distances[i]);
+      }
+      scoreMeanDistances(buffers, result);
+      cache.endFullScan(sampleStore.size(), maxDistances.bound(), result);
+      return result;
+    }
+    if (vantagePointTree == null) {
+      for (int i = 0; i < sampleStore.size(); i++) {
+        addMaxDistance(maxDistances, i, embedding, flippedEmbedding);
+      }
+    } else {
+      // A sample in the top K by min(original, flipped) distance is in the top K of whichever of
+      // the two queries it is closer to, so searching both and merging finds the same samples.
+      int[] candidates = buffers.candidates;
+      int count = 0;
+      vantagePointTree.search(embedding, buffers.treeNeighbours);
+      for (int i = 0; i < buffers.treeNeighbours.size(); i++) {
+        candidates[count++] = buffers.treeNeighbours.indexAt(i);
+      }
+      vantagePointTree.search(flippedEmbedding, buffers.treeNeighbours);
+      for (int i = 0; i < buffers.treeNeighbours.size(); i++) {
+        candidates[count++] = buffers.treeNeighbours.indexAt(i);
+      }
+      // Visit candidates in sample order, like the linear scan, so ties resolve the same way.
+      Arrays.sort(candidates, 0, count);
+      for (int i = 0; i < count; i++) {
+        if (i == 0 || candidates[i] != candidates[i - 1]) {
+          addMaxDistance(maxDistances, candidates[i], embedding, flippedEmbedding);
+        }
+      }
+    }
+
+    scoreMeanDistances(buffers, result);
+    return result;
+  }
+
+  /**
+   * Second stage of {@link #classify}: picks the top K by mean distance out of the samples in
+   * {@code buffers.maxDistances} and counts their classes into {@code result}.
+   */
+  private void scoreMeanDistances(QueryBuffers buffers, ClassificationResult result) {
+    float[] embedding = buffers.embedding;
+    float[] flippedEmbedding = buffers.flippedEmbedding;
+    TopKSelector maxDistances = buffers.maxDistances;
+    // Keeps higher mean distances on top so we can replace it when top_k size is reached.
+    TopKSelector meanDistances = buffers.meanDistances;
+    meanDistances.clear();
+    // Retrive top K poseSamples by least mean distance to remove outliers. Visiting them in sample
+    // order keeps ties independent of the max distance heap layout.
+    int[] survivors = buffers.candidates;
+    for (int i = 0; i < maxDistances.size(); i++) {
+      survivors[i] = maxDistances.indexAt(i);
+    }
+    Arrays.sort(survivors, 0, maxDistances.size());
+    for (int i = 0; i < maxDistances.size(); i++) {
+      int sampleIndex = survivors[i];
+      // The store returns the min of original and flipped mean distances.
+      meanDistances.offer(
+          sampleIndex,
+          sampleStore.meanDistance(sampleIndex, embedding, flippedEmbedding, axesWeights));
+    }
+
+    for (int i = 0; i < meanDistances.size(); i++) {
+      result.incrementClassConfidence(sampleStore.getClassId(meanDistances.indexAt(i)));
+    }
+  }
+
+  private void addMaxDistance(TopKSelector maxDistances, int sampleIndex,
+      float[] embedding, float[] flippedEmbedding) {
+    // The store returns the min of original and flipped max distance.
+    float distance =
+        sampleStore.maxDistance(sampleIndex, embedding, flippedEmbedding, axesWeights);
+    maxDistances.offer(sampleIndex, distance);
+  }
+
+  /** Scratch space for classifying one frame. */
+  private class QueryBuffers {
+    private final float[] landmarks = new float[PoseLandmarkIndex.NUM_LANDMARKS * 3];
+    private final float[] normalizedLandmarks = new float[PoseLandmarkIndex.NUM_LANDMARKS * 3];
+    private final float[] embedding = new float[PoseEmbedding.EMBEDDING_SIZE * 3];
+    private final float[] flippedEmbedding = new float[PoseEmbedding.EMBEDDING_SIZE * 3];
+    private final TopKSelector maxDistances = new TopKSelector(maxDistanceTopK);
+    private final TopKSelector meanDistances = new TopKSelector(meanDistanceTopK);
+    private final TopKSelector treeNeighbours = new TopKSelector(maxDistanceTopK);
+    private final int[] candidates = new int[2 * maxDistanceTopK];
+  }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.fluffycandies.yogaguide.java.posedetector.classification;
+
+import static com.fluffycandies.yogaguide.java.posedetector.classification.Utils.average;
+import static com.fluffycandies.yogaguide.java.posedetector.classification.Utils.l2Norm2D;
+import static com.fluffycandies.yogaguide.java.posedetector.classification.Utils.multiplyAll;
+import static com.fluffycandies.yogaguide.java.posedetector.classification.Utils.subtract;
+import static com.fluffycandies.yogaguide.java.posedetector.classification.Utils.subtractAll;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates embedding for given list of Pose landmarks.
+ */
+public class PoseEmbedding {
+  /** Number of vectors in an embedding. */
+  public static final int EMBEDDING_SIZE = 23;
+
+  // Multiplier to apply to the torso to get minimal body size. Picked this by experimentation.
+  private static final float TORSO_MULTIPLIER = 2.5f;
+
+  // The landmark pairs of getEmbedding, after the first (hips center to shoulders center) vector,
+  // in the same order. Each vector is PAIR_TO - PAIR_FROM.
+  private static final int[] PAIR_FROM = {
+      PoseLandmarkIndex.LEFT_SHOULDER, PoseLandmarkIndex.RIGHT_SHOULDER,
+      PoseLandmarkIndex.LEFT_ELBOW, PoseLandmarkIndex.RIGHT_ELBOW,
+      PoseLandmarkIndex.LEFT_HIP, PoseLandmarkIndex.RIGHT_HIP,
+      PoseLandmarkIndex.LEFT_KNEE, PoseLandmarkIndex.RIGHT_KNEE,
+      PoseLandmarkIndex.LEFT_SHOULDER, PoseLandmarkIndex.RIGHT_SHOULDER,
+      PoseLandmarkIndex.LEFT_HIP, PoseLandmarkIndex.RIGHT_HIP,
+      PoseLandmarkIndex.LEFT_HIP, PoseLandmarkIndex.RIGHT_HIP,
+      PoseLandmarkIndex.LEFT_SHOULDER, PoseLandmarkIndex.RIGHT_SHOULDER,
+      PoseLandmarkIndex.LEFT_HIP, PoseLandmarkIndex.RIGHT_HIP,
+      PoseLandmarkIndex.LEFT_ELBOW, PoseLandmarkIndex.LEFT_KNEE,
+      PoseLandmarkIndex.LEFT_WRIST, PoseLandmarkIndex.LEFT_ANKLE
+  };
+  private static final int[] PAIR_TO = {
+      PoseLandmarkIndex.LEFT_ELBOW, PoseLandmarkIndex.RIGHT_ELBOW,
+      PoseLandmarkIndex.LEFT_WRIST, PoseLandmarkIndex.RIGHT_WRIST,
+      PoseLandmarkIndex.LEFT_KNEE, PoseLandmarkIndex.RIGHT_KNEE,
+      PoseLandmarkIndex.LEFT_ANKLE, PoseLandmarkIndex.RIGHT_ANKLE,
+      PoseLandmarkIndex.LEFT_WRIST, PoseLandmarkIndex.RIGHT_WRIST,
+      PoseLandmarkIndex.LEFT_ANKLE, PoseLandmarkIndex.RIGHT_ANKLE,
+      PoseLandmarkIndex.LEFT_WRIST, PoseLandmarkIndex.RIGHT_WRIST,
+      PoseLandmarkIndex.LEFT_ANKLE, PoseLandmarkIndex.RIGHT_ANKLE,
+      PoseLandmarkIndex.LEFT_WRIST, PoseLandmarkIndex.RIGHT_WRIST,
+      PoseLandmarkIndex.RIGHT_ELBOW, PoseLandmarkIndex.RIGHT_KNEE,
+      PoseLandmarkIndex.RIGHT_WRIST, PoseLandmarkIndex.RIGHT_ANKLE
+  };
+
+  public static List<Point3D> getPoseEmbedding(List<Point3D> landmarks) {
+    List<Point3D> normalizedLandmarks = normalize(landmarks);
+    return getEmbedding(normalizedLandmarks);
+  }
+
+  private static List<Point3D> normalize(List<Point3D> landmarks) {
+    List<Point3D> normalizedLandmarks = new ArrayList<>(landmarks);
+    // Normalize translation.
+    Point3D center = average(
+        landmarks.get(PoseLandmarkIndex.LEFT_HIP), landmarks.get(PoseLandmarkIndex.RIGHT_HIP));
+    subtractAll(center, normalizedLandmarks);
+
+    // Normalize scale.
+    multiplyAll(normalizedLandmarks, 1 / getPoseSize(normalizedLandmarks));
+    // Multiplication by 100 is not required, but makes it easier to debug.
+    multiplyAll(normalizedLandmarks, 100);
+    return normalizedLandmarks;
+  }
+
+  // Translation normalization should've been done prior to calling this method.
+  private static float getPoseSize(List<Point3D> landmarks) {
+    // Note: This approach uses only 2D landmarks to compute pose size as using Z wasn't helpful
+    // in our experimentation but you're welcome to tweak.
+    Point3D hipsCenter = average(
+        landmarks.get(PoseLandmarkIndex.LEFT_HIP), landmarks.get(PoseLandmarkIndex.RIGHT_HIP));
+
+    Point3D shouldersCenter = average(
+        landmarks.get(PoseLandmarkIndex.LEFT_SHOULDER),
+        landmarks.get(PoseLandmarkIndex.RIGHT_SHOULDER));
+
+    float torsoSize = l2Norm2D(subtract(hipsCenter, shouldersCenter));
+
+    float maxDistance = torsoSize * TORSO_MULTIPLIER;
+    // torsoSize * TORSO_MULTIPLIER is the floor we want based on experimentation but actual size
+    // can be bigger for a given pose depending on extension of limbs etc so we calculate that.
+    for (Point3D landmark : landmarks) {
+      float distance = l2Norm2D(subtract(hipsCenter, landmark));
+      if (distance > maxDistance) {
+        maxDistance = distance;
+      }
+    }
+    return maxDistance;
+  }
+
+  private static List<Point3D> getEmbedding(List<Point3D> lm) {
+    List<Point3D> embedding = new ArrayList<>();
+
+    // We use several pairwise 3D distances to form pose embedding. These were selected
+    // based on experimentation for best results with our default pose classes as captued in the
+    // pose samples csv. Feel free to play with this and add or remove for your use-cases.
+
+    // We group our distances by number of joints between the pairs.
+    // One joint.
+    embedding.add(subtract(
+        average(lm.get(PoseLandmarkIndex.LEFT_HIP), lm.get(PoseLandmarkIndex.RIGHT_HIP)),
+        average(lm.get(PoseLandmarkIndex.LEFT_SHOULDER), lm.get(PoseLandmarkIndex.RIGHT_SHOULDER))
+    ));
+
+    embedding.add(subtract(
+        lm.get(PoseLandmarkIndex.LEFT_SHOULDER), lm.get(PoseLandmarkIndex.LEFT_ELBOW)));
+    embedding.add(subtract(
+        lm.get(PoseLandmarkIndex.RIGHT_SHOULDER), lm.get(PoseLandmarkIndex.RIGHT_ELBOW)));
+
+    embedding.add(subtract(lm.get(PoseLandmarkIndex.LEFT_ELBOW), lm.get(PoseLandmarkIndex.LEFT_WRIST)));
+    embedding.add(subtract(lm.get(PoseLandmarkIndex.RIGHT_ELBOW), lm.get(PoseLandmarkIndex.RIGHT_WRIST)));
+
+    embedding.add(subtract(lm.get(PoseLandmarkIndex.LEFT_HIP), lm.get(PoseLandmarkIndex.LEFT_KNEE)));
+    embedding.add(subtract(lm.get(PoseLandmarkIndex.RIGHT_HIP), lm.get(PoseLandmarkIndex.RIGHT_KNEE)));
+
+    embedding.add(subtract(lm.get(PoseLandmarkIndex.LEFT_KNEE), lm.get(PoseLandmarkIndex.LEFT_ANKLE)));
+    embedding.add(subtract(lm.get(PoseLandmarkIndex.RIGHT_KNEE), lm.get(PoseLandmarkIndex.RIGHT_ANKLE)));
+
+    // Two joints.
+    embedding.add(subtract(
+        lm.get(PoseLandmarkIndex.LEFT_SHOULDER), lm.get(PoseLandmarkIndex.LEFT_WRIST)));
+    embedding.add(subtract(
+        lm.get(PoseLandmarkIndex.RIGHT_SHOULDER), lm.get(PoseLandmarkIndex.RIGHT_WRIST)));
+
+    embedding.add(subtract(lm.get(PoseLandmarkIndex.LEFT_HIP), lm.get(PoseLandmarkIndex.LEFT_ANKLE)));
+    embedding.add(subtract(lm.get(PoseLandmarkIndex.RIGHT_HIP), lm.get(PoseLandmarkIndex.RIGHT_ANKLE)));
+
+    // Four joints.
+    embedding.add(subtract(lm.get(PoseLandmarkIndex.LEFT_HIP), lm.get(PoseLandmarkIndex.LEFT_WRIST)));
+    embedding.add(subtract(lm.get(PoseLandmarkIndex.RIGHT_HIP), lm.get(PoseLandmarkIndex.RIGHT_WRIST)));
+
+    // Five joints.
+    embedding.add(subtract(
+        lm.get(PoseLandmarkIndex.LEFT_SHOULDER), lm.get(PoseLandmarkIndex.LEFT_ANKLE)));
+    embedding.add(subtract(
+        lm.get(PoseLandmarkIndex.RIGHT_SHOULDER), lm.get(PoseLandmarkIndex.RIGHT_ANKLE)));
+
+    embedding.add(subtract(lm.get(PoseLandmarkIndex.LEFT_HIP), lm.get(PoseLandmarkIndex.LEFT_WRIST)));
+    embedding.add(subtract(lm.get(PoseLandmarkIndex.RIGHT_HIP), lm.get(PoseLandmarkIndex.RIGHT_WRIST)));
+
+    // Cross body.
+    embedding.add(subtract(lm.get(PoseLandmarkIndex.LEFT_ELBOW), lm.get(PoseLandmarkIndex.RIGHT_ELBOW)));
+    embedding.add(subtract(lm.get(PoseLandmarkIndex.LEFT_KNEE), lm.get(PoseLandmarkIndex.RIGHT_KNEE)));
+
+    embedding.add(subtract(lm.get(PoseLandmarkIndex.LEFT_WRIST), lm.get(PoseLandmarkIndex.RIGHT_WRIST)));
+    embedding.add(subtract(lm.get(PoseLandmarkIndex.LEFT_ANKLE), lm.get(PoseLandmarkIndex.RIGHT_ANKLE)));
+
+    return embedding;
+  }
+
+  /**
+   * Computes the same embedding as {@link #getPoseEmbedding(List)}, and that of the landmarks
+   * mirrored on X, without allocating.
+   *
+   * <p>Every normalization step is symmetric in X, so the mirrored embedding is the embedding with
+   * its X values negated and both come out of the same pass.
+   *
+   * @param landmarks x, y, z of each of the {@link PoseLandmarkIndex#NUM_LANDMARKS} landmarks.
+   * @param normalized scratch buffer at least as long as {@code landmarks}.
+   * @param embedding receives the embedding, laid out like {@link PoseSampleStore#pack}.
+   * @param flippedEmbedding receives the mirrored embedding, laid out the same way.
+   */
+  public static void getPoseEmbedding(
+      float[] landmarks, float[] normalized, float[] embedding, float[] flippedEmbedding) {
+    normalize(landmarks, normalized);
+
+    int lh = PoseLandmarkIndex.LEFT_HIP * 3;
+    int rh = PoseLandmarkIndex.RIGHT_HIP * 3;
+    int ls = PoseLandmarkIndex.LEFT_SHOULDER * 3;
+    int rs = PoseLandmarkIndex.RIGHT_SHOULDER * 3;
+    int n = EMBEDDING_SIZE;
+    for (int axis = 0; axis < 3; axis++) {
+      float hipsCenter = (normalized[lh + axis] + normalized[rh + axis]) * 0.5f;
+      float shouldersCenter = (normalized[ls + axis] + normalized[rs + axis]) * 0.5f;
+      embedding[axis * n] = shouldersCenter - hipsCenter;
+    }
+    for (int i = 1; i < n; i++) {
+      int from = PAIR_FROM[i - 1] * 3;
+      int to = PAIR_TO[i - 1] * 3;
+      embedding[i] = normalized[to] - normalized[from];
+      embedding[n + i] = normalized[to + 1] - normalized[from + 1];
+      embedding[2 * n + i] = normalized[to + 2] - normalized[from + 2];
+    }
+
+    for (int i = 0; i < n; i++) {
+      flippedEmbedding[i] = -embedding[i];
+    }
+    System.arraycopy(embedding, n, flippedEmbedding, n, 2 * n);
+  }
+
+  private static void normalize(float[] landmarks, float[] normalized) {
+    int lh = PoseLandmarkIndex.LEFT_HIP * 3;
+    int rh = PoseLandmarkIndex.RIGHT_HIP * 3;
+    int length = PoseLandmarkIndex.NUM_LANDMARKS * 3;
+    // Normalize translation.
+    float cx = (landmarks[lh] + landmarks[rh]) * 0.5f;
+    float cy = (landmarks[lh + 1] + landmarks[rh + 1]) * 0.5f;
+    float cz = (landmarks[lh + 2] + landmarks[rh + 2]) * 0.5f;
+    for (int i = 0; i < length; i += 3) {
+      normalized[i] = landmarks[i] - cx;
+      normalized[i + 1] = landmarks[i + 1] - cy;
+      normalized[i + 2] = landmarks[i + 2] - cz;
+    }
+
+    // Normalize scale. Kept as two multiplications so results match the List based path exactly.
+    float scale = 1 / getPoseSize(normalized);
+    for (int i = 0; i < length; i++) {
+      normalized[i] = normalized[i] * scale * 100;
+    }
+  }
+
+  private static float getPoseSize(float[] lm) {
+    int lh = PoseLandmarkIndex.LEFT_HIP * 3;
+    int rh = PoseLandmarkIndex.RIGHT_HIP * 3;
+    int ls = PoseLandmarkIndex.LEFT_SHOULDER * 3;
+    int rs = PoseLandmarkIndex.RIGHT_SHOULDER * 3;
+    float hipsX = (lm[lh] + lm[rh]) * 0.5f;
+    float hipsY = (lm[lh + 1] + lm[rh + 1]) * 0.5f;
+    float shouldersX = (lm[ls] + lm[rs]) * 0.5f;
+    float shouldersY = (lm[ls + 1] + lm[rs + 1]) * 0.5f;
+
+    float torsoSize = (float) Math.hypot(shouldersX - hipsX, shouldersY - hipsY);
+
+    float maxDistance = torsoSize * TORSO_MULTIPLIER;
+    for (int i = 0; i < PoseLandmarkIndex.NUM_LANDMARKS * 3; i += 3) {
+      float distance = (float) Math.hypot(lm[i] - hipsX, lm[i + 1] - hipsY);
+      if (distance > maxDistance) {
+        maxDistance = distance;
+      }
+    }
+    return maxDistance;
+  }
+
+  private PoseEmbedding() {}
+}
@@ -0,0 +1,24 @@
+package com.fluffycandies.yogaguide.java.posedetector.classification;
+
+/**
+ * Landmark positions within a pose landmark list. The values match ML Kit's {@code PoseLandmark}
+ * constants, which is the order landmarks are stored in the pose samples csv.
+ */
+public final class PoseLandmarkIndex {
+  public static final int NUM_LANDMARKS = 33;
+
+  public static final int LEFT_SHOULDER = 11;
+  public static final int RIGHT_SHOULDER = 12;
+  public static final int LEFT_ELBOW = 13;
+  public static final int RIGHT_ELBOW = 14;
+  public static final int LEFT_WRIST = 15;
+  public static final int RIGHT_WRIST = 16;
+  public static final int LEFT_HIP = 23;
+  public static final int RIGHT_HIP = 24;
+  public static final int LEFT_KNEE = 25;
+  public static final int RIGHT_KNEE = 26;
+  public static final int LEFT_ANKLE = 27;
+  public static final int RIGHT_ANKLE = 28;
+
+  private PoseLandmarkIndex() {}
+}
@@ -0,0 +1,45 @@
+package com.fluffycandies.yogaguide.java.posedetector.classification;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Build-time tool that precomputes the embeddings of the pose samples csv into the binary format
+ * of {@link PoseSampleCodec}. Invoked by the app's {@code generatePoseSampleAsset} task.
+ *
+ * <p>Usage: {@code PoseSampleAssetGenerator <samples.csv> <output.bin>}
+ */
+public class PoseSampleAssetGenerator {
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("Usage: PoseSampleAssetGenerator <samples.csv> <output.bin>");
+      System.exit(1);
+    }
+    File csvFile = new File(args[0]);
+    File binFile = new File(args[1]);
+
+    List<PoseSample> poseSamples;
+    try (FileReader reader = new FileReader(csvFile)) {
+      poseSamples = PoseSampleLoader.load(reader);
+    }
+    if (poseSamples.isEmpty()) {
+      throw new IOException("No valid pose samples in " + csvFile);
+    }
+
+    File parent = binFile.getParentFile();
+    if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+      throw new IOException("Could not create " + parent);
+    }
+    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(binFile))) {
+      PoseSampleCodec.write(poseSamples, out);
+    }
+    System.out.println("Wrote " + poseSamples.size() + " pose samples to " + binFile);
+  }
+
+  private PoseSampleAssetGenerator() {}
+}
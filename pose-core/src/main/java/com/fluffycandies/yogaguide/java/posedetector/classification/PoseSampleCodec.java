@@ -0,0 +1,150 @@
+package com.fluffycandies.yogaguide.java.posedetector.classification;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes a {@link PoseSampleStore} as a compact binary file, so the app can skip csv
+ * parsing and embedding on startup.
+ *
+ * <p>All values are little-endian:
+ *
+ * <pre>
+ *   int    magic ('YPSB')
+ *   int    version
+ *   int    sampleCount
+ *   int    embeddingSize
+ *   int    classCount
+ *   classCount x { short byteLength, byte[byteLength] UTF-8 class name }
+ *   sampleCount x int class index
+ *   sampleCount x 3 x embeddingSize x float embedding, laid out as in {@link PoseSampleStore}
+ * </pre>
+ */
+public class PoseSampleCodec {
+  private static final int MAGIC = 0x42535059; // "YPSB" when read as little-endian bytes.
+  // Bump whenever PoseEmbedding changes, so stale precomputed embeddings are rejected.
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 5 * 4;
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  /** Writes the embeddings of {@code poseSamples} to {@code out}. Does not close the stream. */
+  public static void write(List<PoseSample> poseSamples, OutputStream out) throws IOException {
+    PoseSampleStore store = new PoseSampleStore(poseSamples);
+
+    List<String> classNames = new ArrayList<>();
+    Map<String, Integer> classIndices = new HashMap<>();
+    int[] sampleClasses = new int[store.size()];
+    for (int i = 0; i < store.size(); i++) {
+      String className = store.getClassName(i);
+      Integer classIndex = classIndices.get(className);
+      if (classIndex == null) {
+        classIndex = classNames.size();
+        classIndices.put(className, classIndex);
+        classNames.add(className);
+      }
+      sampleClasses[i] = classIndex;
+    }
+
+    int size = HEADER_SIZE;
+    List<byte[]> encodedClassNames = new ArrayList<>();
+    for (String className : classNames) {
+      byte[] encoded = className.getBytes(UTF_8);
+      encodedClassNames.add(encoded);
+      size += 2 + encoded.length;
+    }
+    float[] embeddings = store.getEmbeddings();
+    size += sampleClasses.length * 4 + embeddings.length * 4;
+
+    ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.putInt(MAGIC);
+    buffer.putInt(VERSION);
+    buffer.putInt(store.size());
+    buffer.putInt(store.getEmbeddingSize());
+    buffer.putInt(classNames.size());
+    for (byte[] encoded : encodedClassNames) {
+      buffer.putShort((short) encoded.length);
+      buffer.put(encoded);
+    }
+    buffer.asIntBuffer().put(sampleClasses);
+    buffer.position(buffer.position() + sampleClasses.length * 4);
+    buffer.asFloatBuffer().put(embeddings);
+
+    out.write(buffer.array());
+  }
+
+  /**
+   * Reads a store written by {@link #write}. {@code buffer} is typically a memory-mapped asset; it
+   * is read from its current position.
+   *
+   * @throws IOException if the buffer is not a pose sample file of the current version, or is
+   *     truncated or corrupt.
+   */
+  public static PoseSampleStore read(ByteBuffer buffer) throws IOException {
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+      throw new IOException("Not a pose sample file");
+    }
+    int version = buffer.getInt();
+    if (version != VERSION) {
+      throw new IOException("Unsupported pose sample file version " + version);
+    }
+    int sampleCount = buffer.getInt();
+    int embeddingSize = buffer.getInt();
+    int classCount = buffer.getInt();
+    if (sampleCount < 0 || embeddingSize < 0 || classCount < 0) {
+      throw new IOException(
+          "Corrupt pose sample file header: " + sampleCount + " samples, embedding size "
+              + embeddingSize + ", " + classCount + " classes");
+    }
+
+    // Each class name takes at least its two length bytes, so a bogus count fails here.
+    if (buffer.remaining() < classCount * 2L) {
+      throw new IOException("Truncated pose sample file");
+    }
+    String[] classTable = new String[classCount];
+    for (int i = 0; i < classCount; i++) {
+      if (buffer.remaining() < 2) {
+        throw new IOException("Truncated pose sample file");
+      }
+      int byteLength = buffer.getShort() & 0xFFFF;
+      if (buffer.remaining() < byteLength) {
+        throw new IOException("Truncated pose sample file");
+      }
+      byte[] encoded = new byte[byteLength];
+      buffer.get(encoded);
+      classTable[i] = new String(encoded, UTF_8);
+    }
+
+    // In longs, so huge counts are rejected instead of overflowing.
+    long expectedBytes = sampleCount * 4L + sampleCount * (long) embeddingSize * 3 * 4;
+    if (buffer.remaining() != expectedBytes) {
+      throw new IOException(
+          "Pose sample file has " + buffer.remaining() + " bytes of samples, expected "
+              + expectedBytes);
+    }
+    int[] sampleClasses = new int[sampleCount];
+    float[] embeddings = new float[sampleCount * embeddingSize * 3];
+    buffer.asIntBuffer().get(sampleClasses);
+    buffer.position(buffer.position() + sampleClasses.length * 4);
+    buffer.asFloatBuffer().get(embeddings);
+
+    String[] classNames = new String[sampleCount];
+    for (int i = 0; i < sampleCount; i++) {
+      int classIndex = sampleClasses[i];
+      if (classIndex < 0 || classIndex >= classCount) {
+        throw new IOException("Sample " + i + " has unknown class index " + classIndex);
+      }
+      classNames[i] = classTable[classIndex];
+    }
+    return new PoseSampleStore(embeddings, classNames, embeddingSize);
+  }
+
+  private PoseSampleCodec() {}
+}
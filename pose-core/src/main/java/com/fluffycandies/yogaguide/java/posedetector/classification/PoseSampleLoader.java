@@ -0,0 +1,32 @@
+package com.fluffycandies.yogaguide.java.posedetector.classification;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Reads {@link PoseSample}s from the pose samples csv. */
+public class PoseSampleLoader {
+  private static final String SEPARATOR = ",";
+
+  /**
+   * Reads every valid line of the csv. Lines that are not a valid {@link PoseSample} are skipped.
+   */
+  public static List<PoseSample> load(Reader csvReader) throws IOException {
+    List<PoseSample> poseSamples = new ArrayList<>();
+    BufferedReader reader = new BufferedReader(csvReader);
+    String csvLine = reader.readLine();
+    while (csvLine != null) {
+      // If line is not a valid {@link PoseSample}, we'll get null and skip adding to the list.
+      PoseSample poseSample = PoseSample.getPoseSample(csvLine, SEPARATOR);
+      if (poseSample != null) {
+        poseSamples.add(poseSample);
+      }
+      csvLine = reader.readLine();
+    }
+    return poseSamples;
+  }
+
+  private PoseSampleLoader() {}
+}
@@ -0,0 +1,290 @@
+package com.fluffycandies.yogaguide.java.posedetector.classification;
+
+import static java.lang.Math.abs;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Packs the embeddings of all {@link PoseSample}s into one contiguous {@code float[]}.
+ *
+ * <p>Each sample occupies a block of {@code 3 * embeddingSize} floats laid out structure-of-arrays
+ * style: all X values of the embedding, then all Y values, then all Z values. Queries are packed
+ * the same way with {@link #pack(List, float[])} so the distance kernels below can walk both
+ * arrays without allocating a {@link Point3D} per embedding element.
+ */
+public class PoseSampleStore {
+  private final int size;
+  private final int embeddingSize;
+  private final int stride;
+  private final float[] embeddings;
+  private final String[] classNames;
+  // Sample indices of each class, in sample order.
+  private final Map<String, int[]> classPartitions;
+  private final ClassVocabulary vocabulary;
+  private final int[] classIds;
+
+  public PoseSampleStore(List<PoseSample> poseSamples) {
+    this.size = poseSamples.size();
+    this.embeddingSize = size == 0 ? 0 : poseSamples.get(0).getEmbedding().size();
+    this.stride = embeddingSize * 3;
+    this.embeddings = new float[size * stride];
+    this.classNames = new String[size];
+
+    float[] block = new float[stride];
+    for (int i = 0; i < size; i++) {
+      PoseSample poseSample = poseSamples.get(i);
+      pack(poseSample.getEmbedding(), block);
+      System.arraycopy(block, 0, embeddings, i * stride, stride);
+      classNames[i] = poseSample.getClassName();
+    }
+    this.classPartitions = partitionByClass(classNames);
+    this.vocabulary = new ClassVocabulary(classPartitions.keySet());
+    this.classIds = assignClassIds(classNames, vocabulary);
+  }
+
+  /**
+   * Wraps already packed embeddings, e.g. as read by {@link PoseSampleCodec}.
+   *
+   * @param embeddings {@code classNames.length} blocks of {@code 3 * embeddingSize} floats.
+   * @param classNames class name of each sample.
+   */
+  public PoseSampleStore(float[] embeddings, String[] classNames, int embeddingSize) {
+    this(embeddings, classNames, embeddingSize, new ClassVocabulary(Arrays.asList(classNames)));
+  }
+
+  private PoseSampleStore(
+      float[] embeddings, String[] classNames, int embeddingSize, ClassVocabulary vocabulary) {
+    if (embeddings.length != classNames.length * embeddingSize * 3) {
+      throw new IllegalArgumentException(
+          "Expected " + classNames.length * embeddingSize * 3 + " floats, got "
+              + embeddings.length);
+    }
+    this.size = classNames.length;
+    this.embeddingSize = embeddingSize;
+    this.stride = embeddingSize * 3;
+    this.embeddings = embeddings;
+    this.classNames = classNames;
+    this.classPartitions = partitionByClass(classNames);
+    this.vocabulary = vocabulary;
+    this.classIds = assignClassIds(classNames, vocabulary);
+  }
+
+  private static Map<String, int[]> partitionByClass(String[] classNames) {
+    Map<String, List<Integer>> indices = new LinkedHashMap<>();
+    for (int i = 0; i < classNames.length; i++) {
+      List<Integer> classIndices = indices.get(classNames[i]);
+      if (classIndices == null) {
+        classIndices = new ArrayList<>();
+        indices.put(classNames[i], classIndices);
+      }
+      classIndices.add(i);
+    }
+    Map<String, int[]> partitions = new LinkedHashMap<>();
+    for (Map.Entry<String, List<Integer>> entry : indices.entrySet()) {
+      List<Integer> classIndices = entry.getValue();
+      int[] partition = new int[classIndices.size()];
+      for (int i = 0; i < partition.length; i++) {
+        partition[i] = classIndices.get(i);
+      }
+      partitions.put(entry.getKey(), partition);
+    }
+    return Collections.unmodifiableMap(partitions);
+  }
+
+  private static int[] assignClassIds(String[] classNames, ClassVocabulary vocabulary) {
+    int[] classIds = new int[classNames.length];
+    for (int i = 0; i < classNames.length; i++) {
+      classIds[i] = vocabulary.getId(classNames[i]);
+    }
+    return classIds;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public int getEmbeddingSize() {
+    return embeddingSize;
+  }
+
+  public String getClassName(int sampleIndex) {
+    return classNames[sampleIndex];
+  }
+
+  /** Returns the distinct class names, in order of first appearance. */
+  public Set<String> getClassNames() {
+    return classPartitions.keySet();
+  }
+
+  /**
+   * Returns the indices of the samples of {@code className} in ascending order, or an empty array
+   * if there are none. The array must not be modified.
+   */
+  int[] getSampleIndices(String className) {
+    int[] partition = classPartitions.get(className);
+    return partition == null ? new int[0] : partition;
+  }
+
+  /** Returns the class vocabulary, which subsets share with the store they were taken from. */
+  public ClassVocabulary getVocabulary() {
+    return vocabulary;
+  }
+
+  int getClassId(int sampleIndex) {
+    return classIds[sampleIndex];
+  }
+
+  float[] getEmbeddings() {
+    return embeddings;
+  }
+
+  /**
+   * Returns a new store holding copies of the given samples, in the given order. It keeps this
+   * store's {@link ClassVocabulary} so results of both can be mixed.
+   */
+  public PoseSampleStore subset(int[] sampleIndices) {
+    float[] subsetEmbeddings = new float[sampleIndices.length * stride];
+    String[] subsetClassNames = new String[sampleIndices.length];
+    for (int i = 0; i < sampleIndices.length; i++) {
+      System.arraycopy(
+          embeddings, sampleIndices[i] * stride, subsetEmbeddings, i * stride, stride);
+      subsetClassNames[i] = classNames[sampleIndices[i]];
+    }
+    return new PoseSampleStore(subsetEmbeddings, subsetClassNames, embeddingSize, vocabulary);
+  }
+
+  /**
+   * Copies the sample into {@code out} as a query, and its mirror image into {@code flippedOut}.
+   *
+   * <p>Mirroring the landmarks on X only flips the sign of the X block of the embedding, since
+   * normalization is symmetric in X.
+   */
+  void copyAsQuery(int sampleIndex, float[] out, float[] flippedOut) {
+    int base = sampleIndex * stride;
+    System.arraycopy(embeddings, base, out, 0, stride);
+    System.arraycopy(embeddings, base, flippedOut, 0, stride);
+    for (int i = 0; i < embeddingSize; i++) {
+      flippedOut[i] = -flippedOut[i];
+    }
+  }
+
+  /** Packs an embedding into {@code out} using the same layout as the stored samples. */
+  public static void pack(List<Point3D> embedding, float[] out) {
+    int n = embedding.size();
+    for (int i = 0; i < n; i++) {
+      Point3D point = embedding.get(i);
+      out[i] = point.getX();
+      out[n + i] = point.getY();
+      out[2 * n + i] = point.getZ();
+    }
+  }
+
+  /**
+   * Returns the weighted max-abs distance between the sample and the closer of {@code query} and
+   * {@code flippedQuery}.
+   */
+  public float maxDistance(int sampleIndex, float[] query, float[] flippedQuery, Point3D weights) {
+    float wx = weights.getX();
+    float wy = weights.getY();
+    float wz = weights.getZ();
+    int base = sampleIndex * stride;
+    int n = embeddingSize;
+
+    float originalMax = 0;
+    float flippedMax = 0;
+    for (int i = 0; i < n; i++) {
+      float sx = embeddings[base + i];
+      float sy = embeddings[base + n + i];
+      float sz = embeddings[base + 2 * n + i];
+
+      originalMax = max(originalMax, maxAbs(
+          (sx - query[i]) * wx, (sy - query[n + i]) * wy, (sz - query[2 * n + i]) * wz));
+      flippedMax = max(flippedMax, maxAbs(
+          (sx - flippedQuery[i]) * wx,
+          (sy - flippedQuery[n + i]) * wy,
+          (sz - flippedQuery[2 * n + i]) * wz));
+    }
+    return min(originalMax, flippedMax);
+  }
+
+  /**
+   * Returns the weighted mean-abs distance between the sample and the closer of {@code query} and
+   * {@code flippedQuery}.
+   */
+  public float meanDistance(
+      int sampleIndex, float[] query, float[] flippedQuery, Point3D weights) {
+    float wx = weights.getX();
+    float wy = weights.getY();
+    float wz = weights.getZ();
+    int base = sampleIndex * stride;
+    int n = embeddingSize;
+
+    float originalSum = 0;
+    float flippedSum = 0;
+    for (int i = 0; i < n; i++) {
+      float sx = embeddings[base + i];
+      float sy = embeddings[base + n + i];
+      float sz = embeddings[base + 2 * n + i];
+
+      originalSum += sumAbs(
+          (sx - query[i]) * wx, (sy - query[n + i]) * wy, (sz - query[2 * n + i]) * wz);
+      flippedSum += sumAbs(
+          (sx - flippedQuery[i]) * wx,
+          (sy - flippedQuery[n + i]) * wy,
+          (sz - flippedQuery[2 * n + i]) * wz);
+    }
+    return min(originalSum, flippedSum) / (n * 2);
+  }
+
+  /**
+   * Returns the weighted max-abs distance between the sample and {@code query}, without trying
+   * the flipped query. Used by {@link VantagePointTree}, which needs a proper metric.
+   */
+  public float maxDistance(int sampleIndex, float[] query, Point3D weights) {
+    return maxDistance(embeddings, sampleIndex * stride, query, 0, weights);
+  }
+
+  /** Returns the weighted max-abs distance between two stored samples. */
+  public float maxDistanceBetween(int sampleIndex, int otherSampleIndex, Point3D weights) {
+    return maxDistance(
+        embeddings, sampleIndex * stride, embeddings, otherSampleIndex * stride, weights);
+  }
+
+  /** Returns the weighted max-abs distance between two queries. */
+  float maxDistanceBetweenQueries(float[] query, float[] otherQuery, Point3D weights) {
+    return maxDistance(query, 0, otherQuery, 0, weights);
+  }
+
+  private float maxDistance(float[] a, int aBase, float[] b, int bBase, Point3D weights) {
+    float wx = weights.getX();
+    float wy = weights.getY();
+    float wz = weights.getZ();
+    int n = embeddingSize;
+
+    float distance = 0;
+    for (int i = 0; i < n; i++) {
+      distance = max(distance, maxAbs(
+          (a[aBase + i] - b[bBase + i]) * wx,
+          (a[aBase + n + i] - b[bBase + n + i]) * wy,
+          (a[aBase + 2 * n + i] - b[bBase + 2 * n + i]) * wz));
+    }
+    return distance;
+  }
+
+  // Mirrors Utils.maxAbs and Utils.sumAbs so results match the Point3D path bit for bit.
+  private static float maxAbs(float x, float y, float z) {
+    return max(max(abs(x), abs(y)), abs(z));
+  }
+
+  private static float sumAbs(float x, float y, float z) {
+    return abs(x) + abs(y) + abs(z);
+  }
+}
@@ -0,0 +1,95 @@
+package com.fluffycandies.yogaguide.java.posedetector.classification;
+
+/**
+ * Keeps the K samples with the smallest distances out of a stream of offers.
+ *
+ * <p>A binary max-heap over parallel {@code int[]} sample indices and {@code float[]} distances, so
+ * offering a sample neither boxes nor allocates and the selector can be reused across frames with
+ * {@link #clear()}. Of samples at the same distance, the earliest offered are kept: the heap orders
+ * equal distances by offer order, so the latest offered of them is evicted first.
+ */
+final class TopKSelector {
+  private final int[] indices;
+  private final float[] distances;
+  // Offer order of each entry, breaking ties between equal distances.
+  private final int[] offerOrders;
+  private int size;
+  private int offerCount;
+
+  TopKSelector(int capacity) {
+    indices = new int[capacity];
+    distances = new float[capacity];
+    offerOrders = new int[capacity];
+  }
+
+  void clear() {
+    size = 0;
+    offerCount = 0;
+  }
+
+  int size() {
+    return size;
+  }
+
+  /** Returns the sample index at {@code position}, which is in heap order, not sorted. */
+  int indexAt(int position) {
+    return indices[position];
+  }
+
+  /** Distance a sample must beat to be kept. */
+  float bound() {
+    return size < indices.length ? Float.POSITIVE_INFINITY : distances[0];
+  }
+
+  void offer(int index, float distance) {
+    int offerOrder = offerCount++;
+    if (size < indices.length) {
+      int i = size++;
+      // Sift up. The new entry is the latest offered, so it rises above equal distances.
+      while (i > 0) {
+        int parent = (i - 1) >>> 1;
+        if (distances[parent] > distance) {
+          break;
+        }
+        moveEntry(parent, i);
+        i = parent;
+      }
+      setEntry(i, index, distance, offerOrder);
+    } else if (size > 0 && distance < distances[0]) {
+      // Replace the root and sift down. The new entry is the latest offered, so it stays above
+      // children of equal distance.
+      int i = 0;
+      while (true) {
+        int child = 2 * i + 1;
+        if (child >= size) {
+          break;
+        }
+        if (child + 1 < size && isAbove(child + 1, child)) {
+          child++;
+        }
+        if (distances[child] <= distance) {
+          break;
+        }
+        moveEntry(child, i);
+        i = child;
+      }
+      setEntry(i, index, distance, offerOrder);
+    }
+  }
+
+  /** Whether entry {@code a} belongs above entry {@code b} in the heap. */
+  private boolean isAbove(int a, int b) {
+    return distances[a] > distances[b]
+        || (distances[a] == distances[b] && offerOrders[a] > offerOrders[b]);
+  }
+
+  private void moveEntry(int from, int to) {
+    setEntry(to, indices[from], distances[from], offerOrders[from]);
+  }
+
+  private void setEntry(int position, int index, float distance, int offerOrder) {
+    indices[position] = index;
+    distances[position] = distance;
+    offerOrders[position] = offerOrder;
+  }
+}
@@ -0,0 +1,150 @@
+package com.fluffycandies.yogaguide.java.posedetector.classification;
+
+import java.util.Random;
+
+/**
+ * Vantage-point tree over the samples of a {@link PoseSampleStore}, for k-nearest-neighbour
+ * lookups under the weighted max-abs (Chebyshev) distance without visiting every sample.
+ *
+ * <p>Each node picks a vantage sample and splits the remaining samples of its range at the
+ * median distance to it: the first half ("inside") is at most {@code radius} away, the second half
+ * ("outside") at least {@code radius}. The triangle inequality then lets a search skip a half that
+ * cannot contain anything closer than the current k-th best. The tree is stored in flat arrays:
+ * the node for range {@code [lo, hi)} keeps its vantage sample at {@code order[lo]}, its radius at
+ * {@code radius[lo]} and the start of its outside half at {@code outsideStart[lo]}.
+ *
+ * <p>Searches are exact up to ties, so they return the same neighbours as a linear scan.
+ */
+class VantagePointTree {
+  // Ranges this small are scanned linearly, which is cheaper than descending further.
+  private static final int LEAF_SIZE = 8;
+  private static final int LEAF = -1;
+  private static final long SEED = 42;
+  // Slack for float rounding, so the triangle inequality the pruning relies on holds.
+  private static final float RELATIVE_ROUNDING_MARGIN = 1e-5f;
+  private static final float ABSOLUTE_ROUNDING_MARGIN = 1e-6f;
+
+  private final PoseSampleStore sampleStore;
+  private final Point3D axesWeights;
+  private final int[] order;
+  private final float[] radius;
+  private final int[] outsideStart;
+
+  VantagePointTree(PoseSampleStore sampleStore, Point3D axesWeights) {
+    this.sampleStore = sampleStore;
+    this.axesWeights = axesWeights;
+    int size = sampleStore.size();
+    order = new int[size];
+    radius = new float[size];
+    outsideStart = new int[size];
+    for (int i = 0; i < size; i++) {
+      order[i] = i;
+    }
+    build(0, size, new float[size], new Random(SEED));
+  }
+
+  private void build(int lo, int hi, float[] distances, Random random) {
+    if (hi - lo <= LEAF_SIZE) {
+      if (lo < hi) {
+        outsideStart[lo] = LEAF;
+      }
+      return;
+    }
+    // A random vantage point keeps the tree balanced regardless of the csv order.
+    swap(order, distances, lo, lo + random.nextInt(hi - lo));
+    int vantage = order[lo];
+    for (int i = lo + 1; i < hi; i++) {
+      distances[i] = sampleStore.maxDistanceBetween(vantage, order[i], axesWeights);
+    }
+    int median = (lo + 1 + hi) / 2;
+    select(distances, lo + 1, hi, median);
+    radius[lo] = distances[median];
+    outsideStart[lo] = median;
+    build(lo + 1, median, distances, random);
+    build(median, hi, distances, random);
+  }
+
+  /** Quickselect: puts the element that belongs at {@code k} in sorted order there. */
+  private void select(float[] distances, int lo, int hi, int k) {
+    int left = lo;
+    int right = hi - 1;
+    while (left < right) {
+      float pivot = distances[(left + right) >>> 1];
+      int i = left;
+      int j = right;
+      while (i <= j) {
+        while (distances[i] < pivot) {
+          i++;
+        }
+        while (distances[j] > pivot) {
+          j--;
+        }
+        if (i <= j) {
+          swap(order, distances, i++, j--);
+        }
+      }
+      if (k <= j) {
+        right = j;
+      } else if (k >= i) {
+        left = i;
+      } else {
+        return;
+      }
+    }
+  }
+
+  private static void swap(int[] order, float[] distances, int i, int j) {
+    int tmpIndex = order[i];
+    order[i] = order[j];
+    order[j] = tmpIndex;
+    float tmpDistance = distances[i];
+    distances[i] = distances[j];
+    distances[j] = tmpDistance;
+  }
+
+  /**
+   * Finds the samples closest to {@code query}, which must be packed like the store's samples.
+   * Fills {@code neighbours}, which is cleared first, with as many as it can hold.
+   */
+  void search(float[] query, TopKSelector neighbours) {
+    neighbours.clear();
+    search(0, order.length, query, neighbours);
+  }
+
+  private void search(int lo, int hi, float[] query, TopKSelector neighbours) {
+    if (lo >= hi) {
+      return;
+    }
+    if (outsideStart[lo] == LEAF) {
+      for (int i = lo; i < hi; i++) {
+        neighbours.offer(order[i], sampleStore.maxDistance(order[i], query, axesWeights));
+      }
+      return;
+    }
+    float distance = sampleStore.maxDistance(order[lo], query, axesWeights);
+    neighbours.offer(order[lo], distance);
+
+    float nodeRadius = radius[lo];
+    int median = outsideStart[lo];
+    // Descend into the half the query falls in first, it is the most likely to tighten the bound.
+    if (distance < nodeRadius) {
+      if (distance <= withMargin(nodeRadius + neighbours.bound())) {
+        search(lo + 1, median, query, neighbours);
+      }
+      if (withMargin(distance + neighbours.bound()) >= nodeRadius) {
+        search(median, hi, query, neighbours);
+      }
+    } else {
+      if (withMargin(distance + neighbours.bound()) >= nodeRadius) {
+        search(median, hi, query, neighbours);
+      }
+      if (distance <= withMargin(nodeRadius + neighbours.bound())) {
+        search(lo + 1, median, query, neighbours);
+      }
+    }
+  }
+
+  private static float withMargin(float distance) {
+    return distance + distance * RELATIVE_ROUNDING_MARGIN + ABSOLUTE_ROUNDING_MARGIN;
+  }
+}
@@ -0,0 +1,162 @@
+package com.fluffycandies.yogaguide.perf;
+
+/**
+ * Fixed-bucket latency histogram in the style of HdrHistogram, for percentiles of per-frame
+ * latencies over a whole session.
+ *
+ * <p>Latencies are kept in microseconds. Values below 32us get a bucket each, above that every
+ * power of two is split into 16 buckets, so a bucket is at most ~6% wide. Values above {@link
+ * #MAX_TRACKABLE_MICROS} are counted in the last bucket. The buckets are allocated up front and
+ * {@link #record} allocates nothing. Thread-safe.
+ */
+public final class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  /** Latencies are tracked up to a minute. */
+  public static final long MAX_TRACKABLE_MICROS = 60_000_000L;
+
+  private static final int BUCKET_COUNT = bucketIndex(MAX_TRACKABLE_MICROS) + 1;
+
+  private final long[] counts = new long[BUCKET_COUNT];
+  private long totalCount;
+  private long totalMicros;
+  private long minMicros = Long.MAX_VALUE;
+  private long maxMicros;
+
+  /** Records one latency, given in nanoseconds. Negative values count as zero. */
+  public void record(long latencyNanos) {
+    long micros = Math.min(Math.max(latencyNanos / 1000, 0), MAX_TRACKABLE_MICROS);
+    int index = bucketIndex(micros);
+    synchronized (this) {
+      counts[index]++;
+      totalCount++;
+      totalMicros += micros;
+      minMicros = Math.min(minMicros, micros);
+      maxMicros = Math.max(maxMicros, micros);
+    }
+  }
+
+  /** Returns a copy of the recorded values, later records don't affect it. */
+  public synchronized Snapshot snapshot() {
+    return new Snapshot(counts.clone(), totalCount, totalMicros, minMicros, maxMicros);
+  }
+
+  public synchronized void reset() {
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = 0;
+    }
+    totalCount = 0;
+    totalMicros = 0;
+    minMicros = Long.MAX_VALUE;
+    maxMicros = 0;
+  }
+
+  private static int bucketIndex(long micros) {
+    if (micros < 2 * SUB_BUCKET_COUNT) {
+      return (int) micros;
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS;
+    return shift * SUB_BUCKET_COUNT + (int) (micros >>> shift);
+  }
+
+  /** Returns the smallest value counted in the bucket at {@code index}. */
+  private static long bucketLowerBound(int index) {
+    if (index < 2 * SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int shift = index / SUB_BUCKET_COUNT - 1;
+    long top = index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+    return top << shift;
+  }
+
+  /** Returns the largest value counted in the bucket at {@code index}. */
+  private static long bucketUpperBound(int index) {
+    if (index < 2 * SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int shift = index / SUB_BUCKET_COUNT - 1;
+    long top = index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+    return ((top + 1) << shift) - 1;
+  }
+
+  /** Immutable copy of a {@link LatencyHistogram}. */
+  public static final class Snapshot {
+    private final long[] counts;
+    private final long totalCount;
+    private final long totalMicros;
+    private final long minMicros;
+    private final long maxMicros;
+
+    private Snapshot(
+        long[] counts, long totalCount, long totalMicros, long minMicros, long maxMicros) {
+      this.counts = counts;
+      this.totalCount = totalCount;
+      this.totalMicros = totalMicros;
+      this.minMicros = minMicros;
+      this.maxMicros = maxMicros;
+    }
+
+    public long getCount() {
+      return totalCount;
+    }
+
+    /**
+     * Returns the values recorded after {@code earlier}, which must be a snapshot of the same
+     * histogram taken before this one. Min and max are only known to bucket precision.
+     */
+    public Snapshot since(Snapshot earlier) {
+      long[] intervalCounts = new long[counts.length];
+      int first = -1;
+      int last = -1;
+      for (int i = 0; i < counts.length; i++) {
+        intervalCounts[i] = counts[i] - earlier.counts[i];
+        if (intervalCounts[i] > 0) {
+          if (first < 0) {
+            first = i;
+          }
+          last = i;
+        }
+      }
+      if (first < 0) {
+        return new Snapshot(intervalCounts, 0, 0, Long.MAX_VALUE, 0);
+      }
+      return new Snapshot(
+          intervalCounts,
+          totalCount - earlier.totalCount,
+          totalMicros - earlier.totalMicros,
+          Math.max(bucketLowerBound(first), minMicros),
+          Math.min(bucketUpperBound(last), maxMicros));
+    }
+
+    public double getMinMillis() {
+      return totalCount == 0 ? 0 : minMicros / 1000.0;
+    }
+
+    public double getMaxMillis() {
+      return maxMicros / 1000.0;
+    }
+
+    public double getMeanMillis() {
+      return totalCount == 0 ? 0 : totalMicros / 1000.0 / totalCount;
+    }
+
+    /**
+     * Returns the latency that {@code percentile} percent of the recorded values are at or below,
+     * rounded up to the bucket it falls in, or 0 if nothing was recorded.
+     */
+    public double getPercentileMillis(double percentile) {
+      if (totalCount == 0) {
+        return 0;
+      }
+      long rank = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen >= rank) {
+          return Math.min(bucketUpperBound(i), maxMicros) / 1000.0;
+        }
+      }
+      return getMaxMillis();
+    }
+  }
+}
@@ -0,0 +1,94 @@
+package com.fluffycandies.yogaguide.perf;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Map;
+
+/** Writes latency histogram snapshots as a compact CSV or JSON report, one entry per stage. */
+public final class LatencyReport {
+  private static final double[] PERCENTILES = {50, 90, 95, 99};
+  private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p95", "p99"};
+
+  /** Writes a header line, then one line per stage. Latencies are in milliseconds. */
+  public static void writeCsv(Writer writer, Map<String, LatencyHistogram.Snapshot> snapshots)
+      throws IOException {
+    writer.write("stage,count,min,mean");
+    for (String name : PERCENTILE_NAMES) {
+      writer.write(',');
+      writer.write(name);
+    }
+    writer.write(",max\n");
+    for (Map.Entry<String, LatencyHistogram.Snapshot> entry : snapshots.entrySet()) {
+      LatencyHistogram.Snapshot snapshot = entry.getValue();
+      writer.write(entry.getKey());
+      writer.write(',');
+      writer.write(Long.toString(snapshot.getCount()));
+      writer.write(',');
+      writer.write(formatMillis(snapshot.getMinMillis()));
+      writer.write(',');
+      writer.write(formatMillis(snapshot.getMeanMillis()));
+      for (double percentile : PERCENTILES) {
+        writer.write(',');
+        writer.write(formatMillis(snapshot.getPercentileMillis(percentile)));
+      }
+      writer.write(',');
+      writer.write(formatMillis(snapshot.getMaxMillis()));
+      writer.write('\n');
+    }
+  }
+
+  /**
+   * Writes a JSON object keyed by stage, e.g. {@code {"frame":{"count":10,"min":1.2,...}}}.
+   * Latencies are in milliseconds. Stage names are expected not to need escaping.
+   */
+  public static void writeJson(Writer writer, Map<String, LatencyHistogram.Snapshot> snapshots)
+      throws IOException {
+    writer.write('{');
+    boolean first = true;
+    for (Map.Entry<String, LatencyHistogram.Snapshot> entry : snapshots.entrySet()) {
+      LatencyHistogram.Snapshot snapshot = entry.getValue();
+      if (!first) {
+        writer.write(',');
+      }
+      first = false;
+      writer.write('"');
+      writer.write(entry.getKey());
+      writer.write("\":{\"count\":");
+      writer.write(Long.toString(snapshot.getCount()));
+      writer.write(",\"min\":");
+      writer.write(formatMillis(snapshot.getMinMillis()));
+      writer.write(",\"mean\":");
+      writer.write(formatMillis(snapshot.getMeanMillis()));
+      for (int i = 0; i < PERCENTILES.length; i++) {
+        writer.write(",\"");
+        writer.write(PERCENTILE_NAMES[i]);
+        writer.write("\":");
+        writer.write(formatMillis(snapshot.getPercentileMillis(PERCENTILES[i])));
+      }
+      writer.write(",\"max\":");
+      writer.write(formatMillis(snapshot.getMaxMillis()));
+      writer.write('}');
+    }
+    writer.write("}\n");
+  }
+
+  /** Returns a one line summary of a stage for logging. */
+  public static String summarize(String stage, LatencyHistogram.Snapshot snapshot) {
+    return String.format(
+        Locale.US,
+        "%s latency: n=%d, p50=%sms, p95=%sms, p99=%sms, max=%sms",
+        stage,
+        snapshot.getCount(),
+        formatMillis(snapshot.getPercentileMillis(50)),
+        formatMillis(snapshot.getPercentileMillis(95)),
+        formatMillis(snapshot.getPercentileMillis(99)),
+        formatMillis(snapshot.getMaxMillis()));
+  }
+
+  private static String formatMillis(double millis) {
+    return String.format(Locale.US, "%.3f", millis);
+  }
+
+  private LatencyReport() {}
+}
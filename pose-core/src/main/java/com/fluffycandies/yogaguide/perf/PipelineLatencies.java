@@ -0,0 +1,67 @@
+package com.fluffycandies.yogaguide.perf;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** One {@link LatencyHistogram} per stage of the live preview frame pipeline. Thread-safe. */
+public final class PipelineLatencies {
+
+  /** The measured stages, in the order a frame goes through them. */
+  public enum Stage {
+    /** Converting the camera image to the bitmap drawn behind the overlay. */
+    CONVERSION("conversion"),
+    /** ML Kit pose detection, including waiting for the detector. */
+    DETECTION("detection"),
+    /** k-NN pose classification. */
+    CLASSIFICATION("classification"),
+    /** Smoothing of the classification results. */
+    SMOOTHING("smoothing"),
+    /** From the end of post-processing until the overlay was drawn on the main thread. */
+    DRAW("draw"),
+    /** The whole frame, from handing it to the processor until it was drawn. */
+    FRAME("frame");
+
+    private final String label;
+
+    Stage(String label) {
+      this.label = label;
+    }
+
+    public String getLabel() {
+      return label;
+    }
+  }
+
+  private final EnumMap<Stage, LatencyHistogram> histograms = new EnumMap<>(Stage.class);
+
+  public PipelineLatencies() {
+    for (Stage stage : Stage.values()) {
+      histograms.put(stage, new LatencyHistogram());
+    }
+  }
+
+  /** Records one latency of {@code stage}, given in nanoseconds. Allocates nothing. */
+  public void record(Stage stage, long latencyNanos) {
+    histograms.get(stage).record(latencyNanos);
+  }
+
+  public LatencyHistogram getHistogram(Stage stage) {
+    return histograms.get(stage);
+  }
+
+  /** Returns snapshots of all stages keyed by their labels, in pipeline order. */
+  public Map<String, LatencyHistogram.Snapshot> snapshot() {
+    Map<String, LatencyHistogram.Snapshot> snapshots = new LinkedHashMap<>();
+    for (Stage stage : Stage.values()) {
+      snapshots.put(stage.getLabel(), histograms.get(stage).snapshot());
+    }
+    return snapshots;
+  }
+
+  public void reset() {
+    for (LatencyHistogram histogram : histograms.values()) {
+      histogram.reset();
+    }
+  }
+}
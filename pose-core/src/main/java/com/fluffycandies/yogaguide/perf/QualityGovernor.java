@@ -0,0 +1,173 @@
+package com.fluffycandies.yogaguide.perf;
+
+/**
+ * Steps the quality of the live pose pipeline down when the device heats up or frames stay over
+ * the latency budget, and back up once there is headroom again.
+ *
+ * <p>Fed one sample per interval through {@link #update}. Stepping down needs pressure for {@link
+ * #STEP_DOWN_AFTER_MS}, stepping up needs headroom for the much longer {@link #STEP_UP_AFTER_MS},
+ * and the cool-down thresholds sit below the ones that caused the step down, so the level doesn't
+ * oscillate. After any change the level is held for {@link #HOLD_AFTER_CHANGE_MS} so its effect
+ * shows in the samples before the next decision.
+ *
+ * <p>Pure state machine: time is passed in, so it can be driven by synthetic traces. Thread-safe,
+ * as it outlives the frame processors feeding it and is read on the main thread. The listener is
+ * called on the thread calling {@link #update}.
+ */
+public final class QualityGovernor {
+
+  /** Quality levels from best to cheapest. Every level keeps the reductions of the ones above. */
+  public enum QualityLevel {
+    FULL,
+    /** Lower camera analysis resolution. */
+    REDUCED_RESOLUTION,
+    /** Fast instead of accurate pose detector. */
+    FAST_DETECTOR,
+    /** Camera preview drawn by the hardware instead of converted to a bitmap per frame. */
+    NO_PREVIEW_BITMAP,
+    /** Pose classification on every {@link #SPARSE_CLASSIFICATION_INTERVAL}th frame only. */
+    SPARSE_CLASSIFICATION;
+
+    public boolean reducesResolution() {
+      return compareTo(REDUCED_RESOLUTION) >= 0;
+    }
+
+    public boolean usesFastDetector() {
+      return compareTo(FAST_DETECTOR) >= 0;
+    }
+
+    public boolean skipsPreviewBitmap() {
+      return compareTo(NO_PREVIEW_BITMAP) >= 0;
+    }
+
+    /** Returns every how many frames to classify. */
+    public int getClassificationInterval() {
+      return compareTo(SPARSE_CLASSIFICATION) >= 0 ? SPARSE_CLASSIFICATION_INTERVAL : 1;
+    }
+  }
+
+  /** Notified from {@link #update} when the level changes. */
+  public interface Listener {
+    void onQualityLevelChanged(QualityLevel level);
+  }
+
+  public static final int SPARSE_CLASSIFICATION_INTERVAL = 3;
+  public static final long STEP_DOWN_AFTER_MS = 3_000;
+  public static final long STEP_UP_AFTER_MS = 20_000;
+  public static final long HOLD_AFTER_CHANGE_MS = 5_000;
+
+  /** Thermal status reported when unknown, e.g. before Android Q. */
+  public static final int THERMAL_STATUS_UNKNOWN = -1;
+  // PowerManager.THERMAL_STATUS_LIGHT and THERMAL_STATUS_MODERATE.
+  private static final int THERMAL_STATUS_LIGHT = 1;
+  private static final int THERMAL_STATUS_MODERATE = 2;
+  // Temperature rise over the baseline that counts as hot, and the one to cool down below.
+  private static final double HOT_RISE_C = 6;
+  private static final double COOL_RISE_C = 3;
+  // Readings averaged into the baseline, so one odd reading at startup doesn't set it.
+  private static final int BASELINE_READINGS = 5;
+  // Fraction of the latency budget to be under for headroom.
+  private static final double HEADROOM_LATENCY_FACTOR = 0.7;
+
+  private final double latencyBudgetMs;
+  private Listener listener;
+
+  private QualityLevel level = QualityLevel.FULL;
+  private double baselineTemperatureC = Double.NaN;
+  private double baselineTemperatureSumC;
+  private int baselineReadingCount;
+  // Latency verdicts of the last sample that had frames, kept through samples without any.
+  private boolean isLatencyOverBudget;
+  private boolean hasLatencyHeadroom;
+  private long pressureSinceMs = -1;
+  private long headroomSinceMs = -1;
+  private long lastChangeMs = -1;
+
+  /** @param latencyBudgetMs frame p95 latency above which the pipeline is under pressure. */
+  public QualityGovernor(double latencyBudgetMs) {
+    this.latencyBudgetMs = latencyBudgetMs;
+  }
+
+  public synchronized void setListener(Listener listener) {
+    this.listener = listener;
+  }
+
+  public synchronized QualityLevel getLevel() {
+    return level;
+  }
+
+  /**
+   * Feeds one sample and returns the level to run at.
+   *
+   * <p>A sample without frames carries no latency information, so the latency of the last sample
+   * that had frames still applies. The temperature rise is measured from the average of the first
+   * {@link #BASELINE_READINGS} readings, lowered to any cooler reading after that. Until then the
+   * temperature is not taken into account.
+   *
+   * @param nowMs monotonic time of the sample.
+   * @param latencyP95Ms frame p95 latency over the last interval, NaN if no frame was processed.
+   * @param thermalStatus {@code PowerManager} thermal status, or {@link #THERMAL_STATUS_UNKNOWN}.
+   * @param temperatureC device temperature, NaN if unknown.
+   */
+  public synchronized QualityLevel update(
+      long nowMs, double latencyP95Ms, int thermalStatus, double temperatureC) {
+    if (!Double.isNaN(latencyP95Ms)) {
+      isLatencyOverBudget = latencyP95Ms > latencyBudgetMs;
+      hasLatencyHeadroom = latencyP95Ms <= latencyBudgetMs * HEADROOM_LATENCY_FACTOR;
+    }
+    updateBaselineTemperature(temperatureC);
+    double temperatureRiseC = temperatureC - baselineTemperatureC;
+
+    boolean isPressure =
+        isLatencyOverBudget
+            || thermalStatus >= THERMAL_STATUS_MODERATE
+            || temperatureRiseC >= HOT_RISE_C;
+    boolean isHeadroom =
+        !isPressure
+            && hasLatencyHeadroom
+            && thermalStatus <= THERMAL_STATUS_LIGHT
+            && !(temperatureRiseC >= COOL_RISE_C);
+    pressureSinceMs = isPressure ? (pressureSinceMs < 0 ? nowMs : pressureSinceMs) : -1;
+    headroomSinceMs = isHeadroom ? (headroomSinceMs < 0 ? nowMs : headroomSinceMs) : -1;
+
+    if (lastChangeMs >= 0 && nowMs - lastChangeMs < HOLD_AFTER_CHANGE_MS) {
+      return level;
+    }
+    QualityLevel[] levels = QualityLevel.values();
+    if (isPressure
+        && nowMs - pressureSinceMs >= STEP_DOWN_AFTER_MS
+        && level.ordinal() < levels.length - 1) {
+      changeLevel(levels[level.ordinal() + 1], nowMs);
+      pressureSinceMs = nowMs;
+    } else if (isHeadroom
+        && nowMs - headroomSinceMs >= STEP_UP_AFTER_MS
+        && level.ordinal() > 0) {
+      changeLevel(levels[level.ordinal() - 1], nowMs);
+      headroomSinceMs = nowMs;
+    }
+    return level;
+  }
+
+  private void updateBaselineTemperature(double temperatureC) {
+    if (Double.isNaN(temperatureC)) {
+      return;
+    }
+    if (baselineReadingCount < BASELINE_READINGS) {
+      baselineTemperatureSumC += temperatureC;
+      baselineReadingCount++;
+      if (baselineReadingCount == BASELINE_READINGS) {
+        baselineTemperatureC = baselineTemperatureSumC / BASELINE_READINGS;
+      }
+    } else if (temperatureC < baselineTemperatureC) {
+      baselineTemperatureC = temperatureC;
+    }
+  }
+
+  private void changeLevel(QualityLevel newLevel, long nowMs) {
+    level = newLevel;
+    lastChangeMs = nowMs;
+    if (listener != null) {
+      listener.onQualityLevelChanged(newLevel);
+    }
+  }
+}
@@ -0,0 +1,295 @@
+package com.fluffycandies.yogaguide.perf;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Desktop tool that reads a session recording written by {@link SessionRecorder} and correlates
+ * thermal throttling with frame rate drops and latency spikes.
+ *
+ * <p>A sample counts as throttled when the thermal status is moderate or worse, or, on devices
+ * that don't report one, when the temperature is {@link #TEMPERATURE_RISE_C} above the first
+ * reading. A sample is a latency spike when its frame p95 is {@link #SPIKE_FACTOR} times the
+ * session median.
+ *
+ * <p>Usage: {@code SessionAnalyzer <session.csv>}, or {@code ./gradlew :pose-core:analyzeSession
+ * --args=<session.csv>}
+ */
+public final class SessionAnalyzer {
+  private static final int THERMAL_STATUS_MODERATE = 2;
+  private static final double TEMPERATURE_RISE_C = 5;
+  private static final double SPIKE_FACTOR = 1.5;
+
+  private final String[] header;
+  private final List<double[]> rows;
+
+  private SessionAnalyzer(String[] header, List<double[]> rows) {
+    this.header = header;
+    this.rows = rows;
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length != 1) {
+      System.err.println("Usage: SessionAnalyzer <session.csv>");
+      System.exit(1);
+    }
+    try (FileReader reader = new FileReader(args[0])) {
+      System.out.print(analyze(reader));
+    }
+  }
+
+  /** Returns a human readable report of the session read from {@code reader}. */
+  public static String analyze(Reader reader) throws IOException {
+    return parse(reader).report();
+  }
+
+  private static SessionAnalyzer parse(Reader reader) throws IOException {
+    BufferedReader lines = new BufferedReader(reader);
+    String headerLine = lines.readLine();
+    if (headerLine == null) {
+      throw new IOException("Empty session file");
+    }
+    String[] header = headerLine.split(",", -1);
+    List<double[]> rows = new ArrayList<>();
+    String line;
+    while ((line = lines.readLine()) != null) {
+      if (line.isEmpty()) {
+        continue;
+      }
+      String[] fields = line.split(",", -1);
+      double[] row = new double[header.length];
+      for (int i = 0; i < header.length; i++) {
+        boolean isKnown = i < fields.length && !fields[i].isEmpty();
+        row[i] = isKnown ? Double.parseDouble(fields[i]) : Double.NaN;
+      }
+      rows.add(row);
+    }
+    return new SessionAnalyzer(header, rows);
+  }
+
+  private int column(String name) {
+    for (int i = 0; i < header.length; i++) {
+      if (header[i].equals(name)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /** Returns the values of a column, NaN where missing or if there's no such column. */
+  private double[] series(String name) {
+    int column = column(name);
+    double[] series = new double[rows.size()];
+    for (int i = 0; i < series.length; i++) {
+      series[i] = column < 0 ? Double.NaN : rows.get(i)[column];
+    }
+    return series;
+  }
+
+  /** Returns per sample whether it is throttled, or null if the session has no thermal data. */
+  private boolean[] throttled() {
+    double[] status = series(SessionColumns.THERMAL_STATUS);
+    double[] temperature = series(SessionColumns.TEMPERATURE_C);
+    boolean hasStatus = count(status) > 0;
+    double baseline = Double.NaN;
+    for (double value : temperature) {
+      if (!Double.isNaN(value)) {
+        baseline = value;
+        break;
+      }
+    }
+    if (!hasStatus && Double.isNaN(baseline)) {
+      return null;
+    }
+    boolean[] throttled = new boolean[rows.size()];
+    for (int i = 0; i < throttled.length; i++) {
+      throttled[i] =
+          hasStatus
+              ? status[i] >= THERMAL_STATUS_MODERATE
+              : temperature[i] >= baseline + TEMPERATURE_RISE_C;
+    }
+    return throttled;
+  }
+
+  private String report() {
+    StringBuilder report = new StringBuilder();
+    if (rows.isEmpty()) {
+      return "No samples.\n";
+    }
+    double[] time = series(SessionRecorder.TIME_COLUMN);
+    double[] fps = series(SessionColumns.FPS);
+    double[] frameP95 = series(SessionColumns.latencyP95(PipelineLatencies.Stage.FRAME));
+    double[] temperature = series(SessionColumns.TEMPERATURE_C);
+    double medianFrameP95 = median(frameP95, null, false);
+
+    appendLine(
+        report,
+        "Session: %d samples over %.0fs, mean fps %.1f, median frame p95 %.1fms",
+        rows.size(),
+        (time[time.length - 1] - time[0]) / 1000,
+        mean(fps, null, false),
+        medianFrameP95);
+
+    boolean[] spikes = new boolean[rows.size()];
+    int spikeCount = 0;
+    for (int i = 0; i < spikes.length; i++) {
+      spikes[i] = frameP95[i] > SPIKE_FACTOR * medianFrameP95;
+      if (spikes[i]) {
+        spikeCount++;
+      }
+    }
+    appendLine(
+        report,
+        "Latency spikes (frame p95 > %.1fx median): %d samples",
+        SPIKE_FACTOR,
+        spikeCount);
+    appendLine(
+        report,
+        "Correlation of temperature with frame p95: %s, with fps: %s",
+        formatCorrelation(correlation(temperature, frameP95)),
+        formatCorrelation(correlation(temperature, fps)));
+
+    boolean[] throttled = throttled();
+    if (throttled == null) {
+      appendLine(report, "No thermal data recorded, can't tell throttled samples apart.");
+      return report.toString();
+    }
+    int firstThrottled = -1;
+    int throttledCount = 0;
+    int throttledSpikes = 0;
+    for (int i = 0; i < throttled.length; i++) {
+      if (throttled[i]) {
+        if (firstThrottled < 0) {
+          firstThrottled = i;
+        }
+        throttledCount++;
+        if (spikes[i]) {
+          throttledSpikes++;
+        }
+      }
+    }
+    if (firstThrottled < 0) {
+      appendLine(report, "Never throttled.");
+      return report.toString();
+    }
+    int unthrottledCount = rows.size() - throttledCount;
+    appendLine(
+        report,
+        "Throttled from %.0fs on, %d of %d samples (%.0f%%)",
+        (time[firstThrottled] - time[0]) / 1000,
+        throttledCount,
+        rows.size(),
+        100.0 * throttledCount / rows.size());
+    appendLine(
+        report,
+        "Spike rate: %.0f%% throttled, %.0f%% not throttled",
+        100.0 * throttledSpikes / throttledCount,
+        unthrottledCount == 0 ? 0 : 100.0 * (spikeCount - throttledSpikes) / unthrottledCount);
+    appendLine(
+        report,
+        "Mean fps: %.1f throttled, %.1f not throttled",
+        mean(fps, throttled, true),
+        mean(fps, throttled, false));
+    // Which stages slow down the most.
+    for (PipelineLatencies.Stage stage : PipelineLatencies.Stage.values()) {
+      double[] stageP95 = series(SessionColumns.latencyP95(stage));
+      if (count(stageP95) == 0) {
+        continue;
+      }
+      appendLine(
+          report,
+          "  %s p95 median: %.1fms throttled, %.1fms not throttled",
+          stage.getLabel(),
+          median(stageP95, throttled, true),
+          median(stageP95, throttled, false));
+    }
+    return report.toString();
+  }
+
+  private static void appendLine(StringBuilder report, String format, Object... args) {
+    report.append(String.format(Locale.US, format, args)).append('\n');
+  }
+
+  private static int count(double[] series) {
+    int count = 0;
+    for (double value : series) {
+      if (!Double.isNaN(value)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /** Returns the values that aren't NaN, of the samples where {@code mask} equals {@code when}. */
+  private static double[] select(double[] series, boolean[] mask, boolean when) {
+    double[] selected = new double[series.length];
+    int count = 0;
+    for (int i = 0; i < series.length; i++) {
+      if (!Double.isNaN(series[i]) && (mask == null || mask[i] == when)) {
+        selected[count++] = series[i];
+      }
+    }
+    return Arrays.copyOf(selected, count);
+  }
+
+  private static double mean(double[] series, boolean[] mask, boolean when) {
+    double[] values = select(series, mask, when);
+    double sum = 0;
+    for (double value : values) {
+      sum += value;
+    }
+    return values.length == 0 ? Double.NaN : sum / values.length;
+  }
+
+  private static double median(double[] series, boolean[] mask, boolean when) {
+    double[] values = select(series, mask, when);
+    if (values.length == 0) {
+      return Double.NaN;
+    }
+    Arrays.sort(values);
+    int middle = values.length / 2;
+    return values.length % 2 == 1 ? values[middle] : (values[middle - 1] + values[middle]) / 2;
+  }
+
+  /** Returns the Pearson correlation over the samples where both values are known. */
+  private static double correlation(double[] x, double[] y) {
+    int n = 0;
+    double sumX = 0;
+    double sumY = 0;
+    for (int i = 0; i < x.length; i++) {
+      if (!Double.isNaN(x[i]) && !Double.isNaN(y[i])) {
+        n++;
+        sumX += x[i];
+        sumY += y[i];
+      }
+    }
+    if (n < 2) {
+      return Double.NaN;
+    }
+    double meanX = sumX / n;
+    double meanY = sumY / n;
+    double covariance = 0;
+    double varianceX = 0;
+    double varianceY = 0;
+    for (int i = 0; i < x.length; i++) {
+      if (!Double.isNaN(x[i]) && !Double.isNaN(y[i])) {
+        double dx = x[i] - meanX;
+        double dy = y[i] - meanY;
+        covariance += dx * dy;
+        varianceX += dx * dx;
+        varianceY += dy * dy;
+      }
+    }
+    return covariance / Math.sqrt(varianceX * varianceY);
+  }
+
+  private static String formatCorrelation(double correlation) {
+    return Double.isNaN(correlation) ? "n/a" : String.format(Locale.US, "%.2f", correlation);
+  }
+}
@@ -0,0 +1,44 @@
+package com.fluffycandies.yogaguide.perf;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/** Column names of the live preview session recordings, shared by the app and the analyzer. */
+public final class SessionColumns {
+  /** Frames drawn in the last second. */
+  public static final String FPS = "fps";
+  /** CameraX frames dropped in the last interval. */
+  public static final String DROPPED_FRAMES = "dropped_frames";
+  public static final String HEAP_USED_MB = "heap_used_mb";
+  public static final String AVAILABLE_MEMORY_MB = "avail_mem_mb";
+  /** 1 if the system considers memory low, else 0. */
+  public static final String LOW_MEMORY = "low_memory";
+  /** {@code PowerManager} thermal status, 0 (none) to 6 (shutdown), empty before Android Q. */
+  public static final String THERMAL_STATUS = "thermal_status";
+  /** Highest reading of the temperature sensors, empty if the device exposes none. */
+  public static final String TEMPERATURE_C = "temperature_c";
+
+  /** Returns the column of the p95 latency of {@code stage} over the last interval. */
+  public static String latencyP95(PipelineLatencies.Stage stage) {
+    return stage.getLabel() + "_p95_ms";
+  }
+
+  /** Returns all columns in recording order. */
+  public static List<String> all() {
+    List<String> columns = new ArrayList<>();
+    columns.add(FPS);
+    columns.add(DROPPED_FRAMES);
+    for (PipelineLatencies.Stage stage : PipelineLatencies.Stage.values()) {
+      columns.add(latencyP95(stage));
+    }
+    columns.add(HEAP_USED_MB);
+    columns.add(AVAILABLE_MEMORY_MB);
+    columns.add(LOW_MEMORY);
+    columns.add(THERMAL_STATUS);
+    columns.add(TEMPERATURE_C);
+    return Collections.unmodifiableList(columns);
+  }
+
+  private SessionColumns() {}
+}
@@ -0,0 +1,83 @@
+package com.fluffycandies.yogaguide.perf;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Ring buffer of periodic performance samples of a session, e.g. one row of fps, latencies, memory
+ * and temperature per second, written out as CSV when the session ends.
+ *
+ * <p>Every row has a timestamp and one float per column, stored in preallocated primitive arrays
+ * so that {@link #record} allocates nothing. Once full, the oldest rows are overwritten. NaN marks
+ * a value that wasn't available and is written as an empty field. Thread-safe.
+ */
+public final class SessionRecorder {
+  /** Header of the timestamp column, in milliseconds since the session started. */
+  public static final String TIME_COLUMN = "time_ms";
+
+  private final String[] columns;
+  private final int capacity;
+  private final long[] timestamps;
+  private final float[] values;
+  private int nextRow;
+  private int rowCount;
+
+  /**
+   * @param columns names of the values of a row, without the timestamp.
+   * @param capacity how many rows to keep, e.g. an hour's worth of samples.
+   */
+  public SessionRecorder(List<String> columns, int capacity) {
+    this.columns = columns.toArray(new String[0]);
+    this.capacity = capacity;
+    timestamps = new long[capacity];
+    values = new float[capacity * this.columns.length];
+  }
+
+  public int getColumnCount() {
+    return columns.length;
+  }
+
+  /** Returns the number of rows held, at most the capacity. */
+  public synchronized int size() {
+    return rowCount;
+  }
+
+  /**
+   * Appends a row, overwriting the oldest one if full. {@code row} holds one value per column and
+   * is copied, so the caller can reuse it.
+   */
+  public synchronized void record(long timestampMs, float[] row) {
+    if (row.length != columns.length) {
+      throw new IllegalArgumentException(
+          "Expected " + columns.length + " values, got " + row.length);
+    }
+    timestamps[nextRow] = timestampMs;
+    System.arraycopy(row, 0, values, nextRow * columns.length, columns.length);
+    nextRow = (nextRow + 1) % capacity;
+    rowCount = Math.min(rowCount + 1, capacity);
+  }
+
+  /** Writes a header line and then the rows held, oldest first. */
+  public synchronized void writeCsv(Writer writer) throws IOException {
+    writer.write(TIME_COLUMN);
+    for (String column : columns) {
+      writer.write(',');
+      writer.write(column);
+    }
+    writer.write('\n');
+    int firstRow = (nextRow - rowCount + capacity) % capacity;
+    for (int i = 0; i < rowCount; i++) {
+      int row = (firstRow + i) % capacity;
+      writer.write(Long.toString(timestamps[row]));
+      for (int column = 0; column < columns.length; column++) {
+        writer.write(',');
+        float value = values[row * columns.length + column];
+        if (!Float.isNaN(value)) {
+          writer.write(Float.toString(value));
+        }
+      }
+      writer.write('\n');
+    }
+  }
+}
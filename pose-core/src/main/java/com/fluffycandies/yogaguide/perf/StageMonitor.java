@@ -0,0 +1,80 @@
+package com.fluffycandies.yogaguide.perf;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks the frames inside one stage of the frame pipeline: how many are in it at once, i.e. its
+ * queue depth, and how long each one stayed.
+ *
+ * <p>A frame enters and leaves on whichever threads run the stage, so this is thread-safe. The
+ * latency stats cover the frames that left since the last {@link #drainSummary}.
+ */
+public final class StageMonitor {
+  private final String name;
+  private final AtomicInteger depth = new AtomicInteger();
+
+  private int maxDepth;
+  private int count;
+  private long totalNanos;
+  private long maxNanos;
+
+  public StageMonitor(String name) {
+    this.name = name;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /** Records a frame entering the stage and returns the time to pass to {@link #exit}. */
+  public long enter() {
+    int currentDepth = depth.incrementAndGet();
+    synchronized (this) {
+      maxDepth = Math.max(maxDepth, currentDepth);
+    }
+    return System.nanoTime();
+  }
+
+  /**
+   * Records a frame leaving the stage, given the time {@link #enter} returned for it, and returns
+   * how long it stayed.
+   */
+  public long exit(long enteredNanos) {
+    long latencyNanos = System.nanoTime() - enteredNanos;
+    depth.decrementAndGet();
+    synchronized (this) {
+      count++;
+      totalNanos += latencyNanos;
+      maxNanos = Math.max(maxNanos, latencyNanos);
+    }
+    return latencyNanos;
+  }
+
+  /** Returns the number of frames currently in the stage. */
+  public int getDepth() {
+    return depth.get();
+  }
+
+  /**
+   * Returns a one line summary of the frames that left the stage since the last call, and starts
+   * a new interval.
+   */
+  public synchronized String drainSummary() {
+    String summary =
+        String.format(
+            Locale.US,
+            "%s: depth=%d, maxDepth=%d, frames=%d, avg=%.1fms, max=%.1fms",
+            name,
+            depth.get(),
+            maxDepth,
+            count,
+            count == 0 ? 0 : totalNanos / 1e6 / count,
+            maxNanos / 1e6);
+    maxDepth = depth.get();
+    count = 0;
+    totalNanos = 0;
+    maxNanos = 0;
+    return summary;
+  }
+}
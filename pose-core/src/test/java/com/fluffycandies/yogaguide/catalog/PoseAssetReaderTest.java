@@ -0,0 +1,169 @@
+package com.fluffycandies.yogaguide.catalog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.fluffycandies.yogaguide.catalog.PoseAssetReader.AngleRecord;
+import com.fluffycandies.yogaguide.catalog.PoseAssetReader.PoseRecord;
+import com.fluffycandies.yogaguide.java.posedetector.classification.ClassVocabulary;
+import com.fluffycandies.yogaguide.java.posedetector.classification.PoseSample;
+import com.fluffycandies.yogaguide.java.posedetector.classification.PoseSampleLoader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Test;
+
+/** Reads the catalog assets that ship in the app and joins them the way PoseCatalog does. */
+public class PoseAssetReaderTest {
+  private static final String ASSETS_DIR = "../app/src/main/assets/pose/";
+
+  @Test
+  public void shippedPoses_haveUniqueIdsAndNames() throws IOException {
+    List<PoseRecord> poses = readPoses();
+
+    assertEquals(47, poses.size());
+    Set<Integer> ids = new HashSet<>();
+    for (PoseRecord pose : poses) {
+      assertTrue("Duplicate id " + pose.getId(), ids.add(pose.getId()));
+      assertTrue(!pose.getSanskritName().isEmpty() && !pose.getEnglishName().isEmpty());
+    }
+    // Listed twice, PoseCatalog shows the first.
+    assertEquals(20, firstByName(poses).get("Uttanasana").getId());
+  }
+
+  @Test
+  public void shippedAngles_coverEveryPose() throws IOException {
+    Map<String, float[]> anglesByName = firstAnglesByName(readAngles());
+
+    for (PoseRecord pose : readPoses()) {
+      float[] angles = anglesByName.get(pose.getSanskritName());
+      assertNotNull("No angles for " + pose.getSanskritName(), angles);
+      assertEquals(PoseAssetReader.JOINT_KEYS.size(), angles.length);
+      for (float angle : angles) {
+        assertTrue(pose.getSanskritName() + " " + angle, angle >= 0 && angle <= 360);
+      }
+    }
+  }
+
+  @Test
+  public void duplicatedAngles_firstEntryWins() throws IOException {
+    List<AngleRecord> records = readAngles();
+    List<float[]> virabhadrasanaOne = new ArrayList<>();
+    for (AngleRecord record : records) {
+      if (record.getPoseName().equals("Virabhadrasana One")) {
+        virabhadrasanaOne.add(record.getAngles());
+      }
+    }
+
+    // Both entries are read, in file order, and PoseCatalog keeps the first as the ideal angles.
+    assertEquals(2, virabhadrasanaOne.size());
+    int leftShoulder = PoseAssetReader.JOINT_KEYS.indexOf("left_shoulder");
+    assertEquals(144.636f, virabhadrasanaOne.get(0)[leftShoulder], 0.001f);
+    assertEquals(140.890f, virabhadrasanaOne.get(1)[leftShoulder], 0.001f);
+    assertSame(virabhadrasanaOne.get(0), firstAnglesByName(records).get("Virabhadrasana One"));
+  }
+
+  @Test
+  public void shippedPoses_resolveToSampleClassIds() throws IOException {
+    List<PoseSample> samples;
+    try (Reader reader = open("posecore.samples", "yoga_poses.csv")) {
+      samples = PoseSampleLoader.load(reader);
+    }
+    List<String> classNames = new ArrayList<>();
+    for (PoseSample sample : samples) {
+      classNames.add(sample.getClassName());
+    }
+    ClassVocabulary vocabulary = new ClassVocabulary(classNames);
+
+    Map<String, Integer> classIds = new HashMap<>();
+    Set<String> posesWithoutSamples = new HashSet<>();
+    for (PoseRecord pose : readPoses()) {
+      String name = pose.getSanskritName();
+      int classId = vocabulary.getId(name);
+      if (classId < 0) {
+        posesWithoutSamples.add(name);
+        continue;
+      }
+      assertEquals(name, vocabulary.getName(classId));
+      // Both Uttanasana entries share one class id, and no two names do.
+      Integer previousId = classIds.put(name, classId);
+      assertTrue(name, previousId == null || previousId == classId);
+    }
+    assertEquals(classIds.size(), new HashSet<>(classIds.values()).size());
+    assertEquals(Collections.singleton("Alanasana"), posesWithoutSamples);
+  }
+
+  @Test
+  public void recordsMissingFields_areSkipped() throws IOException {
+    String poses =
+        "{\"Poses\": [{\"id\": 1, \"sanskrit_name\": \"A\", \"english_name\": \"a\", \"x\": []},"
+            + " {\"id\": 2, \"sanskrit_name\": \"B\"}]}";
+    String angles =
+        "{\"Angles\": [{\"A\": {\"left_shoulder\": 10}}, {\"B\": {"
+            + "\"left_shoulder\": 1, \"right_shoulder\": 2, \"left_elbow\": 3, \"right_elbow\": 4,"
+            + " \"left_hip\": 5, \"right_hip\": 6, \"left_knee\": 7, \"right_knee\": \"8\"}}]}";
+
+    List<PoseRecord> poseRecords = PoseAssetReader.readPoses(new StringReader(poses));
+    List<AngleRecord> angleRecords = PoseAssetReader.readAngles(new StringReader(angles));
+
+    assertEquals(1, poseRecords.size());
+    assertEquals("A", poseRecords.get(0).getSanskritName());
+    assertEquals(1, angleRecords.size());
+    assertEquals("B", angleRecords.get(0).getPoseName());
+    assertEquals(8f, angleRecords.get(0).getAngles()[7], 0f);
+  }
+
+  /** Joins the angles by pose name the way PoseCatalog does, the first entry of a pose wins. */
+  private static Map<String, float[]> firstAnglesByName(List<AngleRecord> records) {
+    Map<String, float[]> anglesByName = new HashMap<>();
+    for (AngleRecord record : records) {
+      if (!anglesByName.containsKey(record.getPoseName())) {
+        anglesByName.put(record.getPoseName(), record.getAngles());
+      }
+    }
+    return anglesByName;
+  }
+
+  private static Map<String, PoseRecord> firstByName(List<PoseRecord> poses) {
+    Map<String, PoseRecord> byName = new HashMap<>();
+    for (PoseRecord pose : poses) {
+      if (!byName.containsKey(pose.getSanskritName())) {
+        byName.put(pose.getSanskritName(), pose);
+      }
+    }
+    return byName;
+  }
+
+  private static List<PoseRecord> readPoses() throws IOException {
+    try (Reader reader = open("posecore.poses", "Poses.json")) {
+      return PoseAssetReader.readPoses(reader);
+    }
+  }
+
+  private static List<AngleRecord> readAngles() throws IOException {
+    try (Reader reader = open("posecore.angles", "angles.json")) {
+      return PoseAssetReader.readAngles(reader);
+    }
+  }
+
+  private static Reader open(String property, String fileName) throws IOException {
+    File file = new File(System.getProperty(property, ASSETS_DIR + fileName));
+    if (!file.isFile()) {
+      throw new IllegalStateException(fileName + " not found at " + file + ", set -D" + property);
+    }
+    return new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,88 @@
+package com.fluffycandies.yogaguide.imaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.nio.ByteBuffer;
+import org.junit.Test;
+
+public class ByteArrayPoolTest {
+  private static final int WIDTH = 64;
+  private static final int HEIGHT = 48;
+  private static final int NV21_SIZE = WIDTH * HEIGHT * 3 / 2;
+  private static final int WARM_UP_FRAMES = 5;
+  private static final int STEADY_STATE_FRAMES = 300;
+
+  private final ByteArrayPool pool = new ByteArrayPool(/* maxIdleBuffers= */ 2);
+  private final YuvPlaneUnpacker unpacker = new YuvPlaneUnpacker();
+  private final ByteBuffer yPlane = ByteBuffer.allocate(WIDTH * HEIGHT);
+  private final ByteBuffer uvPlane = ByteBuffer.allocate(WIDTH * HEIGHT / 2);
+  private final int[] argb = new int[WIDTH * HEIGHT];
+
+  @Test
+  public void steadyStateConversion_allocatesNoBuffers() {
+    for (int i = 0; i < WARM_UP_FRAMES; i++) {
+      convertFrame();
+    }
+    long warmUpAllocations = pool.getAllocationCount();
+
+    for (int i = 0; i < STEADY_STATE_FRAMES; i++) {
+      convertFrame();
+    }
+
+    assertEquals(1, warmUpAllocations);
+    assertEquals(warmUpAllocations, pool.getAllocationCount());
+  }
+
+  @Test
+  public void overlappingFrames_allocateOnlyDuringWarmUp() {
+    // A frame still being released while the next one converts, as in BitmapUtils.
+    byte[] previous = pool.acquire(NV21_SIZE);
+    for (int i = 0; i < WARM_UP_FRAMES; i++) {
+      byte[] current = pool.acquire(NV21_SIZE);
+      pool.release(previous);
+      previous = current;
+    }
+    long warmUpAllocations = pool.getAllocationCount();
+
+    for (int i = 0; i < STEADY_STATE_FRAMES; i++) {
+      byte[] current = pool.acquire(NV21_SIZE);
+      pool.release(previous);
+      previous = current;
+    }
+
+    assertEquals(2, warmUpAllocations);
+    assertEquals(warmUpAllocations, pool.getAllocationCount());
+  }
+
+  @Test
+  public void sizeChange_dropsBuffersOfTheOldSize() {
+    byte[] small = pool.acquire(16);
+    pool.release(small);
+    assertSame(small, pool.acquire(16));
+    pool.release(small);
+
+    byte[] large = pool.acquire(32);
+    pool.release(small);
+    pool.release(large);
+
+    assertSame(large, pool.acquire(32));
+    assertNotSame(small, pool.acquire(32));
+    assertEquals(3, pool.getAllocationCount());
+  }
+
+  /** Converts one frame the way BitmapUtils converts a CameraX frame. */
+  private void convertFrame() {
+    byte[] nv21 = pool.acquire(NV21_SIZE);
+    try {
+      yPlane.rewind();
+      unpacker.unpack(yPlane, WIDTH, 1, WIDTH, HEIGHT, nv21, 0, 1);
+      uvPlane.rewind();
+      unpacker.unpack(uvPlane, WIDTH, 1, WIDTH, HEIGHT / 2, nv21, WIDTH * HEIGHT, 1);
+      Nv21Converter.toArgb(nv21, WIDTH, HEIGHT, 90, /* mirror= */ false, argb);
+    } finally {
+      pool.release(nv21);
+    }
+  }
+}
@@ -0,0 +1,133 @@
+package com.fluffycandies.yogaguide.imaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Converts a 4x2 NV21 frame with known pixels and compares with a floating-point BT.601 reference,
+ * rotated and mirrored separately.
+ */
+public class Nv21ConverterTest {
+  private static final int WIDTH = 4;
+  private static final int HEIGHT = 2;
+  // Includes the ends of the range, so results get clamped.
+  private static final int[] LUMA = {0, 16, 128, 255, 50, 235, 100, 200};
+  // V and U of the left and right 2x2 blocks.
+  private static final int[] VU = {240, 16, 16, 240};
+
+  @Test
+  public void colors_matchFloatingPointBt601() {
+    int[] out = new int[WIDTH * HEIGHT];
+
+    Nv21Converter.toArgb(nv21(), WIDTH, HEIGHT, 0, /* mirror= */ false, out);
+
+    int[][] expected = expectedImage();
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < WIDTH; x++) {
+        assertPixel("(" + x + ", " + y + ")", expected[y][x], out[y * WIDTH + x]);
+      }
+    }
+  }
+
+  @Test
+  public void rotations_placePixelsClockwise() {
+    for (int rotation : new int[] {0, 90, 180, 270, -90, 450}) {
+      for (boolean mirror : new boolean[] {false, true}) {
+        int[][] expected = expectedImage();
+        for (int turns = 0; turns < Math.floorMod(rotation, 360) / 90; turns++) {
+          expected = rotateClockwise(expected);
+        }
+        if (mirror) {
+          expected = mirror(expected);
+        }
+        int outWidth = Nv21Converter.rotatedWidth(WIDTH, HEIGHT, rotation);
+        int outHeight = Nv21Converter.rotatedHeight(WIDTH, HEIGHT, rotation);
+        assertEquals(expected[0].length, outWidth);
+        assertEquals(expected.length, outHeight);
+        int[] out = new int[WIDTH * HEIGHT];
+
+        Nv21Converter.toArgb(nv21(), WIDTH, HEIGHT, rotation, mirror, out);
+
+        for (int y = 0; y < outHeight; y++) {
+          for (int x = 0; x < outWidth; x++) {
+            assertPixel(
+                rotation + " degrees" + (mirror ? ", mirrored" : "") + " (" + x + ", " + y + ")",
+                expected[y][x],
+                out[y * outWidth + x]);
+          }
+        }
+      }
+    }
+  }
+
+  private static byte[] nv21() {
+    byte[] nv21 = new byte[WIDTH * HEIGHT * 3 / 2];
+    for (int i = 0; i < LUMA.length; i++) {
+      nv21[i] = (byte) LUMA[i];
+    }
+    for (int i = 0; i < VU.length; i++) {
+      nv21[WIDTH * HEIGHT + i] = (byte) VU[i];
+    }
+    return nv21;
+  }
+
+  /** Returns the unrotated frame, rows of ARGB, from the floating-point full range BT.601. */
+  private static int[][] expectedImage() {
+    int[][] image = new int[HEIGHT][WIDTH];
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < WIDTH; x++) {
+        double luma = LUMA[y * WIDTH + x];
+        double v = VU[(x / 2) * 2] - 128;
+        double u = VU[(x / 2) * 2 + 1] - 128;
+        image[y][x] =
+            0xFF000000
+                | channel(luma + 1.402 * v) << 16
+                | channel(luma - 0.344136 * u - 0.714136 * v) << 8
+                | channel(luma + 1.772 * u);
+      }
+    }
+    return image;
+  }
+
+  private static int channel(double value) {
+    return (int) Math.round(Math.max(0, Math.min(255, value)));
+  }
+
+  private static int[][] rotateClockwise(int[][] image) {
+    int height = image.length;
+    int width = image[0].length;
+    int[][] rotated = new int[width][height];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        rotated[x][height - 1 - y] = image[y][x];
+      }
+    }
+    return rotated;
+  }
+
+  private static int[][] mirror(int[][] image) {
+    int[][] mirrored = new int[image.length][];
+    for (int y = 0; y < image.length; y++) {
+      int width = image[y].length;
+      mirrored[y] = new int[width];
+      for (int x = 0; x < width; x++) {
+        mirrored[y][width - 1 - x] = image[y][x];
+      }
+    }
+    return mirrored;
+  }
+
+  /** Each channel within 1 of the reference, which the 16.16 fixed point rounding allows. */
+  private static void assertPixel(String message, int expected, int actual) {
+    assertEquals(message + " alpha", 0xFF, actual >>> 24);
+    for (int shift = 0; shift <= 16; shift += 8) {
+      int expectedChannel = (expected >> shift) & 0xFF;
+      int actualChannel = (actual >> shift) & 0xFF;
+      assertTrue(
+          message + String.format(": expected %08x, was %08x", expected, actual),
+          Math.abs(expectedChannel - actualChannel) <= 1);
+    }
+  }
+}
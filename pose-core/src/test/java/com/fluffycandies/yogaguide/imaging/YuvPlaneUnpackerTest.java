@@ -0,0 +1,201 @@
+package com.fluffycandies.yogaguide.imaging;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.junit.Test;
+
+/**
+ * Unpacks synthetic YUV_420_888 frames into NV21 the way BitmapUtils does, over the plane layouts
+ * cameras hand out, and compares with the NV21 the pixel values make up.
+ */
+public class YuvPlaneUnpackerTest {
+  private static final int[][] FRAME_SIZES = {{2, 2}, {16, 8}, {640, 480}, {34, 6}};
+  private static final int[] ROW_PADDINGS = {0, 1, 16};
+  // Filled into padding and the bytes between interleaved pixels, to catch reads of them.
+  private static final byte PADDING = (byte) 0xEE;
+
+  private static final int Y = 0;
+  private static final int U = 1;
+  private static final int V = 2;
+
+  @Test
+  public void separatePlanes() {
+    for (int[] size : FRAME_SIZES) {
+      for (int padding : ROW_PADDINGS) {
+        for (boolean fullLastRow : new boolean[] {true, false}) {
+          for (boolean direct : new boolean[] {true, false}) {
+            int width = size[0];
+            int height = size[1];
+            int uvRowStride = width / 2 + padding;
+            ByteBuffer y = plane(Y, width, height, 1, width + padding, fullLastRow, direct);
+            ByteBuffer u = plane(U, width / 2, height / 2, 1, uvRowStride, fullLastRow, direct);
+            ByteBuffer v = plane(V, width / 2, height / 2, 1, uvRowStride, fullLastRow, direct);
+
+            byte[] nv21 = unpack(y, width + padding, u, v, uvRowStride, 1, width, height);
+
+            assertArrayEquals(
+                describe("separate", width, height, padding, fullLastRow, direct),
+                expectedNv21(width, height),
+                nv21);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void interleavedPlanes() {
+    for (int[] size : FRAME_SIZES) {
+      for (int padding : ROW_PADDINGS) {
+        for (boolean fullLastRow : new boolean[] {true, false}) {
+          for (boolean direct : new boolean[] {true, false}) {
+            int width = size[0];
+            int height = size[1];
+            int uvRowStride = width + padding;
+            ByteBuffer y = plane(Y, width, height, 1, width + padding, fullLastRow, direct);
+            // V and U share one buffer, VUVU..., as in NV21. The U plane starts one byte later.
+            ByteBuffer vu =
+                interleavedChroma(width / 2, height / 2, uvRowStride, fullLastRow, direct);
+            ByteBuffer v = slice(vu, 0, vu.capacity() - 1);
+            ByteBuffer u = slice(vu, 1, vu.capacity() - 1);
+
+            byte[] nv21 = unpack(y, width + padding, u, v, uvRowStride, 2, width, height);
+
+            assertArrayEquals(
+                describe("interleaved", width, height, padding, fullLastRow, direct),
+                expectedNv21(width, height),
+                nv21);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void reusedUnpacker_handlesGrowingRows() {
+    YuvPlaneUnpacker unpacker = new YuvPlaneUnpacker();
+    for (int width : new int[] {4, 64, 8}) {
+      ByteBuffer plane = plane(U, width, 2, 2, 2 * width + 3, /* fullLastRow= */ false, false);
+      byte[] out = new byte[width * 2];
+
+      unpacker.unpack(plane, 2 * width + 3, 2, width, 2, out, 0, 1);
+
+      byte[] expected = new byte[width * 2];
+      for (int row = 0; row < 2; row++) {
+        for (int x = 0; x < width; x++) {
+          expected[row * width + x] = value(U, x, row);
+        }
+      }
+      assertArrayEquals("width " + width, expected, out);
+    }
+  }
+
+  /** Unpacks the planes into NV21, as BitmapUtils does when U and V aren't already NV21. */
+  private static byte[] unpack(
+      ByteBuffer y,
+      int yRowStride,
+      ByteBuffer u,
+      ByteBuffer v,
+      int uvRowStride,
+      int uvPixelStride,
+      int width,
+      int height) {
+    YuvPlaneUnpacker unpacker = new YuvPlaneUnpacker();
+    int imageSize = width * height;
+    byte[] nv21 = new byte[imageSize + 2 * (imageSize / 4)];
+    unpacker.unpack(y, yRowStride, 1, width, height, nv21, 0, 1);
+    unpacker.unpack(u, uvRowStride, uvPixelStride, width / 2, height / 2, nv21, imageSize + 1, 2);
+    unpacker.unpack(v, uvRowStride, uvPixelStride, width / 2, height / 2, nv21, imageSize, 2);
+    return nv21;
+  }
+
+  private static byte[] expectedNv21(int width, int height) {
+    int imageSize = width * height;
+    byte[] nv21 = new byte[imageSize + 2 * (imageSize / 4)];
+    for (int row = 0; row < height; row++) {
+      for (int x = 0; x < width; x++) {
+        nv21[row * width + x] = value(Y, x, row);
+      }
+    }
+    int i = imageSize;
+    for (int row = 0; row < height / 2; row++) {
+      for (int x = 0; x < width / 2; x++) {
+        nv21[i++] = value(V, x, row);
+        nv21[i++] = value(U, x, row);
+      }
+    }
+    return nv21;
+  }
+
+  /**
+   * Returns a plane of {@link #value}s. Unless {@code fullLastRow}, the buffer ends right after the
+   * last pixel, as camera buffers often do.
+   */
+  private static ByteBuffer plane(
+      int plane,
+      int planeWidth,
+      int planeHeight,
+      int pixelStride,
+      int rowStride,
+      boolean fullLastRow,
+      boolean direct) {
+    int capacity =
+        fullLastRow
+            ? planeHeight * rowStride
+            : (planeHeight - 1) * rowStride + (planeWidth - 1) * pixelStride + 1;
+    byte[] bytes = new byte[capacity];
+    Arrays.fill(bytes, PADDING);
+    for (int row = 0; row < planeHeight; row++) {
+      for (int x = 0; x < planeWidth; x++) {
+        bytes[row * rowStride + x * pixelStride] = value(plane, x, row);
+      }
+    }
+    return wrap(bytes, direct);
+  }
+
+  /** Returns V and U interleaved, V first, in rows of {@code rowStride} bytes. */
+  private static ByteBuffer interleavedChroma(
+      int planeWidth, int planeHeight, int rowStride, boolean fullLastRow, boolean direct) {
+    int capacity =
+        fullLastRow ? planeHeight * rowStride : (planeHeight - 1) * rowStride + planeWidth * 2;
+    byte[] bytes = new byte[capacity];
+    Arrays.fill(bytes, PADDING);
+    for (int row = 0; row < planeHeight; row++) {
+      for (int x = 0; x < planeWidth; x++) {
+        bytes[row * rowStride + x * 2] = value(V, x, row);
+        bytes[row * rowStride + x * 2 + 1] = value(U, x, row);
+      }
+    }
+    return wrap(bytes, direct);
+  }
+
+  private static ByteBuffer wrap(byte[] bytes, boolean direct) {
+    if (!direct) {
+      return ByteBuffer.wrap(bytes);
+    }
+    ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+    buffer.put(bytes);
+    buffer.rewind();
+    return buffer;
+  }
+
+  private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+    ByteBuffer duplicate = buffer.duplicate();
+    duplicate.position(offset);
+    duplicate.limit(offset + length);
+    return duplicate.slice();
+  }
+
+  /** Pixel value of a plane, varying with plane and position and never {@link #PADDING}. */
+  private static byte value(int plane, int x, int row) {
+    return (byte) ((plane * 71 + x * 7 + row * 13) % 200);
+  }
+
+  private static String describe(
+      String layout, int width, int height, int padding, boolean fullLastRow, boolean direct) {
+    return layout + " " + width + "x" + height + ", row padding " + padding
+        + (fullLastRow ? "" : ", short last row") + (direct ? ", direct" : ", heap");
+  }
+}
@@ -0,0 +1,115 @@
+package com.fluffycandies.yogaguide.java.posedetector.classification;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Classifies every csv row, and jittered copies of it, with and without a cache, and requires the
+ * exact same confidences from both.
+ */
+public class ClassificationCacheTest {
+  // Landmark jitter relative to the size of the pose: a hold, and a move past the max drift.
+  private static final float SMALL_JITTER = 0.003f;
+  private static final float LARGE_JITTER = 0.05f;
+
+  private static List<PoseSample> samples;
+  private static List<List<Point3D>> rows;
+
+  @BeforeClass
+  public static void loadSamples() throws IOException {
+    samples = TestSamples.loadSamples();
+    rows = TestSamples.loadLandmarks();
+  }
+
+  @Test
+  public void cachedClassify_matchesUncached() {
+    ClassificationCache cache = new ClassificationCache();
+
+    classifyAll(new PoseClassifier(samples), cache, /* rowStride= */ 1);
+
+    assertTrue(cache.getHitCount() > 0);
+    assertTrue(cache.getRefinedCount() > 0);
+    assertTrue(cache.getMissCount() > 0);
+  }
+
+  @Test
+  public void cachedClassify_withZeroMaxDrift_matchesUncached() {
+    ClassificationCache cache = new ClassificationCache(0);
+
+    classifyAll(new PoseClassifier(samples), cache, /* rowStride= */ 4);
+
+    assertEquals(0, cache.getRefinedCount());
+    assertTrue(cache.getHitCount() > 0);
+  }
+
+  @Test
+  public void cachedClassify_ofTargetClassifier_matchesUncached() {
+    ClassificationCache cache = new ClassificationCache();
+    PoseClassifier classifier =
+        new PoseClassifier(samples).forTargetClass(samples.get(0).getClassName());
+
+    classifyAll(classifier, cache, /* rowStride= */ 4);
+
+    assertTrue(cache.getRefinedCount() > 0);
+  }
+
+  @Test
+  public void cacheSwitchingClassifiers_matchesUncached() {
+    ClassificationCache cache = new ClassificationCache();
+    PoseClassifier classifier = new PoseClassifier(samples);
+    PoseClassifier targetClassifier = classifier.forTargetClass(samples.get(0).getClassName());
+    Random random = new Random(3);
+
+    for (int row = 0; row < rows.size(); row += 10) {
+      float[] landmarks = TestSamples.packLandmarks(rows.get(row));
+      PoseClassifier current = row % 20 == 0 ? classifier : targetClassifier;
+      assertSameResult(
+          "Row " + row, current, cache, TestSamples.jitter(landmarks, SMALL_JITTER, random));
+    }
+  }
+
+  /**
+   * Streams every {@code rowStride}th row in file order, where neighbours are mostly of one class.
+   * Each row is followed by the same query again, jitter within the max drift and jitter past it.
+   */
+  private static void classifyAll(
+      PoseClassifier classifier, ClassificationCache cache, int rowStride) {
+    Random random = new Random(11);
+    for (int row = 0; row < rows.size(); row += rowStride) {
+      float[] landmarks = TestSamples.packLandmarks(rows.get(row));
+
+      assertSameResult("Row " + row, classifier, cache, landmarks);
+      assertSameResult("Repeated row " + row, classifier, cache, landmarks);
+      assertSameResult(
+          "Held row " + row,
+          classifier,
+          cache,
+          TestSamples.jitter(landmarks, SMALL_JITTER, random));
+      assertSameResult(
+          "Moved row " + row,
+          classifier,
+          cache,
+          TestSamples.jitter(landmarks, LARGE_JITTER, random));
+    }
+  }
+
+  private static void assertSameResult(
+      String message, PoseClassifier classifier, ClassificationCache cache, float[] landmarks) {
+    ClassificationResult expected = classifier.classify(landmarks);
+    ClassificationResult actual = classifier.classify(landmarks, cache);
+    ClassVocabulary vocabulary = expected.getVocabulary();
+    for (int classId = 0; classId < vocabulary.size(); classId++) {
+      assertEquals(
+          message + ", " + vocabulary.getName(classId),
+          expected.getClassConfidence(classId),
+          actual.getClassConfidence(classId),
+          0f);
+    }
+  }
+}
@@ -0,0 +1,179 @@
+package com.fluffycandies.yogaguide.java.posedetector.classification;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Replays a landmark trace through the schedules: a pose held with detector jitter, a move into
+ * another pose, the person stepping out of the frame and back, at 30 frames a second.
+ */
+public class ClassificationSchedulerTest {
+  private static final int FPS = 30;
+  // Seconds of the trace each segment ends at.
+  private static final int HOLD_END = 3;
+  private static final int MOVE_END = 4;
+  private static final int SECOND_HOLD_END = 7;
+  private static final double LOST_END = 7.5;
+  private static final int TRACE_END = 10;
+  // Detector jitter relative to the size of the pose, well under the motion threshold.
+  private static final float JITTER = 0.002f;
+
+  private static final float[] NO_POSE = new float[0];
+
+  private static List<float[]> trace;
+  private static long[] frameTimesMs;
+
+  @BeforeClass
+  public static void recordTrace() throws IOException {
+    List<List<Point3D>> rows = TestSamples.loadLandmarks();
+    float[] firstPose = TestSamples.packLandmarks(rows.get(0));
+    float[] secondPose = TestSamples.packLandmarks(rows.get(rows.size() - 1));
+    Random random = new Random(7);
+
+    trace = new ArrayList<>();
+    int frames = TRACE_END * FPS;
+    frameTimesMs = new long[frames];
+    for (int frame = 0; frame < frames; frame++) {
+      frameTimesMs[frame] = frame * 1000L / FPS;
+      double seconds = (double) frame / FPS;
+      if (seconds < HOLD_END) {
+        trace.add(jitter(firstPose, random));
+      } else if (seconds < MOVE_END) {
+        float fraction = (float) (seconds - HOLD_END);
+        trace.add(jitter(interpolate(firstPose, secondPose, fraction), random));
+      } else if (seconds < SECOND_HOLD_END || seconds >= LOST_END) {
+        trace.add(jitter(secondPose, random));
+      } else {
+        trace.add(NO_POSE);
+      }
+    }
+  }
+
+  @Test
+  public void everyFrame_classifiesEveryFrame() {
+    boolean[] classified = replay(ClassificationScheduler.everyFrame());
+
+    assertEquals(trace.size(), count(classified, 0, TRACE_END));
+  }
+
+  @Test
+  public void everyFrame_withFrameInterval_classifiesEveryNthFrame() {
+    ClassificationScheduler scheduler = ClassificationScheduler.everyFrame();
+    scheduler.setFrameInterval(3);
+
+    boolean[] classified = replay(scheduler);
+
+    // Every third frame, plus the pose getting lost and found again out of turn.
+    int expected = trace.size() / 3;
+    assertTrue(Math.abs(count(classified, 0, TRACE_END) - expected) <= 2);
+    assertTransitionsClassified(classified);
+  }
+
+  @Test
+  public void fixedRate_keepsTheRate() {
+    boolean[] classified = replay(ClassificationScheduler.fixedRate(10));
+
+    // 10 a second, plus the two transitions that are classified out of turn.
+    int count = count(classified, 0, TRACE_END);
+    assertTrue("Classified " + count, count >= 10 * TRACE_END && count <= 10 * TRACE_END + 2);
+    assertTrue(longestGapMs(classified) <= 100 + 1000 / FPS);
+    assertTransitionsClassified(classified);
+  }
+
+  @Test
+  public void onMotion_classifiesMovesMoreOftenThanHolds() {
+    ClassificationScheduler scheduler =
+        ClassificationScheduler.onMotion(
+            ClassificationScheduler.DEFAULT_MOTION_THRESHOLD,
+            ClassificationScheduler.DEFAULT_MAX_INTERVAL_MS);
+
+    boolean[] classified = replay(scheduler);
+
+    // A held pose only at the max interval, a second's move more than twice as often.
+    int heldSecond = count(classified, 1, 2);
+    int movingSecond = count(classified, HOLD_END, MOVE_END);
+    assertEquals(1000 / ClassificationScheduler.DEFAULT_MAX_INTERVAL_MS, heldSecond, 1);
+    assertTrue("Held " + heldSecond + ", moving " + movingSecond, movingSecond > 2 * heldSecond);
+    assertTrue(
+        longestGapMs(classified) <= ClassificationScheduler.DEFAULT_MAX_INTERVAL_MS + 1000 / FPS);
+    assertTransitionsClassified(classified);
+    assertEquals(scheduler.getClassifiedCount(), count(classified, 0, TRACE_END));
+    assertEquals(trace.size(), scheduler.getClassifiedCount() + scheduler.getSkippedCount());
+  }
+
+  private static boolean[] replay(ClassificationScheduler scheduler) {
+    boolean[] classified = new boolean[trace.size()];
+    for (int frame = 0; frame < trace.size(); frame++) {
+      classified[frame] = scheduler.shouldClassify(frameTimesMs[frame], trace.get(frame));
+    }
+    return classified;
+  }
+
+  /** The first frame, and the frames the pose gets lost and found again on, are classified. */
+  private static void assertTransitionsClassified(boolean[] classified) {
+    assertTrue(classified[0]);
+    assertTrue("Pose lost", classified[SECOND_HOLD_END * FPS]);
+    assertTrue("Pose found", classified[(int) (LOST_END * FPS)]);
+  }
+
+  private static int count(boolean[] classified, double fromSecond, double toSecond) {
+    int count = 0;
+    for (int frame = (int) (fromSecond * FPS); frame < toSecond * FPS; frame++) {
+      if (classified[frame]) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static long longestGapMs(boolean[] classified) {
+    long longestGapMs = 0;
+    long lastClassifiedMs = 0;
+    for (int frame = 0; frame < classified.length; frame++) {
+      if (classified[frame]) {
+        longestGapMs = Math.max(longestGapMs, frameTimesMs[frame] - lastClassifiedMs);
+        lastClassifiedMs = frameTimesMs[frame];
+      }
+    }
+    return longestGapMs;
+  }
+
+  private static float[] interpolate(float[] from, float[] to, float fraction) {
+    float[] landmarks = new float[from.length];
+    for (int i = 0; i < landmarks.length; i++) {
+      landmarks[i] = from[i] + (to[i] - from[i]) * fraction;
+    }
+    return landmarks;
+  }
+
+  private static float[] jitter(float[] landmarks, Random random) {
+    float size = poseSize(landmarks);
+    float[] jittered = new float[landmarks.length];
+    for (int i = 0; i < landmarks.length; i++) {
+      jittered[i] = landmarks[i] + (float) random.nextGaussian() * JITTER * size;
+    }
+    return jittered;
+  }
+
+  /** Returns the larger side of the 2D bounding box, as the scheduler measures movement by. */
+  private static float poseSize(float[] landmarks) {
+    float minX = Float.POSITIVE_INFINITY;
+    float maxX = Float.NEGATIVE_INFINITY;
+    float minY = Float.POSITIVE_INFINITY;
+    float maxY = Float.NEGATIVE_INFINITY;
+    for (int i = 0; i < landmarks.length; i += 3) {
+      minX = Math.min(minX, landmarks[i]);
+      maxX = Math.max(maxX, landmarks[i]);
+      minY = Math.min(minY, landmarks[i + 1]);
+      maxY = Math.max(maxY, landmarks[i + 1]);
+    }
+    return Math.max(maxX - minX, maxY - minY);
+  }
+}
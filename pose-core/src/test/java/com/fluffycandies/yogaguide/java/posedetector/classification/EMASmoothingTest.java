@@ -0,0 +1,150 @@
+package com.fluffycandies.yogaguide.java.posedetector.classification;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Replays classification result streams through {@link EMASmoothing} and the windowed EMA it
+ * replaced, which re-summed the whole window every frame.
+ */
+public class EMASmoothingTest {
+  private static final ClassVocabulary VOCABULARY =
+      new ClassVocabulary(Arrays.asList("a", "b", "c", "d", "e"));
+  private static final int WINDOW_SIZE = 10;
+  private static final float ALPHA = 0.2f;
+  private static final long RESET_THRESHOLD_MS = 100;
+  private static final long FRAME_MS = 33;
+  private static final float DELTA = 1e-4f;
+
+  private final FakeClock clock = new FakeClock();
+  private final EMASmoothing smoothing =
+      new EMASmoothing(WINDOW_SIZE, ALPHA, RESET_THRESHOLD_MS, clock);
+  private final ReferenceSmoothing reference = new ReferenceSmoothing(WINDOW_SIZE, ALPHA);
+  private final Random random = new Random(5);
+
+  @Test
+  public void warmUpAndFullWindow_matchReference() {
+    // Fewer results than the window, then many windows' worth so every slot gets evicted.
+    for (int frame = 0; frame < 20 * WINDOW_SIZE; frame++) {
+      assertSmoothedLikeReference("Frame " + frame, randomResult());
+    }
+  }
+
+  @Test
+  public void classDroppingToZero_matchesReference() {
+    // Confidence leaves a class entirely, so its running sum has to get back to exactly zero.
+    for (int frame = 0; frame < 3 * WINDOW_SIZE; frame++) {
+      ClassificationResult result = new ClassificationResult(VOCABULARY);
+      result.putClassConfidence(frame < WINDOW_SIZE ? 0 : 1, 10);
+      assertSmoothedLikeReference("Frame " + frame, result);
+    }
+  }
+
+  @Test
+  public void gapLongerThanThreshold_startsANewWindow() {
+    for (int frame = 0; frame < 15; frame++) {
+      assertSmoothedLikeReference("Before gap " + frame, randomResult());
+    }
+    clock.nowMs += RESET_THRESHOLD_MS + 1;
+    reference.clear();
+    for (int frame = 0; frame < 15; frame++) {
+      assertSmoothedLikeReference("After gap " + frame, randomResult());
+    }
+  }
+
+  @Test
+  public void reset_startsANewWindow() {
+    for (int frame = 0; frame < 7; frame++) {
+      assertSmoothedLikeReference("Before reset " + frame, randomResult());
+    }
+    smoothing.reset();
+    reference.clear();
+    for (int frame = 0; frame < 15; frame++) {
+      assertSmoothedLikeReference("After reset " + frame, randomResult());
+    }
+  }
+
+  private void assertSmoothedLikeReference(String message, ClassificationResult result) {
+    clock.nowMs += FRAME_MS;
+    float[] expected = reference.smooth(result);
+    ClassificationResult actual = smoothing.getSmoothedResult(result);
+    for (int classId = 0; classId < VOCABULARY.size(); classId++) {
+      assertEquals(
+          message + ", class " + VOCABULARY.getName(classId),
+          expected[classId],
+          actual.getClassConfidence(classId),
+          DELTA);
+    }
+  }
+
+  /** Returns confidences as the classifier counts them, mostly zero for all but a few classes. */
+  private ClassificationResult randomResult() {
+    ClassificationResult result = new ClassificationResult(VOCABULARY);
+    for (int classId = 0; classId < VOCABULARY.size(); classId++) {
+      if (random.nextInt(3) == 0) {
+        result.putClassConfidence(classId, random.nextInt(11));
+      }
+    }
+    return result;
+  }
+
+  /** The windowed EMA before the running sums, on class ids instead of class names. */
+  private static final class ReferenceSmoothing {
+    private final int windowSize;
+    private final float alpha;
+    private final Deque<float[]> window = new ArrayDeque<>();
+
+    ReferenceSmoothing(int windowSize, float alpha) {
+      this.windowSize = windowSize;
+      this.alpha = alpha;
+    }
+
+    void clear() {
+      window.clear();
+    }
+
+    float[] smooth(ClassificationResult result) {
+      if (window.size() == windowSize) {
+        window.pollLast();
+      }
+      float[] confidences = new float[VOCABULARY.size()];
+      for (int classId = 0; classId < confidences.length; classId++) {
+        confidences[classId] = result.getClassConfidence(classId);
+      }
+      window.addFirst(confidences);
+
+      float[] smoothed = new float[confidences.length];
+      for (int classId = 0; classId < smoothed.length; classId++) {
+        float factor = 1;
+        float topSum = 0;
+        float bottomSum = 0;
+        for (float[] windowed : window) {
+          topSum += factor * windowed[classId];
+          bottomSum += factor;
+          factor = (float) (factor * (1.0 - alpha));
+        }
+        smoothed[classId] = topSum / bottomSum;
+      }
+      return smoothed;
+    }
+  }
+
+  private static final class FakeClock implements Clock {
+    long nowMs = 1_000;
+
+    @Override
+    public long elapsedRealtime() {
+      return nowMs;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+      return nowMs;
+    }
+  }
+}
@@ -0,0 +1,219 @@
+package com.fluffycandies.yogaguide.java.posedetector.classification;
+
+import static com.fluffycandies.yogaguide.java.posedetector.classification.Utils.maxAbs;
+import static com.fluffycandies.yogaguide.java.posedetector.classification.Utils.multiply;
+import static com.fluffycandies.yogaguide.java.posedetector.classification.Utils.subtract;
+import static com.fluffycandies.yogaguide.java.posedetector.classification.Utils.sumAbs;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Classifies every csv row with {@link PoseClassifier} and with the two-stage top K it replaced, a
+ * {@link PriorityQueue} over the {@link PoseSample} list, and requires the same confidences.
+ *
+ * <p>The baseline queues ordered by distance alone, so of samples tied at a cutoff it evicted
+ * whichever the heap had on top. {@link TopKSelector} keeps the earliest offered instead, which
+ * is the sample that comes first in the csv. Rows with a tie at either cutoff are therefore only
+ * compared with the baseline once its queues also break ties by sample order.
+ */
+public class PoseClassifierTest {
+  private static final int MAX_DISTANCE_TOP_K = 30;
+  private static final int MEAN_DISTANCE_TOP_K = 10;
+  private static final Point3D AXES_WEIGHTS = Point3D.from(1, 1, 0.2f);
+  private static final float JITTER = 0.01f;
+
+  private static List<PoseSample> samples;
+  private static List<List<Point3D>> rows;
+
+  @BeforeClass
+  public static void loadSamples() throws IOException {
+    samples = TestSamples.loadSamples();
+    rows = TestSamples.loadLandmarks();
+  }
+
+  @Test
+  public void classify_matchesBaseline_whereNothingTies() {
+    PoseClassifier classifier = new PoseClassifier(samples);
+    BaselineClassifier baseline = new BaselineClassifier(samples, /* stableTies= */ false);
+    int untiedRows = 0;
+
+    for (int row = 0; row < rows.size(); row++) {
+      List<Point3D> landmarks = rows.get(row);
+      BaselineResult expected = baseline.classify(landmarks);
+      if (expected.tiedAtCutoff) {
+        continue;
+      }
+      untiedRows++;
+      assertSameConfidences("Row " + row, expected, classifier.classify(landmarks));
+    }
+    // A tie needs two samples at exactly the same distance, only a few rows have one.
+    assertTrue("Untied rows " + untiedRows, untiedRows > rows.size() / 2);
+  }
+
+  @Test
+  public void classify_matchesBaselineWithStableTies_onEveryRow() {
+    PoseClassifier classifier = new PoseClassifier(samples);
+    BaselineClassifier baseline = new BaselineClassifier(samples, /* stableTies= */ true);
+    Random random = new Random(17);
+
+    for (int row = 0; row < rows.size(); row++) {
+      List<Point3D> landmarks = rows.get(row);
+      List<Point3D> jittered =
+          unpack(TestSamples.jitter(TestSamples.packLandmarks(landmarks), JITTER, random));
+
+      assertSameConfidences(
+          "Row " + row, baseline.classify(landmarks), classifier.classify(landmarks));
+      assertSameConfidences(
+          "Jittered row " + row, baseline.classify(jittered), classifier.classify(jittered));
+    }
+  }
+
+  private static void assertSameConfidences(
+      String message, BaselineResult expected, ClassificationResult actual) {
+    ClassVocabulary vocabulary = actual.getVocabulary();
+    for (int classId = 0; classId < vocabulary.size(); classId++) {
+      String className = vocabulary.getName(classId);
+      Integer expectedConfidence = expected.confidences.get(className);
+      assertEquals(
+          message + ", " + className,
+          expectedConfidence == null ? 0 : expectedConfidence,
+          actual.getClassConfidence(classId),
+          0f);
+    }
+  }
+
+  private static List<Point3D> unpack(float[] landmarks) {
+    List<Point3D> unpacked = new ArrayList<>();
+    for (int i = 0; i < landmarks.length; i += 3) {
+      unpacked.add(Point3D.from(landmarks[i], landmarks[i + 1], landmarks[i + 2]));
+    }
+    return unpacked;
+  }
+
+  /** Class counts of the baseline, and whether a tie decided which samples were counted. */
+  private static final class BaselineResult {
+    final Map<String, Integer> confidences = new HashMap<>();
+    boolean tiedAtCutoff;
+  }
+
+  private static final class Neighbour {
+    final int sampleIndex;
+    final float distance;
+
+    Neighbour(int sampleIndex, float distance) {
+      this.sampleIndex = sampleIndex;
+      this.distance = distance;
+    }
+  }
+
+  /**
+   * The classifier before the packed sample store, on the list embeddings and with a queue per
+   * stage. With {@code stableTies}, equal distances are ordered by sample index as well, so the
+   * later sample is polled first.
+   */
+  private static final class BaselineClassifier {
+    private final List<PoseSample> poseSamples;
+    private final Comparator<Neighbour> farthestFirst;
+
+    BaselineClassifier(List<PoseSample> poseSamples, final boolean stableTies) {
+      this.poseSamples = poseSamples;
+      farthestFirst =
+          new Comparator<Neighbour>() {
+            @Override
+            public int compare(Neighbour o1, Neighbour o2) {
+              int byDistance = -Float.compare(o1.distance, o2.distance);
+              if (byDistance != 0 || !stableTies) {
+                return byDistance;
+              }
+              return -Integer.compare(o1.sampleIndex, o2.sampleIndex);
+            }
+          };
+    }
+
+    BaselineResult classify(List<Point3D> landmarks) {
+      List<Point3D> flippedLandmarks = new ArrayList<>();
+      for (Point3D landmark : landmarks) {
+        flippedLandmarks.add(Point3D.from(-landmark.getX(), landmark.getY(), landmark.getZ()));
+      }
+      List<Point3D> embedding = PoseEmbedding.getPoseEmbedding(landmarks);
+      List<Point3D> flippedEmbedding = PoseEmbedding.getPoseEmbedding(flippedLandmarks);
+      BaselineResult result = new BaselineResult();
+
+      PriorityQueue<Neighbour> maxDistances =
+          new PriorityQueue<>(MAX_DISTANCE_TOP_K, farthestFirst);
+      List<Float> allMaxDistances = new ArrayList<>();
+      for (int sampleIndex = 0; sampleIndex < poseSamples.size(); sampleIndex++) {
+        List<Point3D> sampleEmbedding = poseSamples.get(sampleIndex).getEmbedding();
+        float originalMax = 0;
+        float flippedMax = 0;
+        for (int i = 0; i < embedding.size(); i++) {
+          originalMax =
+              Math.max(originalMax, maxAbs(weighted(embedding.get(i), sampleEmbedding.get(i))));
+          flippedMax =
+              Math.max(
+                  flippedMax, maxAbs(weighted(flippedEmbedding.get(i), sampleEmbedding.get(i))));
+        }
+        float distance = Math.min(originalMax, flippedMax);
+        allMaxDistances.add(distance);
+        maxDistances.add(new Neighbour(sampleIndex, distance));
+        if (maxDistances.size() > MAX_DISTANCE_TOP_K) {
+          maxDistances.poll();
+        }
+      }
+      result.tiedAtCutoff = tiesAtCutoff(allMaxDistances, MAX_DISTANCE_TOP_K);
+
+      PriorityQueue<Neighbour> meanDistances =
+          new PriorityQueue<>(MEAN_DISTANCE_TOP_K, farthestFirst);
+      List<Float> allMeanDistances = new ArrayList<>();
+      for (Neighbour neighbour : maxDistances) {
+        List<Point3D> sampleEmbedding = poseSamples.get(neighbour.sampleIndex).getEmbedding();
+        float originalSum = 0;
+        float flippedSum = 0;
+        for (int i = 0; i < embedding.size(); i++) {
+          originalSum += sumAbs(weighted(embedding.get(i), sampleEmbedding.get(i)));
+          flippedSum += sumAbs(weighted(flippedEmbedding.get(i), sampleEmbedding.get(i)));
+        }
+        float distance = Math.min(originalSum, flippedSum) / (embedding.size() * 2);
+        allMeanDistances.add(distance);
+        meanDistances.add(new Neighbour(neighbour.sampleIndex, distance));
+        if (meanDistances.size() > MEAN_DISTANCE_TOP_K) {
+          meanDistances.poll();
+        }
+      }
+      result.tiedAtCutoff |= tiesAtCutoff(allMeanDistances, MEAN_DISTANCE_TOP_K);
+
+      for (Neighbour neighbour : meanDistances) {
+        String className = poseSamples.get(neighbour.sampleIndex).getClassName();
+        Integer confidence = result.confidences.get(className);
+        result.confidences.put(className, confidence == null ? 1 : confidence + 1);
+      }
+      return result;
+    }
+
+    private static Point3D weighted(Point3D query, Point3D sample) {
+      return multiply(subtract(query, sample), AXES_WEIGHTS);
+    }
+
+    /** Whether the K-th smallest distance is shared with one that does not make the cut. */
+    private static boolean tiesAtCutoff(List<Float> distances, int k) {
+      if (distances.size() <= k) {
+        return false;
+      }
+      List<Float> sorted = new ArrayList<>(distances);
+      Collections.sort(sorted);
+      return sorted.get(k - 1).equals(sorted.get(k));
+    }
+  }
+}
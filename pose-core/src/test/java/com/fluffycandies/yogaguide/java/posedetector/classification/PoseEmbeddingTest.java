@@ -0,0 +1,45 @@
+package com.fluffycandies.yogaguide.java.posedetector.classification;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class PoseEmbeddingTest {
+  private static final int EMBEDDING_FLOATS = PoseEmbedding.EMBEDDING_SIZE * 3;
+
+  @Test
+  public void floatPath_matchesListPathOnEveryCsvRow() throws IOException {
+    List<List<Point3D>> rows = TestSamples.loadLandmarks();
+    assertEquals(TestSamples.loadSamples().size(), rows.size());
+
+    float[] normalized = new float[PoseLandmarkIndex.NUM_LANDMARKS * 3];
+    float[] embedding = new float[EMBEDDING_FLOATS];
+    float[] flippedEmbedding = new float[EMBEDDING_FLOATS];
+    float[] expected = new float[EMBEDDING_FLOATS];
+    float[] expectedFlipped = new float[EMBEDDING_FLOATS];
+    for (int row = 0; row < rows.size(); row++) {
+      List<Point3D> landmarks = rows.get(row);
+      PoseSampleStore.pack(PoseEmbedding.getPoseEmbedding(landmarks), expected);
+      PoseSampleStore.pack(PoseEmbedding.getPoseEmbedding(flipX(landmarks)), expectedFlipped);
+
+      // The buffers are reused across rows, as the classifier does.
+      PoseEmbedding.getPoseEmbedding(
+          TestSamples.packLandmarks(landmarks), normalized, embedding, flippedEmbedding);
+
+      assertArrayEquals("Row " + row, expected, embedding, 0f);
+      assertArrayEquals("Mirrored row " + row, expectedFlipped, flippedEmbedding, 0f);
+    }
+  }
+
+  private static List<Point3D> flipX(List<Point3D> landmarks) {
+    List<Point3D> flipped = new ArrayList<>(landmarks.size());
+    for (Point3D landmark : landmarks) {
+      flipped.add(Point3D.from(-landmark.getX(), landmark.getY(), landmark.getZ()));
+    }
+    return flipped;
+  }
+}
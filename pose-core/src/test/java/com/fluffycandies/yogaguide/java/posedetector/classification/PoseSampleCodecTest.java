@@ -0,0 +1,110 @@
+package com.fluffycandies.yogaguide.java.posedetector.classification;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class PoseSampleCodecTest {
+  // Offsets of the header fields, see PoseSampleCodec.
+  private static final int VERSION_OFFSET = 4;
+  private static final int SAMPLE_COUNT_OFFSET = 8;
+  private static final int EMBEDDING_SIZE_OFFSET = 12;
+  private static final int CLASS_COUNT_OFFSET = 16;
+
+  private static List<PoseSample> poseSamples;
+
+  @BeforeClass
+  public static void loadSamples() throws IOException {
+    poseSamples = TestSamples.loadSamples();
+  }
+
+  @Test
+  public void roundTrip_preservesEmbeddingsAndClasses() throws IOException {
+    PoseSampleStore expected = new PoseSampleStore(poseSamples);
+
+    PoseSampleStore actual = PoseSampleCodec.read(ByteBuffer.wrap(encode(poseSamples)));
+
+    assertEquals(expected.size(), actual.size());
+    assertEquals(expected.getEmbeddingSize(), actual.getEmbeddingSize());
+    assertArrayEquals(expected.getEmbeddings(), actual.getEmbeddings(), 0f);
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.getClassName(i), actual.getClassName(i));
+    }
+  }
+
+  @Test
+  public void roundTrip_emptySampleSet() throws IOException {
+    PoseSampleStore actual =
+        PoseSampleCodec.read(ByteBuffer.wrap(encode(Arrays.<PoseSample>asList())));
+
+    assertEquals(0, actual.size());
+  }
+
+  @Test
+  public void read_truncatedFile_throwsIOException() throws IOException {
+    byte[] encoded = encode(poseSamples.subList(0, 3));
+    for (int length = 0; length < encoded.length; length++) {
+      assertReadFails(Arrays.copyOf(encoded, length));
+    }
+  }
+
+  @Test
+  public void read_trailingBytes_throwsIOException() throws IOException {
+    byte[] encoded = encode(poseSamples.subList(0, 3));
+    assertReadFails(Arrays.copyOf(encoded, encoded.length + 4));
+  }
+
+  @Test
+  public void read_corruptHeader_throwsIOException() throws IOException {
+    byte[] encoded = encode(poseSamples.subList(0, 3));
+    assertReadFails(withInt(encoded, VERSION_OFFSET, 0));
+    for (int offset : new int[] {SAMPLE_COUNT_OFFSET, EMBEDDING_SIZE_OFFSET, CLASS_COUNT_OFFSET}) {
+      for (int value : new int[] {-1, Integer.MIN_VALUE, Integer.MAX_VALUE, 1 << 20}) {
+        assertReadFails(withInt(encoded, offset, value));
+      }
+    }
+  }
+
+  @Test
+  public void read_unknownClassIndex_throwsIOException() throws IOException {
+    List<PoseSample> samples = poseSamples.subList(0, 3);
+    byte[] encoded = encode(samples);
+    PoseSampleStore store = new PoseSampleStore(samples);
+    // The class indices directly precede the embeddings.
+    int firstClassIndexOffset =
+        encoded.length - store.getEmbeddings().length * 4 - samples.size() * 4;
+
+    assertReadFails(withInt(encoded, firstClassIndexOffset, -1));
+    assertReadFails(withInt(encoded, firstClassIndexOffset, store.getClassNames().size()));
+  }
+
+  private static byte[] encode(List<PoseSample> samples) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    PoseSampleCodec.write(samples, out);
+    return out.toByteArray();
+  }
+
+  private static byte[] withInt(byte[] encoded, int offset, int value) {
+    byte[] copy = encoded.clone();
+    ByteBuffer.wrap(copy).order(ByteOrder.LITTLE_ENDIAN).putInt(offset, value);
+    return copy;
+  }
+
+  private static void assertReadFails(byte[] encoded) {
+    try {
+      PoseSampleCodec.read(ByteBuffer.wrap(encoded));
+      fail("Read " + encoded.length + " corrupt bytes without an IOException");
+    } catch (IOException expected) {
+      // The app falls back to the csv.
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package com.fluffycandies.yogaguide.java.posedetector.classification;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/** Locates and reads the pose samples csv that ships in the app, for the tests. */
+final class TestSamples {
+  private static final String SAMPLES_PROPERTY = "posecore.samples";
+  private static final String DEFAULT_SAMPLES_PATH = "../app/src/main/assets/pose/yoga_poses.csv";
+
+  static File samplesFile() {
+    File file = new File(System.getProperty(SAMPLES_PROPERTY, DEFAULT_SAMPLES_PATH));
+    if (!file.isFile()) {
+      throw new IllegalStateException(
+          "Pose samples not found at " + file + ", set -D" + SAMPLES_PROPERTY);
+    }
+    return file;
+  }
+
+  static List<PoseSample> loadSamples() throws IOException {
+    try (FileReader reader = new FileReader(samplesFile())) {
+      return PoseSampleLoader.load(reader);
+    }
+  }
+
+  /** Returns the raw landmarks of every csv row, in file order. */
+  static List<List<Point3D>> loadLandmarks() throws IOException {
+    List<List<Point3D>> rows = new ArrayList<>();
+    try (BufferedReader reader = new BufferedReader(new FileReader(samplesFile()))) {
+      String csvLine;
+      while ((csvLine = reader.readLine()) != null) {
+        String[] tokens = csvLine.split(",", -1);
+        List<Point3D> landmarks = new ArrayList<>();
+        for (int i = 2; i + 2 < tokens.length; i += 3) {
+          landmarks.add(
+              Point3D.from(
+                  Float.parseFloat(tokens[i]),
+                  Float.parseFloat(tokens[i + 1]),
+                  Float.parseFloat(tokens[i + 2])));
+        }
+        if (landmarks.size() == PoseLandmarkIndex.NUM_LANDMARKS) {
+          rows.add(landmarks);
+        }
+      }
+    }
+    return rows;
+  }
+
+  /** Packs landmarks as x, y, z of each landmark, as taken by {@link PoseClassifier#classify}. */
+  static float[] packLandmarks(List<Point3D> landmarks) {
+    float[] packed = new float[landmarks.size() * 3];
+    for (int i = 0; i < landmarks.size(); i++) {
+      packed[i * 3] = landmarks.get(i).getX();
+      packed[i * 3 + 1] = landmarks.get(i).getY();
+      packed[i * 3 + 2] = landmarks.get(i).getZ();
+    }
+    return packed;
+  }
+
+  /**
+   * Returns packed landmarks moved by Gaussian noise, {@code relativeJitter} times the height of
+   * the pose.
+   */
+  static float[] jitter(float[] landmarks, float relativeJitter, Random random) {
+    float minY = Float.POSITIVE_INFINITY;
+    float maxY = Float.NEGATIVE_INFINITY;
+    for (int i = 1; i < landmarks.length; i += 3) {
+      minY = Math.min(minY, landmarks[i]);
+      maxY = Math.max(maxY, landmarks[i]);
+    }
+    float scale = relativeJitter * (maxY - minY);
+    float[] jittered = new float[landmarks.length];
+    for (int i = 0; i < landmarks.length; i++) {
+      jittered[i] = landmarks[i] + (float) random.nextGaussian() * scale;
+    }
+    return jittered;
+  }
+
+  private TestSamples() {}
+}
@@ -0,0 +1,72 @@
+package com.fluffycandies.yogaguide.java.posedetector.classification;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+public class TopKSelectorTest {
+  @Test
+  public void keepsSmallestDistances_earliestOfferedOnTies() {
+    Random random = new Random(42);
+    TopKSelector selector = new TopKSelector(10);
+    for (int trial = 0; trial < 1000; trial++) {
+      int offers = random.nextInt(40);
+      // Few distinct distances, so most offers tie with others.
+      int distinctDistances = 1 + random.nextInt(8);
+      float[] distances = new float[offers];
+      for (int i = 0; i < offers; i++) {
+        distances[i] = random.nextInt(distinctDistances);
+      }
+
+      // The selector is reused across trials, as the classifier does across frames.
+      selector.clear();
+      for (int i = 0; i < offers; i++) {
+        selector.offer(i, distances[i]);
+      }
+
+      assertArrayEquals("Trial " + trial, expectedIndices(distances, 10), keptIndices(selector));
+    }
+  }
+
+  @Test
+  public void bound_isLargestKeptDistanceOnceFull() {
+    TopKSelector selector = new TopKSelector(2);
+    selector.offer(0, 3f);
+    assertEquals(Float.POSITIVE_INFINITY, selector.bound(), 0f);
+    selector.offer(1, 1f);
+    selector.offer(2, 2f);
+
+    assertEquals(2f, selector.bound(), 0f);
+  }
+
+  /** Indices of the {@code k} smallest distances, ties going to the lower index, sorted. */
+  private static int[] expectedIndices(float[] distances, int k) {
+    List<Integer> order = new ArrayList<>();
+    for (int i = 0; i < distances.length; i++) {
+      order.add(i);
+    }
+    // A stable sort, so equal distances stay in offer order.
+    Collections.sort(order, (a, b) -> Float.compare(distances[a], distances[b]));
+    int[] expected = new int[Math.min(k, distances.length)];
+    for (int i = 0; i < expected.length; i++) {
+      expected[i] = order.get(i);
+    }
+    Arrays.sort(expected);
+    return expected;
+  }
+
+  private static int[] keptIndices(TopKSelector selector) {
+    int[] kept = new int[selector.size()];
+    for (int i = 0; i < kept.length; i++) {
+      kept[i] = selector.indexAt(i);
+    }
+    Arrays.sort(kept);
+    return kept;
+  }
+}
@@ -0,0 +1,121 @@
+package com.fluffycandies.yogaguide.java.posedetector.classification;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.fluffycandies.yogaguide.java.posedetector.classification.PoseClassifier.SearchStrategy;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Classifies every csv row, and jittered copies of it, with the linear scan and with the vantage
+ * point tree, and requires the exact same confidences from both.
+ */
+public class VantagePointTreeTest {
+  // Landmark jitter relative to the size of the pose: detector noise, and a pose between samples.
+  private static final float SMALL_JITTER = 0.003f;
+  private static final float LARGE_JITTER = 0.05f;
+  private static final Point3D AXES_WEIGHTS = Point3D.from(1, 1, 0.2f);
+  private static final int K = 30;
+
+  private static PoseSampleStore sampleStore;
+  private static List<List<Point3D>> rows;
+
+  @BeforeClass
+  public static void loadSamples() throws IOException {
+    sampleStore = new PoseSampleStore(TestSamples.loadSamples());
+    rows = TestSamples.loadLandmarks();
+  }
+
+  @Test
+  public void treeClassify_matchesLinearScan() {
+    assertSameResults(
+        new PoseClassifier(sampleStore, SearchStrategy.LINEAR_SCAN),
+        new PoseClassifier(sampleStore, SearchStrategy.VANTAGE_POINT_TREE));
+  }
+
+  @Test
+  public void treeClassify_ofTargetClassifier_matchesLinearScan() {
+    String targetClass = sampleStore.getClassName(0);
+
+    assertSameResults(
+        new PoseClassifier(sampleStore, SearchStrategy.LINEAR_SCAN).forTargetClass(targetClass),
+        new PoseClassifier(sampleStore, SearchStrategy.VANTAGE_POINT_TREE)
+            .forTargetClass(targetClass));
+  }
+
+  @Test
+  public void search_findsTheLinearScanDistances() {
+    VantagePointTree tree = new VantagePointTree(sampleStore, AXES_WEIGHTS);
+    int embeddingLength = sampleStore.getEmbeddingSize() * 3;
+    float[] query = new float[embeddingLength];
+    float[] flippedQuery = new float[embeddingLength];
+    TopKSelector treeNeighbours = new TopKSelector(K);
+    TopKSelector scanNeighbours = new TopKSelector(K);
+
+    // Each sample finds itself, and any duplicate of it, at distance zero.
+    for (int sample = 0; sample < sampleStore.size(); sample++) {
+      sampleStore.copyAsQuery(sample, query, flippedQuery);
+      for (float[] side : new float[][] {query, flippedQuery}) {
+        tree.search(side, treeNeighbours);
+        scanNeighbours.clear();
+        for (int i = 0; i < sampleStore.size(); i++) {
+          scanNeighbours.offer(i, sampleStore.maxDistance(i, side, AXES_WEIGHTS));
+        }
+
+        // Samples tied at the K-th distance may be picked differently, the distances may not.
+        assertArrayEquals(
+            "Sample " + sample,
+            sortedDistances(scanNeighbours, side),
+            sortedDistances(treeNeighbours, side),
+            0f);
+      }
+    }
+  }
+
+  private static void assertSameResults(PoseClassifier linearScan, PoseClassifier tree) {
+    Random random = new Random(13);
+    for (int row = 0; row < rows.size(); row++) {
+      float[] landmarks = TestSamples.packLandmarks(rows.get(row));
+
+      assertSameResult("Row " + row, linearScan, tree, landmarks);
+      assertSameResult(
+          "Held row " + row,
+          linearScan,
+          tree,
+          TestSamples.jitter(landmarks, SMALL_JITTER, random));
+      assertSameResult(
+          "Moved row " + row,
+          linearScan,
+          tree,
+          TestSamples.jitter(landmarks, LARGE_JITTER, random));
+    }
+  }
+
+  private static void assertSameResult(
+      String message, PoseClassifier linearScan, PoseClassifier tree, float[] landmarks) {
+    ClassificationResult expected = linearScan.classify(landmarks);
+    ClassificationResult actual = tree.classify(landmarks);
+    ClassVocabulary vocabulary = expected.getVocabulary();
+    for (int classId = 0; classId < vocabulary.size(); classId++) {
+      assertEquals(
+          message + ", " + vocabulary.getName(classId),
+          expected.getClassConfidence(classId),
+          actual.getClassConfidence(classId),
+          0f);
+    }
+  }
+
+  private static float[] sortedDistances(TopKSelector neighbours, float[] query) {
+    float[] distances = new float[neighbours.size()];
+    for (int i = 0; i < distances.length; i++) {
+      distances[i] = sampleStore.maxDistance(neighbours.indexAt(i), query, AXES_WEIGHTS);
+    }
+    Arrays.sort(distances);
+    return distances;
+  }
+}
@@ -0,0 +1,148 @@
+package com.fluffycandies.yogaguide.perf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+/** Records known latencies and compares the reported percentiles with exact ones. */
+public class LatencyHistogramTest {
+  // A bucket above 32us spans a sixteenth of a power of two.
+  private static final double RELATIVE_ERROR = 1.0 / 16;
+  // Far above every value under test, so the max doesn't cap the bucket bounds reported.
+  private static final long FAR_NANOS = 1_000_000_000L;
+  private static final double[] PERCENTILES = {1, 10, 50, 90, 95, 99, 99.9, 100};
+
+  @Test
+  public void record_roundsUpToTheBucketAtEdges() {
+    // Recorded value in microseconds, largest value of its bucket.
+    long[][] edges = {
+      {0, 0}, {1, 1}, {31, 31}, {32, 33}, {33, 33}, {34, 35}, {63, 63}, {64, 67}, {67, 67},
+      {68, 71}, {127, 127}, {128, 135}, {1023, 1023}, {1024, 1087}, {1087, 1087}, {1088, 1151},
+    };
+    for (long[] edge : edges) {
+      LatencyHistogram histogram = new LatencyHistogram();
+      histogram.record(edge[0] * 1000);
+      histogram.record(FAR_NANOS);
+
+      // The lower half is the one value, reported as the top of its bucket.
+      assertEquals(
+          edge[0] + "us", edge[1] / 1000.0, histogram.snapshot().getPercentileMillis(50), 0);
+    }
+  }
+
+  @Test
+  public void record_clampsAndTruncatesToMicros() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(-5_000);
+    histogram.record(31_999);
+    histogram.record(LatencyHistogram.MAX_TRACKABLE_MICROS * 1000 * 2);
+
+    LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+    assertEquals(3, snapshot.getCount());
+    assertEquals(0, snapshot.getMinMillis(), 0);
+    assertEquals(0.031, snapshot.getPercentileMillis(50), 0);
+    assertEquals(LatencyHistogram.MAX_TRACKABLE_MICROS / 1000.0, snapshot.getMaxMillis(), 0);
+    assertEquals(snapshot.getMaxMillis(), snapshot.getPercentileMillis(100), 0);
+  }
+
+  @Test
+  public void percentiles_withinRelativeErrorOfExact() {
+    Random random = new Random(23);
+    for (int size : new int[] {1, 7, 100, 10_000}) {
+      LatencyHistogram histogram = new LatencyHistogram();
+      long[] micros = new long[size];
+      for (int i = 0; i < size; i++) {
+        // Log-normal around 30ms with a long tail, like frame latencies.
+        long nanos = (long) (30e6 * Math.exp(random.nextGaussian() * 0.6));
+        histogram.record(nanos);
+        micros[i] = nanos / 1000;
+      }
+      Arrays.sort(micros);
+
+      LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+      for (double percentile : PERCENTILES) {
+        assertWithinBucket(
+            size + " values, p" + percentile,
+            exactPercentileMillis(micros, percentile),
+            snapshot.getPercentileMillis(percentile));
+      }
+      assertEquals(micros[0] / 1000.0, snapshot.getMinMillis(), 0);
+      assertEquals(micros[size - 1] / 1000.0, snapshot.getMaxMillis(), 0);
+    }
+  }
+
+  @Test
+  public void snapshot_isNotAffectedByLaterRecords() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(10_000_000);
+    LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+    histogram.record(50_000_000);
+    histogram.reset();
+
+    assertEquals(1, snapshot.getCount());
+    assertEquals(10, snapshot.getMaxMillis(), 0);
+    assertEquals(0, histogram.snapshot().getCount());
+  }
+
+  @Test
+  public void since_countsOnlyTheLaterRecords() {
+    Random random = new Random(29);
+    LatencyHistogram histogram = new LatencyHistogram();
+    LatencyHistogram laterOnly = new LatencyHistogram();
+    for (int i = 0; i < 500; i++) {
+      histogram.record((long) (20e6 * Math.exp(random.nextGaussian() * 0.3)));
+    }
+    LatencyHistogram.Snapshot earlier = histogram.snapshot();
+    long[] laterMicros = new long[300];
+    for (int i = 0; i < laterMicros.length; i++) {
+      // Slower than before, so the interval percentiles differ from the whole session's.
+      long nanos = (long) (60e6 * Math.exp(random.nextGaussian() * 0.3));
+      histogram.record(nanos);
+      laterOnly.record(nanos);
+      laterMicros[i] = nanos / 1000;
+    }
+    Arrays.sort(laterMicros);
+    LatencyHistogram.Snapshot later = histogram.snapshot();
+
+    LatencyHistogram.Snapshot interval = later.since(earlier);
+
+    assertEquals(later.getCount(), earlier.getCount() + interval.getCount());
+    assertEquals(laterOnly.snapshot().getMeanMillis(), interval.getMeanMillis(), 1e-9);
+    for (double percentile : PERCENTILES) {
+      assertWithinBucket(
+          "p" + percentile,
+          exactPercentileMillis(laterMicros, percentile),
+          interval.getPercentileMillis(percentile));
+    }
+    // Min and max of the interval are only known to the bucket, rounded down and up.
+    double exactMin = laterMicros[0] / 1000.0;
+    assertTrue(
+        "min " + interval.getMinMillis(),
+        interval.getMinMillis() <= exactMin
+            && interval.getMinMillis() >= exactMin / (1 + RELATIVE_ERROR));
+    assertWithinBucket(
+        "max", laterMicros[laterMicros.length - 1] / 1000.0, interval.getMaxMillis());
+
+    LatencyHistogram.Snapshot empty = later.since(later);
+    assertEquals(0, empty.getCount());
+    assertEquals(0, empty.getPercentileMillis(50), 0);
+    assertEquals(0, empty.getMeanMillis(), 0);
+  }
+
+  /** Returns the value {@code percentile} percent of {@code sortedMicros} are at or below. */
+  private static double exactPercentileMillis(long[] sortedMicros, double percentile) {
+    int rank = Math.max(1, (int) Math.ceil(percentile / 100 * sortedMicros.length));
+    return sortedMicros[rank - 1] / 1000.0;
+  }
+
+  /** Reported values are rounded up to their bucket, by less than its relative width. */
+  private static void assertWithinBucket(String message, double exactMillis, double actualMillis) {
+    assertTrue(
+        message + ": exact " + exactMillis + ", reported " + actualMillis,
+        actualMillis >= exactMillis && actualMillis <= exactMillis * (1 + RELATIVE_ERROR));
+  }
+}
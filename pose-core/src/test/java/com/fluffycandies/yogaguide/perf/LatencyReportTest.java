@@ -0,0 +1,104 @@
+package com.fluffycandies.yogaguide.perf;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.fluffycandies.yogaguide.perf.PipelineLatencies.Stage;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Writes reports of the pipeline stages with known latencies and reads them back. */
+public class LatencyReportTest {
+  private final PipelineLatencies latencies = new PipelineLatencies();
+
+  @Before
+  public void setUp() {
+    // 1..100ms detections, 101..200ms frames, one classification and nothing of the other stages.
+    for (int i = 1; i <= 100; i++) {
+      latencies.record(Stage.DETECTION, i * 1_000_000L);
+      latencies.record(Stage.FRAME, (100 + i) * 1_000_000L);
+    }
+    latencies.record(Stage.CLASSIFICATION, 4_000_000L);
+  }
+
+  @Test
+  public void writeCsv_writesAStageALineInPipelineOrder() throws IOException {
+    StringWriter writer = new StringWriter();
+
+    LatencyReport.writeCsv(writer, latencies.snapshot());
+
+    String[] lines = writer.toString().split("\n");
+    assertEquals("stage,count,min,mean,p50,p90,p95,p99,max", lines[0]);
+    assertEquals(Stage.values().length + 1, lines.length);
+    assertEquals("conversion,0,0.000,0.000,0.000,0.000,0.000,0.000,0.000", lines[1]);
+    // Bucket tops: 51.199ms for 50ms, 98.303ms for 95ms, and the max caps 99ms at 100ms.
+    assertEquals("detection,100,1.000,50.500,51.199,90.111,98.303,100.000,100.000", lines[2]);
+    assertEquals("classification,1,4.000,4.000,4.000,4.000,4.000,4.000,4.000", lines[3]);
+    assertEquals("frame", lines[6].split(",")[0]);
+  }
+
+  @Test
+  public void writeJson_writesTheSameValues() throws IOException {
+    StringWriter csvWriter = new StringWriter();
+    StringWriter jsonWriter = new StringWriter();
+    Map<String, LatencyHistogram.Snapshot> snapshots = latencies.snapshot();
+
+    LatencyReport.writeCsv(csvWriter, snapshots);
+    LatencyReport.writeJson(jsonWriter, snapshots);
+
+    JsonObject json = JsonParser.parseString(jsonWriter.toString()).getAsJsonObject();
+    String[] lines = csvWriter.toString().split("\n");
+    String[] columns = lines[0].split(",");
+    assertEquals(Stage.values().length, json.size());
+    for (int line = 1; line < lines.length; line++) {
+      String[] values = lines[line].split(",");
+      JsonObject stage = json.getAsJsonObject(values[0]);
+      for (int column = 1; column < columns.length; column++) {
+        assertEquals(
+            values[0] + " " + columns[column],
+            Double.parseDouble(values[column]),
+            stage.get(columns[column]).getAsDouble(),
+            0);
+      }
+    }
+  }
+
+  @Test
+  public void intervalSnapshots_countOnlyTheInterval() throws IOException {
+    Map<String, LatencyHistogram.Snapshot> earlier = latencies.snapshot();
+    for (int i = 0; i < 10; i++) {
+      latencies.record(Stage.DETECTION, 200_000_000L);
+    }
+    Map<String, LatencyHistogram.Snapshot> later = latencies.snapshot();
+    Map<String, LatencyHistogram.Snapshot> interval = new LinkedHashMap<>();
+    for (Map.Entry<String, LatencyHistogram.Snapshot> entry : later.entrySet()) {
+      interval.put(entry.getKey(), entry.getValue().since(earlier.get(entry.getKey())));
+    }
+    StringWriter writer = new StringWriter();
+
+    LatencyReport.writeCsv(writer, interval);
+
+    String[] lines = writer.toString().split("\n");
+    long[] counts = new long[lines.length - 1];
+    for (int line = 1; line < lines.length; line++) {
+      counts[line - 1] = Long.parseLong(lines[line].split(",")[1]);
+    }
+    assertArrayEquals(new long[] {0, 10, 0, 0, 0, 0}, counts);
+    assertEquals(
+        "detection,10,196.608,200.000,200.000,200.000,200.000,200.000,200.000", lines[2]);
+    assertEquals(110, later.get("detection").getCount());
+  }
+
+  @Test
+  public void summarize_reportsTheTailPercentiles() {
+    assertEquals(
+        "detection latency: n=100, p50=51.199ms, p95=98.303ms, p99=100.000ms, max=100.000ms",
+        LatencyReport.summarize("detection", latencies.snapshot().get("detection")));
+  }
+}
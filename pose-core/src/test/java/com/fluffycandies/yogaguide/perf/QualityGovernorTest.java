@@ -0,0 +1,139 @@
+package com.fluffycandies.yogaguide.perf;
+
+import static org.junit.Assert.assertEquals;
+
+import com.fluffycandies.yogaguide.perf.QualityGovernor.QualityLevel;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Drives the governor with synthetic latency and temperature traces, one sample a second. */
+public class QualityGovernorTest {
+  private static final double BUDGET_MS = 100;
+  private static final double FAST_MS = 50;
+  private static final double SLOW_MS = 150;
+  private static final double COOL_C = 30;
+  private static final long SAMPLE_INTERVAL_MS = 1_000;
+  private static final int UNKNOWN = QualityGovernor.THERMAL_STATUS_UNKNOWN;
+
+  private final QualityGovernor governor = new QualityGovernor(BUDGET_MS);
+  private final List<QualityLevel> changes = new ArrayList<>();
+  private long nowMs;
+
+  @Before
+  public void setUp() {
+    governor.setListener(changes::add);
+  }
+
+  @Test
+  public void sustainedSlowFrames_stepDownOneLevelPerHold() {
+    run(3, FAST_MS, COOL_C);
+    run(11, SLOW_MS, COOL_C);
+
+    // Pressure from the first slow sample; a step after 3 s, then one per 5 s hold.
+    assertEquals(
+        levels(QualityLevel.REDUCED_RESOLUTION, QualityLevel.FAST_DETECTOR), changes);
+  }
+
+  @Test
+  public void heatUpAndCoolDown_stepsDownThenBackUpSlowly() {
+    run(10, FAST_MS, COOL_C);
+    run(4, FAST_MS, COOL_C + 7);
+    assertEquals(levels(QualityLevel.REDUCED_RESOLUTION), changes);
+
+    // Still above the cool-down threshold: neither pressure nor headroom.
+    run(60, FAST_MS, COOL_C + 4);
+    assertEquals(QualityLevel.REDUCED_RESOLUTION, governor.getLevel());
+
+    run(20, FAST_MS, COOL_C + 1);
+    assertEquals(QualityLevel.REDUCED_RESOLUTION, governor.getLevel());
+    run(1, FAST_MS, COOL_C + 1);
+    assertEquals(levels(QualityLevel.REDUCED_RESOLUTION, QualityLevel.FULL), changes);
+  }
+
+  @Test
+  public void latencyAroundBudget_doesNotFlap() {
+    for (int i = 0; i < 120; i++) {
+      run(1, i % 2 == 0 ? BUDGET_MS * 1.05 : BUDGET_MS * 0.95, COOL_C);
+    }
+
+    assertEquals(levels(), changes);
+  }
+
+  @Test
+  public void samplesWithoutFrames_keepTheLastLatency() {
+    // Every other interval has no frame drawn, as when the pipeline is this slow.
+    for (int i = 0; i < 4; i++) {
+      run(1, SLOW_MS, COOL_C);
+      run(1, Double.NaN, COOL_C);
+    }
+
+    assertEquals(levels(QualityLevel.REDUCED_RESOLUTION), changes);
+  }
+
+  @Test
+  public void samplesWithoutFrames_doNotCountAsHeadroom() {
+    run(4, SLOW_MS, COOL_C);
+    run(60, Double.NaN, COOL_C);
+
+    assertEquals(
+        levels(
+            QualityLevel.REDUCED_RESOLUTION,
+            QualityLevel.FAST_DETECTOR,
+            QualityLevel.NO_PREVIEW_BITMAP,
+            QualityLevel.SPARSE_CLASSIFICATION),
+        changes);
+  }
+
+  @Test
+  public void noFramesAtAll_keepsFullQuality() {
+    run(60, Double.NaN, COOL_C);
+
+    assertEquals(levels(), changes);
+  }
+
+  @Test
+  public void hotFirstReading_doesNotSetTheBaseline() {
+    // The first reading taken while the camera starts up is off.
+    run(1, FAST_MS, COOL_C + 10);
+    run(10, FAST_MS, COOL_C);
+    run(4, FAST_MS, COOL_C + 7);
+
+    assertEquals(levels(QualityLevel.REDUCED_RESOLUTION), changes);
+  }
+
+  @Test
+  public void warmStart_measuresRiseFromTheCoolestReading() {
+    run(5, FAST_MS, COOL_C + 5);
+    run(10, FAST_MS, COOL_C);
+    run(4, FAST_MS, COOL_C + 7);
+
+    assertEquals(levels(QualityLevel.REDUCED_RESOLUTION), changes);
+  }
+
+  @Test
+  public void thermalStatus_stepsDownWithoutTemperature() {
+    for (int i = 0; i < 4; i++) {
+      nowMs += SAMPLE_INTERVAL_MS;
+      governor.update(nowMs, FAST_MS, /* moderate= */ 2, Double.NaN);
+    }
+
+    assertEquals(levels(QualityLevel.REDUCED_RESOLUTION), changes);
+  }
+
+  private void run(int samples, double latencyP95Ms, double temperatureC) {
+    for (int i = 0; i < samples; i++) {
+      nowMs += SAMPLE_INTERVAL_MS;
+      governor.update(nowMs, latencyP95Ms, UNKNOWN, temperatureC);
+    }
+  }
+
+  private static List<QualityLevel> levels(QualityLevel... levels) {
+    List<QualityLevel> list = new ArrayList<>();
+    for (QualityLevel level : levels) {
+      list.add(level);
+    }
+    return list;
+  }
+}
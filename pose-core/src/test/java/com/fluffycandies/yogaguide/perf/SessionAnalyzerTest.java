@@ -0,0 +1,132 @@
+package com.fluffycandies.yogaguide.perf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+/** Records synthetic sessions with known statistics and analyzes them, as pulled from a device. */
+public class SessionAnalyzerTest {
+  // Recorded for values that weren't available, written as empty fields.
+  private static final float MISSING = Float.NaN;
+  private static final List<String> COLUMNS =
+      Arrays.asList(
+          SessionColumns.FPS,
+          SessionColumns.latencyP95(PipelineLatencies.Stage.FRAME),
+          SessionColumns.THERMAL_STATUS,
+          SessionColumns.TEMPERATURE_C);
+
+  @Test
+  public void recorder_whenWrappedAround_writesTheNewestRowsOldestFirst() throws IOException {
+    SessionRecorder recorder = new SessionRecorder(Arrays.asList("a", "b"), 3);
+    for (int i = 1; i <= 5; i++) {
+      recorder.record(i * 1000L, new float[] {i, i == 4 ? MISSING : 10 * i});
+    }
+
+    StringWriter writer = new StringWriter();
+    recorder.writeCsv(writer);
+
+    assertEquals(3, recorder.size());
+    assertEquals("time_ms,a,b\n3000,3.0,30.0\n4000,4.0,\n5000,5.0,50.0\n", writer.toString());
+  }
+
+  @Test
+  public void correlation_overSamplesWithBothValuesKnown() throws IOException {
+    // Temperature 1..5 against p95 2, 1, 4, 3, 5 correlates by 0.8, fps falls in line with it.
+    // Rows missing the temperature would spoil both, the one missing p95 only counts for fps.
+    String report =
+        analyze(
+            row(30, 2, MISSING, 1),
+            row(MISSING, 90, MISSING, MISSING),
+            row(29, 1, MISSING, 2),
+            row(28, 4, MISSING, 3),
+            row(27, MISSING, MISSING, 4),
+            row(27, 3, MISSING, 4),
+            row(26, 5, MISSING, 5),
+            row(0, 0, MISSING, MISSING));
+
+    assertTrue(report, report.contains("Correlation of temperature with frame p95: 0.80,"));
+    assertTrue(report, report.contains("with fps: -1.00\n"));
+  }
+
+  @Test
+  public void correlation_withoutTwoKnownPairs_isNotAvailable() throws IOException {
+    String report =
+        analyze(
+            row(30, 40, MISSING, MISSING),
+            row(30, 40, MISSING, 35),
+            row(30, MISSING, MISSING, 36));
+
+    assertTrue(report, report.contains("with frame p95: n/a, with fps: n/a\n"));
+    assertTrue(report, report.contains("Never throttled."));
+  }
+
+  @Test
+  public void thermalStatus_splitsThrottledSamples() throws IOException {
+    // From 5s on, 4 samples are throttled and half of them are latency spikes.
+    String report =
+        analyze(
+            row(30, 40, 0, MISSING),
+            row(30, 40, 0, MISSING),
+            row(30, 40, 0, MISSING),
+            row(30, 40, 0, MISSING),
+            row(30, 40, 1, MISSING),
+            row(20, 40, 2, MISSING),
+            row(20, 100, 2, MISSING),
+            row(20, 100, 3, MISSING),
+            row(20, 40, 2, MISSING),
+            row(30, 40, 1, MISSING));
+
+    assertTrue(report, report.contains("median frame p95 40.0ms"));
+    assertTrue(report, report.contains("Latency spikes (frame p95 > 1.5x median): 2 samples"));
+    assertTrue(report, report.contains("Throttled from 5s on, 4 of 10 samples (40%)"));
+    assertTrue(report, report.contains("Spike rate: 50% throttled, 0% not throttled"));
+    assertTrue(report, report.contains("Mean fps: 20.0 throttled, 30.0 not throttled"));
+    assertTrue(
+        report, report.contains("  frame p95 median: 70.0ms throttled, 40.0ms not throttled"));
+  }
+
+  @Test
+  public void withoutThermalStatus_temperatureRiseSplitsThrottledSamples() throws IOException {
+    // 5 degrees above the first known reading is throttled.
+    String report =
+        analyze(
+            row(30, 40, MISSING, MISSING),
+            row(30, 40, MISSING, 35),
+            row(30, 40, MISSING, 39.9f),
+            row(24, 40, MISSING, 40),
+            row(24, 40, MISSING, 41));
+
+    assertTrue(report, report.contains("Throttled from 3s on, 2 of 5 samples (40%)"));
+    assertTrue(report, report.contains("Mean fps: 24.0 throttled, 30.0 not throttled"));
+  }
+
+  @Test
+  public void withoutThermalData_saysSo() throws IOException {
+    String report = analyze(row(30, 40, MISSING, MISSING), row(30, 40, MISSING, MISSING));
+
+    assertTrue(report, report.endsWith("can't tell throttled samples apart.\n"));
+  }
+
+  private static float[] row(float fps, float frameP95, float thermalStatus, float temperature) {
+    return new float[] {fps, frameP95, thermalStatus, temperature};
+  }
+
+  /** Records the rows a second apart, more than the recorder holds, and analyzes its csv. */
+  private static String analyze(float[]... rows) throws IOException {
+    SessionRecorder recorder = new SessionRecorder(COLUMNS, rows.length);
+    // Overwritten by the rows under test, so the analysis only sees those.
+    recorder.record(0, row(0, 1000, 6, 99));
+    for (int i = 0; i < rows.length; i++) {
+      recorder.record(i * 1000L, rows[i]);
+    }
+    StringWriter csv = new StringWriter();
+    recorder.writeCsv(csv);
+    return SessionAnalyzer.analyze(new StringReader(csv.toString()));
+  }
+}